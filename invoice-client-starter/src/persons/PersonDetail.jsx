@@ -3,12 +3,17 @@ import { useParams, Link, useNavigate } from 'react-router-dom';
 import '../index.css';
 import { apiGet, apiDelete } from '../utils/api';
 
+// Počet posledních faktur zobrazených v každé tabulce
+const INVOICES_PAGE_SIZE = 50;
+
 const PersonDetail = () => {
     const { id } = useParams();
     const navigate = useNavigate();
     const [person, setPerson] = useState(null);
     const [salesInvoices, setSalesInvoices] = useState([]);
     const [purchasesInvoices, setPurchasesInvoices] = useState([]);
+    const [salesTotal, setSalesTotal] = useState(0);
+    const [purchasesTotal, setPurchasesTotal] = useState(0);
     const [statistics, setStatistics] = useState(null); 
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState(null);
@@ -32,13 +37,15 @@ const PersonDetail = () => {
                 setStatistics(personStatistics || { revenue: 0, expenses: 0 }); // Uložení nalezených statistik, nebo výchozí hodnoty
 
                 if (personData.identificationNumber) {
-                    // Načtení vystavených faktur
-                    const salesData = await apiGet(`/api/persons/${personData.identificationNumber}/sales`);
-                    setSalesInvoices(salesData);
-
-                    // Načtení přijatých faktur
-                    const purchasesData = await apiGet(`/api/persons/${personData.identificationNumber}/purchases`);
-                    setPurchasesInvoices(purchasesData);
+                    // Načtení posledních vystavených faktur (server vrací stránku)
+                    const salesData = await apiGet(`/api/persons/${personData.identificationNumber}/sales`, { size: INVOICES_PAGE_SIZE, sort: 'issued,desc' });
+                    setSalesInvoices(salesData.invoices.content);
+                    setSalesTotal(salesData.invoices.totalElements);
+
+                    // Načtení posledních přijatých faktur
+                    const purchasesData = await apiGet(`/api/persons/${personData.identificationNumber}/purchases`, { size: INVOICES_PAGE_SIZE, sort: 'issued,desc' });
+                    setPurchasesInvoices(purchasesData.invoices.content);
+                    setPurchasesTotal(purchasesData.invoices.totalElements);
                 } else {
                     setSalesInvoices([]);
                     setPurchasesInvoices([]);
@@ -160,6 +167,7 @@ const PersonDetail = () => {
                         ))}
                     </tbody>
                 </table>
+                <p className="text-muted">Zobrazeno {salesInvoices.length} z {salesTotal} faktur</p>
             </div>
 
             <hr />
@@ -194,6 +202,7 @@ const PersonDetail = () => {
                         ))}
                     </tbody>
                 </table>
+                <p className="text-muted">Zobrazeno {purchasesInvoices.length} z {purchasesTotal} faktur</p>
             </div>
         </div>
     );
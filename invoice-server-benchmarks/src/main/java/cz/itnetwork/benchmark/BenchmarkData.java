@@ -0,0 +1,134 @@
+package cz.itnetwork.benchmark;
+
+import cz.itnetwork.ApplicationMain;
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.service.InvoiceImportService;
+import cz.itnetwork.service.PersonService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Syntetická data pro benchmarky - entity v paměti a aplikace nad H2 naplněná přes své vlastní služby.
+ */
+final class BenchmarkData {
+
+    private static final LocalDate FIRST_ISSUED = LocalDate.of(2024, 1, 1);
+
+    // Faktury se importují po dávkách, aby ani milion řádků nevznikal v paměti najednou
+    private static final int IMPORT_CHUNK = 50_000;
+
+    private BenchmarkData() {
+    }
+
+    static PersonEntity person(long id) {
+        PersonEntity person = new PersonEntity();
+        person.setId(id);
+        person.setName("Firma " + id);
+        person.setIdentificationNumber(identificationNumber(id));
+        person.setTaxNumber("CZ" + identificationNumber(id));
+        person.setAccountNumber("123456789");
+        person.setBankCode("0100");
+        person.setIban("CZ6501000000000123456789");
+        person.setTelephone("+420 777 123 456");
+        person.setMail("firma" + id + "@example.cz");
+        person.setStreet("Hlavní " + id);
+        person.setZip("11000");
+        person.setCity("Praha");
+        person.setCountry(Countries.CZECHIA);
+        person.setNote("Poznámka k osobě " + id);
+        return person;
+    }
+
+    static List<PersonEntity> persons(int count) {
+        List<PersonEntity> persons = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            persons.add(person(id));
+        }
+        return persons;
+    }
+
+    /**
+     * Faktury střídají prodávající a kupující z dodaného seznamu osob.
+     */
+    static List<InvoiceEntity> invoices(int count, List<PersonEntity> persons) {
+        List<InvoiceEntity> invoices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            InvoiceEntity invoice = new InvoiceEntity();
+            invoice.setId((long) i + 1);
+            invoice.setInvoiceNumber(String.valueOf(2024010000 + i));
+            invoice.setSeller(persons.get(i % persons.size()));
+            invoice.setBuyer(persons.get((i + 1) % persons.size()));
+            invoice.setIssued(FIRST_ISSUED.plusDays(i % 730));
+            invoice.setDueDate(FIRST_ISSUED.plusDays(i % 730 + 14));
+            invoice.setProduct("Produkt " + (i % 50));
+            invoice.setPrice(100L + (i * 37L) % 10_000);
+            invoice.setVat(21);
+            invoice.setNote("Poznámka k faktuře " + i);
+            invoices.add(invoice);
+        }
+        return invoices;
+    }
+
+    /**
+     * Spustí aplikaci s profilem benchmark (H2 v paměti) a naplní ji osobami a fakturami.
+     *
+     * @param args Další parametry aplikace, např. port serveru.
+     */
+    static ConfigurableApplicationContext startApplication(int personCount, int invoiceCount, String... args) {
+        String[] applicationArgs = new String[args.length + 1];
+        applicationArgs[0] = "--spring.profiles.active=benchmark";
+        System.arraycopy(args, 0, applicationArgs, 1, args.length);
+        ConfigurableApplicationContext context = SpringApplication.run(ApplicationMain.class, applicationArgs);
+
+        PersonService personService = context.getBean(PersonService.class);
+        for (long id = 1; id <= personCount; id++) {
+            PersonDTO person = new PersonDTO(null, "Firma " + id, identificationNumber(id), null, "123456789",
+                    "0100", null, "+420 777 123 456", "firma" + id + "@example.cz", "Hlavní " + id, "11000",
+                    "Praha", Countries.CZECHIA, null);
+            personService.addPerson(person);
+        }
+
+        // Faktury jdou přes hromadný import, ten zároveň naplní knihu tržeb, statistiky a katalog produktů
+        InvoiceImportService importService = context.getBean(InvoiceImportService.class);
+        for (int start = 0; start < invoiceCount; start += IMPORT_CHUNK) {
+            StringBuilder ndjson = new StringBuilder();
+            for (int i = start; i < Math.min(invoiceCount, start + IMPORT_CHUNK); i++) {
+                ndjson.append(invoiceJson(i, personCount)).append('\n');
+            }
+            try {
+                importService.importNdjson(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Řádek importu faktury číslo i, prodávající a kupující se střídají mezi prvními personCount osobami.
+     */
+    static String invoiceJson(int i, int personCount) {
+        return "{\"sellerIdentificationNumber\":\"" + identificationNumber(i % personCount + 1)
+                + "\",\"buyerIdentificationNumber\":\"" + identificationNumber((i + 1) % personCount + 1)
+                + "\",\"issued\":\"" + FIRST_ISSUED.plusDays(i % 730)
+                + "\",\"dueDate\":\"" + FIRST_ISSUED.plusDays(i % 730 + 14)
+                + "\",\"product\":\"Produkt " + i % 50
+                + "\",\"price\":" + (100 + (i * 37L) % 10_000)
+                + ",\"vat\":21}";
+    }
+
+    static String identificationNumber(long id) {
+        return String.format("%08d", id);
+    }
+}
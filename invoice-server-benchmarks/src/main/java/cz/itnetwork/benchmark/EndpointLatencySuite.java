@@ -0,0 +1,329 @@
+package cz.itnetwork.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Latence všech endpointů InvoiceController a PersonController nad naplněnou databází.
+ * <p>
+ * Aplikace běží s profilem benchmark (H2 v režimu MySQL) a naplní se zadaným počtem faktur.
+ * Každý endpoint se zahřeje a pak se volá souběžně, měří se p50/p95/p99 a propustnost.
+ * Výsledek se zapíše jako JSON a při překročení rozpočtu z latency-budgets.properties
+ * (nebo při chybových odpovědích) skončí proces kódem 1, takže Maven build selže.
+ * <p>
+ * Nastavení přes systémové vlastnosti: latency.invoices, latency.persons, latency.concurrency,
+ * latency.requests, latency.warmup, latency.report, latency.budgets.
+ * Přepočty agregací (POST .../rebuild) se neměří, jsou to administrátorské operace.
+ */
+public class EndpointLatencySuite {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final int invoiceCount = Integer.getInteger("latency.invoices", 10_000);
+    private final int personCount = Integer.getInteger("latency.persons", 200);
+    private final int concurrency = Integer.getInteger("latency.concurrency", 8);
+    private final int requests = Integer.getInteger("latency.requests", 200);
+    private final int warmup = Integer.getInteger("latency.warmup", 50);
+    private final Path report = Path.of(System.getProperty("latency.report", "latency-report.json"));
+    private final Properties budgets = loadBudgets(System.getProperty("latency.budgets"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    // ID faktur a osob založených během měření, mazací endpointy mažou právě je
+    private final Queue<Long> createdInvoices = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> createdPersons = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger personSequence = new AtomicInteger();
+
+    private String baseUrl;
+
+    public static void main(String[] args) throws Exception {
+        boolean withinBudget = new EndpointLatencySuite().run();
+        System.exit(withinBudget ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("Plním databázi: %d osob, %d faktur%n", personCount, invoiceCount);
+        try (ConfigurableApplicationContext context = BenchmarkData.startApplication(personCount, invoiceCount)) {
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            boolean withinBudget = true;
+            for (Endpoint endpoint : endpoints()) {
+                Map<String, Object> result = measure(endpoint);
+                results.add(result);
+                withinBudget &= (Boolean) result.get("withinBudget");
+                System.out.printf("%-28s p50 %8.1f ms  p95 %8.1f ms  p99 %8.1f ms  %8.1f req/s  chyby %d%s%n",
+                        endpoint.name, result.get("p50Ms"), result.get("p95Ms"), result.get("p99Ms"),
+                        result.get("throughputPerSecond"), result.get("errors"),
+                        (Boolean) result.get("withinBudget") ? "" : "  MIMO ROZPOČET");
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("invoices", invoiceCount);
+            summary.put("persons", personCount);
+            summary.put("concurrency", concurrency);
+            summary.put("requestsPerEndpoint", requests);
+            summary.put("withinBudget", withinBudget);
+            summary.put("endpoints", results);
+            objectMapper.writeValue(report.toFile(), summary);
+            System.out.println("Výsledky uloženy do " + report.toAbsolutePath());
+            return withinBudget;
+        }
+    }
+
+    /**
+     * Endpointy v pořadí měření - nejdřív čtení nad naplněnými daty, potom zápisy.
+     */
+    private List<Endpoint> endpoints() {
+        String week = "dateFrom=2024-03-04&dateTo=2024-03-10";
+        return List.of(
+                get("invoices.list", r -> "/api/invoices?page=0&size=20&sort=issued,desc"),
+                get("invoices.list.lastPage", r -> "/api/invoices?page=" + (invoiceCount / 20 - 1) + "&size=20"),
+                get("invoices.list.filtered", r -> "/api/invoices?size=20&minPrice=500&maxPrice=5000&product=produkt%201"),
+                get("invoices.cursor", r -> "/api/invoices?cursor=&size=20&sort=issued,desc"),
+                get("invoices.detail", r -> "/api/invoices/" + randomInvoiceId(r)),
+                get("invoices.export", r -> "/api/invoices/export?" + week),
+                get("invoices.statistics", r -> "/api/invoices/statistics"),
+                get("invoices.statistics.periods", r -> "/api/invoices/statistics/periods?from=2024-01&to=2025-12"),
+                get("invoices.nextNumber", r -> "/api/invoices/next-number"),
+                get("invoices.numberGaps", r -> "/api/invoices/number-gaps"),
+                get("invoices.products", r -> "/api/invoices/products"),
+                get("invoices.products.search", r -> "/api/invoices/products?prefix=Produkt%201"),
+                get("persons.list", r -> "/api/persons"),
+                get("persons.detail", r -> "/api/persons/" + randomPersonId(r)),
+                get("persons.statistics", r -> "/api/persons/statistics"),
+                get("persons.statistics.page", r -> "/api/persons/statistics?sortColumn=revenue&sortDirection=desc&page=0&size=20"),
+                get("persons.sales", r -> "/api/persons/" + BenchmarkData.identificationNumber(randomPersonId(r)) + "/sales"),
+                get("persons.purchases", r -> "/api/persons/" + BenchmarkData.identificationNumber(randomPersonId(r)) + "/purchases"),
+                get("persons.cache.statistics", r -> "/api/persons/cache/statistics"),
+
+                new Endpoint("invoices.create", r -> json("POST", "/api/invoices", invoiceBody(r, null)),
+                        body -> createdInvoices.add(readId(body))),
+                new Endpoint("invoices.update", r -> {
+                    long id = randomInvoiceId(r);
+                    return json("PUT", "/api/invoices/" + id, invoiceBody(r, "LT" + id));
+                }, null),
+                new Endpoint("invoices.import", r -> HttpRequest.newBuilder(uri("/api/invoices/import"))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofString(importBody(r))), null),
+                new Endpoint("invoices.delete", r -> HttpRequest.newBuilder(uri("/api/invoices/" + createdInvoices.poll()))
+                        .DELETE(), null),
+                new Endpoint("persons.create", r -> json("POST", "/api/persons", personBody()),
+                        body -> createdPersons.add(readId(body))),
+                new Endpoint("persons.update", r -> {
+                    long id = createdPersons.isEmpty() ? randomPersonId(r) : createdPersons.peek();
+                    return json("PUT", "/api/persons/" + id, personBody());
+                }, null),
+                new Endpoint("persons.delete", r -> HttpRequest.newBuilder(uri("/api/persons/" + createdPersons.poll()))
+                        .DELETE(), null));
+    }
+
+    private Map<String, Object> measure(Endpoint endpoint) throws InterruptedException {
+        // Zápisové endpointy se nezahřívají, mazání by jinak neměla co mazat
+        boolean write = endpoint.name.endsWith(".create") || endpoint.name.endsWith(".update")
+                || endpoint.name.endsWith(".delete") || endpoint.name.endsWith(".import");
+        if (!write) {
+            execute(endpoint, warmup);
+        }
+
+        long started = System.nanoTime();
+        Run run = execute(endpoint, requests);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        long[] latencies = run.latencies.clone();
+        Arrays.sort(latencies);
+        double p50 = percentile(latencies, 50);
+        double p95 = percentile(latencies, 95);
+        double p99 = percentile(latencies, 99);
+        double budgetP95 = budget(endpoint.name, "p95");
+        double budgetP99 = budget(endpoint.name, "p99");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", endpoint.name);
+        result.put("requests", requests);
+        result.put("errors", run.errors.get());
+        result.put("p50Ms", p50);
+        result.put("p95Ms", p95);
+        result.put("p99Ms", p99);
+        result.put("maxMs", latencies[latencies.length - 1] / 1e6);
+        result.put("throughputPerSecond", requests / seconds);
+        result.put("budgetP95Ms", budgetP95);
+        result.put("budgetP99Ms", budgetP99);
+        result.put("withinBudget", run.errors.get() == 0 && p95 <= budgetP95 && p99 <= budgetP99);
+        return result;
+    }
+
+    /**
+     * Pošle count požadavků ze concurrency souběžných virtuálních vláken.
+     */
+    private Run execute(Endpoint endpoint, int count) throws InterruptedException {
+        Run run = new Run(count);
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < concurrency; worker++) {
+                workers.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        HttpRequest request = endpoint.request.apply(ThreadLocalRandom.current())
+                                .timeout(Duration.ofSeconds(60))
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                            run.latencies[i] = System.nanoTime() - start;
+                            if (response.statusCode() >= 300) {
+                                // První chybu endpointu vypíšeme celou, další jen započítáme
+                                if (run.errors.incrementAndGet() == 1) {
+                                    System.err.printf("%s: HTTP %d %s%n", endpoint.name, response.statusCode(), response.body());
+                                }
+                            } else if (endpoint.onResponse != null) {
+                                endpoint.onResponse.apply(response.body());
+                            }
+                        } catch (IOException e) {
+                            run.latencies[i] = System.nanoTime() - start;
+                            if (run.errors.incrementAndGet() == 1) {
+                                System.err.printf("%s: %s%n", endpoint.name, e);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+            }
+        }
+        return run;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Rozpočet v ms - nejdřív pro danou velikost dat (např. 100000.invoices.list.p95), pak pro endpoint, pak výchozí.
+     */
+    private double budget(String endpoint, String percentile) {
+        String value = budgets.getProperty(invoiceCount + "." + endpoint + "." + percentile,
+                budgets.getProperty(endpoint + "." + percentile,
+                        budgets.getProperty("default." + percentile)));
+        return Double.parseDouble(value);
+    }
+
+    private static Properties loadBudgets(String path) {
+        Properties properties = new Properties();
+        try (InputStream input = path != null
+                ? Files.newInputStream(Path.of(path))
+                : EndpointLatencySuite.class.getResourceAsStream("/latency-budgets.properties")) {
+            properties.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties;
+    }
+
+    private Endpoint get(String name, Function<ThreadLocalRandom, String> path) {
+        return new Endpoint(name, r -> HttpRequest.newBuilder(uri(path.apply(r))).GET(), null);
+    }
+
+    private HttpRequest.Builder json(String method, String path, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private long randomInvoiceId(ThreadLocalRandom random) {
+        return random.nextLong(1, invoiceCount + 1);
+    }
+
+    private long randomPersonId(ThreadLocalRandom random) {
+        return random.nextLong(1, personCount + 1);
+    }
+
+    private String invoiceBody(ThreadLocalRandom random, String invoiceNumber) {
+        return "{\"invoiceNumber\":" + (invoiceNumber == null ? "null" : "\"" + invoiceNumber + "\"")
+                + ",\"seller\":{\"id\":" + randomPersonId(random) + "},\"buyer\":{\"id\":" + randomPersonId(random)
+                + "},\"issued\":\"2025-01-15\",\"dueDate\":\"2025-01-29\",\"product\":\"Produkt " + random.nextInt(50)
+                + "\",\"price\":" + random.nextInt(100, 10_000) + ",\"vat\":21,\"note\":\"Zátěžový test\"}";
+    }
+
+    private String importBody(ThreadLocalRandom random) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            body.append(BenchmarkData.invoiceJson(random.nextInt(invoiceCount), personCount)).append('\n');
+        }
+        return body.toString();
+    }
+
+    private String personBody() {
+        int sequence = personSequence.incrementAndGet();
+        return "{\"name\":\"Zátěžová firma " + sequence + "\",\"identificationNumber\":\"LT" + sequence
+                + "\",\"accountNumber\":\"123456789\",\"bankCode\":\"0100\",\"telephone\":\"+420 777 123 456\""
+                + ",\"mail\":\"zatez@example.cz\",\"street\":\"Hlavní 1\",\"zip\":\"11000\",\"city\":\"Praha\""
+                + ",\"country\":\"CZECHIA\"}";
+    }
+
+    private static long readId(String body) {
+        try {
+            return objectMapper.readTree(body).get("id").asLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Endpoint {
+
+        private final String name;
+        private final Function<ThreadLocalRandom, HttpRequest.Builder> request;
+        // Zpracování těla úspěšné odpovědi, např. zapamatování ID pro mazání
+        private final Function<String, ?> onResponse;
+
+        private Endpoint(String name, Function<ThreadLocalRandom, HttpRequest.Builder> request, Function<String, ?> onResponse) {
+            this.name = name;
+            this.request = request;
+            this.onResponse = onResponse;
+        }
+    }
+
+    private static final class Run {
+
+        private final long[] latencies;
+        private final AtomicInteger errors = new AtomicInteger();
+
+        private Run(int count) {
+            latencies = new long[count];
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package cz.itnetwork.benchmark;
+
+import cz.itnetwork.dto.InvoiceSummaryDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import cz.itnetwork.entity.repository.specification.InvoiceSpecification;
+import cz.itnetwork.service.InvoiceService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtry seznamu faktur - sestavení Specification a celý dotaz getInvoices nad H2 s 10 000 fakturami.
+ * Hibernate 6.4 nedrží plány criteria dotazů v cache, getInvoices proto zahrnuje i překlad do SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InvoiceFilterBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+    private EntityManager entityManager;
+    private InvoiceFilter filter;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.startApplication(100, 10_000);
+        invoiceService = context.getBean(InvoiceService.class);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+
+        filter = new InvoiceFilter();
+        filter.setDateFrom(LocalDate.of(2024, 3, 1));
+        filter.setDateTo(LocalDate.of(2025, 3, 1));
+        filter.setMinPrice(500L);
+        filter.setMaxPrice(8_000L);
+        filter.setProduct("produkt 1");
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Predicate buildSpecification() {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<InvoiceEntity> query = criteriaBuilder.createQuery(InvoiceEntity.class);
+        Root<InvoiceEntity> root = query.from(InvoiceEntity.class);
+        return new InvoiceSpecification(filter, null).toPredicate(root, query, criteriaBuilder);
+    }
+
+    @Benchmark
+    public Page<InvoiceSummaryDTO> getInvoices() {
+        return invoiceService.getInvoices(filter, PageRequest.of(0, 20, Sort.by("issued")));
+    }
+}
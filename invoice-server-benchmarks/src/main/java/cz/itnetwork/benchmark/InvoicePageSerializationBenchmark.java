@@ -0,0 +1,109 @@
+package cz.itnetwork.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceSummaryDTO;
+import cz.itnetwork.dto.mapper.InvoiceMapper;
+import cz.itnetwork.dto.mapper.InvoiceMapperImpl;
+import cz.itnetwork.entity.InvoiceEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializace stránky faktur - plné InvoiceDTO (detail, kurzor) proti řádkům seznamu InvoiceSummaryDTO,
+ * ve formátech JSON, CBOR a Smile, a navíc s gzip kompresí jako při server.compression.
+ * Velikosti odpovědí se vypíšou při přípravě každé kombinace parametrů.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InvoicePageSerializationBenchmark {
+
+    @Param({"20", "100", "1000"})
+    private int pageSize;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    // Stejné nastavení jako převodníky zpráv Spring MVC
+    private ObjectMapper objectMapper;
+
+    private Page<InvoiceDTO> invoicePage;
+    private Page<InvoiceSummaryDTO> summaryPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+
+        InvoiceMapper invoiceMapper = new InvoiceMapperImpl();
+        List<InvoiceEntity> invoices = BenchmarkData.invoices(pageSize, BenchmarkData.persons(100));
+        PageRequest pageRequest = PageRequest.of(0, pageSize);
+        long total = 10L * pageSize;
+
+        invoicePage = new PageImpl<>(invoices.stream().map(invoiceMapper::toDTO).toList(), pageRequest, total);
+        summaryPage = new PageImpl<>(invoices.stream().map(invoice -> new InvoiceSummaryDTO(
+                invoice.getId(), invoice.getInvoiceNumber(), invoice.getIssued(), invoice.getDueDate(),
+                invoice.getProduct(), invoice.getPrice(), invoice.getVat(),
+                invoice.getSeller().getId(), invoice.getSeller().getName(),
+                invoice.getBuyer().getId(), invoice.getBuyer().getName())).toList(), pageRequest, total);
+
+        System.out.printf("%n%s, %d faktur: invoicePage %d B (gzip %d B), summaryPage %d B (gzip %d B)%n",
+                format, pageSize,
+                invoicePage().length, invoicePageGzip().length,
+                summaryPage().length, summaryPageGzip().length);
+    }
+
+    @Benchmark
+    public byte[] invoicePage() throws IOException {
+        return objectMapper.writeValueAsBytes(invoicePage);
+    }
+
+    @Benchmark
+    public byte[] summaryPage() throws IOException {
+        return objectMapper.writeValueAsBytes(summaryPage);
+    }
+
+    @Benchmark
+    public byte[] invoicePageGzip() throws IOException {
+        return gzip(invoicePage);
+    }
+
+    @Benchmark
+    public byte[] summaryPageGzip() throws IOException {
+        return gzip(summaryPage);
+    }
+
+    private byte[] gzip(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, value);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,61 @@
+package cz.itnetwork.benchmark;
+
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.mapper.InvoiceMapper;
+import cz.itnetwork.dto.mapper.InvoiceMapperImpl;
+import cz.itnetwork.dto.mapper.PersonMapper;
+import cz.itnetwork.dto.mapper.PersonMapperImpl;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.PersonEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapování stránky entit na DTO vygenerovanými MapStruct mappery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MapperBenchmark {
+
+    @Param({"20", "100", "1000"})
+    private int pageSize;
+
+    private final InvoiceMapper invoiceMapper = new InvoiceMapperImpl();
+    private final PersonMapper personMapper = new PersonMapperImpl();
+
+    private List<PersonEntity> persons;
+    private List<InvoiceEntity> invoices;
+
+    @Setup
+    public void setUp() {
+        persons = BenchmarkData.persons(pageSize);
+        invoices = BenchmarkData.invoices(pageSize, persons);
+    }
+
+    @Benchmark
+    public List<InvoiceDTO> invoiceToDTO() {
+        return invoices.stream().map(invoiceMapper::toDTO).toList();
+    }
+
+    @Benchmark
+    public List<PersonDTO> personToDTO() {
+        return persons.stream().map(personMapper::toDTO).toList();
+    }
+}
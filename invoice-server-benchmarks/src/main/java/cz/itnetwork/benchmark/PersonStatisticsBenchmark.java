@@ -0,0 +1,59 @@
+package cz.itnetwork.benchmark;
+
+import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistiky osob z knihy tržeb a nákladů - celý seznam seřazený podle příjmů a jedna stránka.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersonStatisticsBenchmark {
+
+    @Param({"100", "1000"})
+    private int personCount;
+
+    private ConfigurableApplicationContext context;
+    private PersonService personService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.startApplication(personCount, personCount * 10);
+        personService = context.getBean(PersonService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PersonStatisticsDTO> allSortedByRevenue() {
+        return personService.getPersonStatistics("revenue", "desc", null, null);
+    }
+
+    @Benchmark
+    public List<PersonStatisticsDTO> firstPageSortedByRevenue() {
+        return personService.getPersonStatistics("revenue", "desc", 0, 20);
+    }
+}
@@ -0,0 +1,213 @@
+package cz.itnetwork.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import cz.itnetwork.configuration.FullTextFunctionContributor;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.specification.InvoiceSpecification;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Opakované použití plánů dotazů seznamu faktur - původní tvar dotazů (Specification nad Map parametrů,
+ * hodnoty jako literály) proti InvoiceSpecification s parametry, pro hledání podřetězce i FULLTEXT.
+ * <p>
+ * Každý tvar se zavolá plancache.queries krát se stále jinými hodnotami filtrů. Po každém tvaru se vypíše
+ * Hibernate Statistics (zásahy a minutí cache plánů dotazů, připravené příkazy) a u MySQL také
+ * Com_stmt_prepare a Com_stmt_execute spojení, ze kterých plyne, kolikrát Connector/J použil
+ * serverový připravený příkaz ze své cache. Pool má jediné spojení, aby stav session patřil dotazům.
+ * Hibernate 6.3 ukládá do cache plánů jen HQL, u criteria dotazů zůstanou její čítače nulové
+ * a opakované použití je vidět až na připravených příkazech.
+ * <p>
+ * Bez plancache.url běží nad H2 z profilu benchmark jen tvary s LIKE a čítače MySQL chybí.
+ * S MySQL: -Dplancache.url="jdbc:mysql://localhost:3306/invoice_benchmark?useServerPrepStmts=true
+ * &amp;cachePrepStmts=true&amp;prepStmtCacheSize=250&amp;prepStmtCacheSqlLimit=2048", plancache.username,
+ * plancache.password. Databáze se při startu vytvoří znovu (ddl-auto create). Dále plancache.invoices,
+ * plancache.queries a plancache.report.
+ */
+public class QueryPlanCacheSuite {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    // Slova pro FULLTEXT musí mít aspoň innodb_ft_min_token_size znaků, jinak služba hledá přes LIKE
+    private static final List<String> FULLTEXT_TERMS = List.of("produkt", "produ", "produk", "prod");
+
+    private final String url = System.getProperty("plancache.url");
+    private final String username = System.getProperty("plancache.username", "root");
+    private final String password = System.getProperty("plancache.password", "");
+    private final int invoiceCount = Integer.getInteger("plancache.invoices", 10_000);
+    private final int queries = Integer.getInteger("plancache.queries", 200);
+    private final Path report = Path.of(System.getProperty("plancache.report", "plan-cache-report.json"));
+
+    private InvoiceRepository invoiceRepository;
+    private Statistics statistics;
+    private JdbcTemplate jdbcTemplate;
+
+    public static void main(String[] args) throws Exception {
+        new QueryPlanCacheSuite().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        boolean mysql = url != null && !url.isBlank();
+        System.out.printf("Plním databázi %s: %d faktur%n", mysql ? url : "H2", invoiceCount);
+        try (ConfigurableApplicationContext context = BenchmarkData.startApplication(100, invoiceCount,
+                applicationArgs(mysql))) {
+            invoiceRepository = context.getBean(InvoiceRepository.class);
+            statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+            statistics.setStatisticsEnabled(true);
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            Map<String, IntFunction<Specification<InvoiceEntity>>> shapes = new LinkedHashMap<>();
+            shapes.put("like.legacy", i -> legacySpecification(filter(i, "produkt " + i % 50, null), null));
+            shapes.put("like.typed", i -> new InvoiceSpecification(filter(i, "produkt " + i % 50, null), null));
+            if (mysql) {
+                shapes.put("fulltext.legacy", i -> legacySpecification(filter(i, null, fullTextTerm(i)),
+                        toFullTextQuery(fullTextTerm(i))));
+                shapes.put("fulltext.typed", i -> new InvoiceSpecification(filter(i, null, fullTextTerm(i)),
+                        toFullTextQuery(fullTextTerm(i))));
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Map.Entry<String, IntFunction<Specification<InvoiceEntity>>> shape : shapes.entrySet()) {
+                Map<String, Object> result = measure(shape.getKey(), shape.getValue(), mysql);
+                results.add(result);
+                System.out.printf("%-16s plány HQL zásah %5d minutí %5d  připravené příkazy %5d"
+                                + "  Com_stmt_prepare %5s  Com_stmt_execute %5s  zásahy cache příkazů %s%n",
+                        shape.getKey(), result.get("queryPlanCacheHits"), result.get("queryPlanCacheMisses"),
+                        result.get("preparedStatements"), result.getOrDefault("serverPrepares", "-"),
+                        result.getOrDefault("serverExecutes", "-"), result.getOrDefault("statementCacheHitRate", "-"));
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("database", mysql ? "mysql" : "h2");
+            summary.put("invoices", invoiceCount);
+            summary.put("queriesPerShape", queries);
+            summary.put("shapes", results);
+            objectMapper.writeValue(report.toFile(), summary);
+            System.out.println("Výsledky uloženy do " + report.toAbsolutePath());
+        }
+    }
+
+    private String[] applicationArgs(boolean mysql) {
+        List<String> args = new ArrayList<>();
+        // Jediné spojení v poolu - SHOW SESSION STATUS pak čte čítače právě měřených dotazů
+        args.add("--spring.datasource.hikari.maximum-pool-size=1");
+        args.add("--spring.jpa.properties.hibernate.generate_statistics=true");
+        if (mysql) {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--spring.datasource.username=" + username);
+            args.add("--spring.datasource.password=" + password);
+            args.add("--spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver");
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect");
+            args.add("--invoice.search.fulltext=true");
+        }
+        return args.toArray(String[]::new);
+    }
+
+    private Map<String, Object> measure(String name, IntFunction<Specification<InvoiceEntity>> shape, boolean mysql) {
+        // Zahřátí jedním dotazem, aby se do výsledku nepočítalo první sestavení metamodelu a spojení
+        invoiceRepository.findAll(shape.apply(-1), PageRequest.of(0, 20, Sort.by("id")));
+        Map<String, Long> before = mysql ? serverStatementCounters() : Map.of();
+        statistics.clear();
+
+        for (int i = 0; i < queries; i++) {
+            invoiceRepository.findAll(shape.apply(i), PageRequest.of(0, 20, Sort.by("id")));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("queries", queries);
+        result.put("queryPlanCacheHits", statistics.getQueryPlanCacheHitCount());
+        result.put("queryPlanCacheMisses", statistics.getQueryPlanCacheMissCount());
+        result.put("preparedStatements", statistics.getPrepareStatementCount());
+        if (mysql) {
+            Map<String, Long> after = serverStatementCounters();
+            long prepares = after.get("Com_stmt_prepare") - before.get("Com_stmt_prepare");
+            long executes = after.get("Com_stmt_execute") - before.get("Com_stmt_execute");
+            result.put("serverPrepares", prepares);
+            result.put("serverExecutes", executes);
+            // Každé provedení bez nového PREPARE použilo příkaz z cache Connector/J
+            result.put("statementCacheHitRate", executes == 0 ? 0.0 : (double) (executes - prepares) / executes);
+        }
+        return result;
+    }
+
+    /**
+     * Čítače serverových připravených příkazů jediného spojení poolu. SHOW STATUS jde přes obyčejný
+     * Statement, takže čítače sám nezvyšuje.
+     */
+    private Map<String, Long> serverStatementCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        jdbcTemplate.query("SHOW SESSION STATUS WHERE Variable_name IN ('Com_stmt_prepare', 'Com_stmt_execute')",
+                resultSet -> {
+                    counters.put(resultSet.getString(1), resultSet.getLong(2));
+                });
+        return counters;
+    }
+
+    /**
+     * Stejná kombinace filtrů (datum, cena a hledaný výraz) s hodnotami lišícími se podle čísla dotazu.
+     */
+    private static InvoiceFilter filter(int i, String product, String text) {
+        InvoiceFilter filter = new InvoiceFilter();
+        filter.setDateFrom(LocalDate.of(2024, 1, 1).plusDays(Math.floorMod(i, 365)));
+        filter.setDateTo(LocalDate.of(2025, 12, 31));
+        filter.setMinPrice(100L + Math.floorMod(i, 1000));
+        filter.setMaxPrice(20_000L - Math.floorMod(i, 1000));
+        filter.setProduct(product);
+        filter.setText(text);
+        return filter;
+    }
+
+    private static String fullTextTerm(int i) {
+        return FULLTEXT_TERMS.get(Math.floorMod(i, FULLTEXT_TERMS.size()));
+    }
+
+    // Stejný převod jako InvoiceServiceImpl pro jedno dost dlouhé slovo
+    private static String toFullTextQuery(String term) {
+        return "+" + term + "*";
+    }
+
+    /**
+     * Původní tvar dotazu před typovaným filtrem: atributy podle názvu, ceny porovnávané s double
+     * a FULLTEXT výraz vložený jako literál, takže každá hodnota dává jiné SQL.
+     */
+    private static Specification<InvoiceEntity> legacySpecification(InvoiceFilter filter, String fullTextQuery) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("issued"), filter.getDateFrom()));
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("issued"), filter.getDateTo()));
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), (double) filter.getMinPrice()));
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), (double) filter.getMaxPrice()));
+            if (filter.getProduct() != null) {
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("product")),
+                        "%" + filter.getProduct().toLowerCase() + "%"));
+            }
+            if (fullTextQuery != null) {
+                Expression<Double> relevance = criteriaBuilder.function(FullTextFunctionContributor.MATCH_PRODUCT_NOTE,
+                        Double.class, root.get("product"), root.get("note"), criteriaBuilder.literal(fullTextQuery));
+                predicates.add(criteriaBuilder.greaterThan(relevance, 0.0));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
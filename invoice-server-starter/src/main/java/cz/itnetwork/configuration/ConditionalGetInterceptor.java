@@ -0,0 +1,114 @@
+package cz.itnetwork.configuration;
+
+import cz.itnetwork.controller.ConditionalGet;
+import cz.itnetwork.service.DataVersions;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Podmíněné GET pro endpointy s {@link ConditionalGet}.
+ * <p>
+ * ETag se spočítá z verzí dat (krátce držených v paměti) ještě před voláním controlleru, takže při shodě
+ * s If-None-Match odejde 304 bez dotazu na data a bez serializace odpovědi.
+ * <p>
+ * Při zapnutých replikách se verze v paměti bere z primární databáze, replika za ní ale může zaostávat.
+ * Pokud se ETag neshoduje, požadavek se připne k jedné databázi (replice) a verze se přečte znovu z ní,
+ * stejně jako data po ní. Tělo ze zpožděné repliky tak dostane i starší ETag a klient si při dalším
+ * dotazu s If-None-Match zastaralá data nepotvrdí.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${invoice.datasource.replicas.enabled:false}")
+    private boolean replicasEnabled;
+
+    @Value("${invoice.http-cache.default-cache-control:no-cache}")
+    private String defaultCacheControl;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)
+                || !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+            return true;
+        }
+        ConditionalGet conditionalGet = handlerMethod.getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            return true;
+        }
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        String etag = representationTag(request, dataVersions.etag(conditionalGet.value()));
+        if (replicasEnabled && !matches(ifNoneMatch, etag)) {
+            DataSourceRouting.pinTarget();
+            etag = representationTag(request, dataVersions.readEtag(conditionalGet.value()));
+        }
+        // Slabý ETag - Tomcat odpovědi se silným ETagem nekomprimuje a gzip je jen jiné kódování téhož obsahu
+        response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, environment.getProperty(
+                "invoice.http-cache.cache-control." + conditionalGet.cacheName(), defaultCacheControl));
+
+        if (matches(ifNoneMatch, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            // Při false se afterCompletion tohoto interceptoru nevolá
+            DataSourceRouting.releaseTarget();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        DataSourceRouting.releaseTarget();
+    }
+
+    // JSON, CBOR a Smile jsou různé reprezentace téhož zdroje a silný ETag je musí rozlišit
+    private static String representationTag(HttpServletRequest request, String etag) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return etag;
+        }
+        if (accept.contains(MediaType.APPLICATION_CBOR_VALUE)) {
+            return etag.substring(0, etag.length() - 1) + "-cbor\"";
+        }
+        if (accept.contains(SMILE_MEDIA_TYPE)) {
+            return etag.substring(0, etag.length() - 1) + "-smile\"";
+        }
+        return etag;
+    }
+
+    // If-None-Match může obsahovat více ETagů nebo *, porovnání je slabé (W/ se ignoruje)
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package cz.itnetwork.configuration;
+
+import java.util.function.Supplier;
+
+/**
+ * Vynucení primární databáze pro čtení, které musí vidět právě zapsaná data (repliky se mohou zpožďovat),
+ * a připnutí všech čtení jednoho požadavku ke stejné databázi. Bez zapnutých replik nemá žádný účinek.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    // Jednoprvkové pole s databází připnutou pro požadavek, prázdné do prvního read-only spojení
+    private static final ThreadLocal<String[]> PINNED = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    /**
+     * Provede akci tak, že všechna spojení získaná uvnitř jdou na primární databázi i v read-only transakci.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY.get();
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY.remove();
+            } else {
+                PRIMARY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Od teď až do {@link #releaseTarget()} (celý HTTP požadavek) půjdou read-only transakce vlákna
+     * na databázi, kterou dostala první z nich. Data pak nejsou starší než verze přečtená na začátku.
+     */
+    static void pinTarget() {
+        PINNED.set(new String[1]);
+    }
+
+    static void releaseTarget() {
+        PINNED.remove();
+    }
+
+    /**
+     * Databáze, na kterou je vlákno připnuté, null pokud připnuté není nebo ještě nic nečetlo.
+     */
+    static String pinnedTarget() {
+        String[] pinned = PINNED.get();
+        return pinned != null ? pinned[0] : null;
+    }
+
+    /**
+     * Zapamatuje si databázi, kterou dostalo spojení, pokud je vlákno připnuté.
+     */
+    static void rememberTarget(String target) {
+        String[] pinned = PINNED.get();
+        if (pinned != null) {
+            pinned[0] = target;
+        }
+    }
+
+    static boolean isPrimaryRequired() {
+        return PRIMARY.get() != null;
+    }
+}
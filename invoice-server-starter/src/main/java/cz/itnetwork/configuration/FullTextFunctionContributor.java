@@ -0,0 +1,25 @@
+package cz.itnetwork.configuration;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Zpřístupní MySQL MATCH ... AGAINST v criteria dotazech jako funkce vracející relevanci.
+ * Sloupce musí přesně odpovídat FULLTEXT indexu z FullTextIndexInitializer.
+ */
+public class FullTextFunctionContributor implements FunctionContributor {
+
+    public static final String MATCH_PRODUCT_NOTE = "fulltext_match_product_note";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Double> doubleType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.DOUBLE);
+
+        functionContributions.getFunctionRegistry()
+                .registerPattern(MATCH_PRODUCT_NOTE, "match(?1, ?2) against (?3 in boolean mode)", doubleType);
+    }
+}
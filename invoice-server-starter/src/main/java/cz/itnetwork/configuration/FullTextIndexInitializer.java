@@ -0,0 +1,57 @@
+package cz.itnetwork.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Založí FULLTEXT index nad produktem a poznámkou faktur, který ddl-auto neumí vytvořit.
+ */
+@Component
+@ConditionalOnProperty(name = "invoice.search.fulltext", havingValue = "true", matchIfMissing = true)
+public class FullTextIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FullTextIndexInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        try {
+            // Produkt se hledá jako podřetězec, samostatný index nad ním by jen zdržoval zápisy
+            dropIndexIfPresent("ft_invoice_product");
+            createIndexIfMissing("ft_invoice_product_note", "product, note");
+        } catch (DataAccessException e) {
+            logger.error("FULLTEXT indexy se nepodařilo založit, textové hledání vypněte přes invoice.search.fulltext=false", e);
+        }
+    }
+
+    private void createIndexIfMissing(String indexName, String columns) {
+        if (!indexExists(indexName)) {
+            logger.info("Zakládám FULLTEXT index {} ({})", indexName, columns);
+            jdbcTemplate.execute("ALTER TABLE invoice_entity ADD FULLTEXT INDEX " + indexName + " (" + columns + ")");
+        }
+    }
+
+    private void dropIndexIfPresent(String indexName) {
+        if (indexExists(indexName)) {
+            logger.info("Odstraňuji nepoužívaný FULLTEXT index {}", indexName);
+            jdbcTemplate.execute("ALTER TABLE invoice_entity DROP INDEX " + indexName);
+        }
+    }
+
+    private boolean indexExists(String indexName) {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'invoice_entity' AND index_name = ?",
+                Integer.class, indexName);
+        return existing != null && existing > 0;
+    }
+}
@@ -0,0 +1,163 @@
+package cz.itnetwork.configuration;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rozdělení tabulky faktur na oddíly podle data vystavení (RANGE COLUMNS(issued)) a jejich údržba.
+ * <p>
+ * Oddíly nepodporují cizí klíče, převod nerozdělené tabulky je proto nejdřív odstraní (i ty, které na faktury
+ * odkazují). FULLTEXT indexy ani faktury bez data vystavení (issued se stává součástí primárního klíče) za aplikaci
+ * neřeší - tabulku pak nepřevede a jen zaloguje, co brání. Po převodu musí ddl-auto přestat být update,
+ * jinak Hibernate při každém startu zkouší cizí klíče znovu založit (a MySQL to odmítne).
+ * Se zapnutým rozdělením proto služby faktur i import odmítají faktury bez data vystavení.
+ * U rozdělené tabulky odštěpuje z oddílu p_max (MAXVALUE) oddíly na nejbližší období dopředu,
+ * aby nové faktury nepadaly do p_max a dotazy s rozsahem nad issued četly jen své oddíly.
+ */
+@Component
+@ConditionalOnProperty(name = "invoice.partitioning.enabled", havingValue = "true")
+public class InvoicePartitionMaintenance {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoicePartitionMaintenance.class);
+
+    private static final String MAX_PARTITION = "p_max";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${invoice.partitioning.granularity:MONTHS}")
+    private ChronoUnit granularity;
+
+    @Value("${invoice.partitioning.periods-ahead:3}")
+    private int periodsAhead;
+
+    @PostConstruct
+    void validateGranularity() {
+        if (granularity != ChronoUnit.MONTHS && granularity != ChronoUnit.YEARS) {
+            throw new IllegalStateException("invoice.partitioning.granularity musí být MONTHS nebo YEARS, je " + granularity);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${invoice.partitioning.cron:0 0 3 * * *}")
+    public synchronized void maintainPartitions() {
+        try {
+            List<Map<String, Object>> partitions = jdbcTemplate.queryForList(
+                    "SELECT partition_name, partition_method, partition_expression, partition_description " +
+                            "FROM information_schema.partitions " +
+                            "WHERE table_schema = DATABASE() AND table_name = 'invoice_entity' AND partition_name IS NOT NULL " +
+                            "ORDER BY partition_ordinal_position");
+            if (partitions.isEmpty()) {
+                partitionTable();
+            } else {
+                addUpcomingPartitions(partitions);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Údržba oddílů tabulky faktur selhala", e);
+        }
+    }
+
+    private void partitionTable() {
+        List<String> blockers = new ArrayList<>();
+        for (String index : jdbcTemplate.queryForList(
+                "SELECT DISTINCT index_name FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'invoice_entity' AND index_type = 'FULLTEXT'",
+                String.class)) {
+            blockers.add("FULLTEXT index " + index + " (invoice.search.fulltext=false)");
+        }
+        Long withoutIssued = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoice_entity WHERE issued IS NULL", Long.class);
+        if (withoutIssued != null && withoutIssued > 0) {
+            blockers.add(withoutIssued + " faktur bez data vystavení");
+        }
+        if (!blockers.isEmpty()) {
+            logger.warn("Tabulku invoice_entity nelze rozdělit na oddíly, brání: {}", String.join(", ", blockers));
+            return;
+        }
+
+        dropForeignKeys();
+
+        LocalDate first = jdbcTemplate.queryForObject("SELECT MIN(issued) FROM invoice_entity", LocalDate.class);
+        List<String> definitions = definePartitions(periodStart(first != null ? first : LocalDate.now()));
+
+        logger.info("Rozděluji tabulku invoice_entity na {} oddílů podle data vystavení", definitions.size());
+        jdbcTemplate.execute("ALTER TABLE invoice_entity MODIFY issued DATE NOT NULL");
+        // Každý unikátní klíč rozdělené tabulky musí obsahovat sloupec, podle kterého se dělí
+        jdbcTemplate.execute("ALTER TABLE invoice_entity DROP PRIMARY KEY, ADD PRIMARY KEY (id, issued)");
+        jdbcTemplate.execute("ALTER TABLE invoice_entity PARTITION BY RANGE COLUMNS(issued) ("
+                + String.join(", ", definitions) + ")");
+    }
+
+    /**
+     * Odstraní cizí klíče tabulky faktur (prodávající, kupující) i klíče, které na ni odkazují.
+     * Referenční integritu pak hlídají jen služby, ddl-auto update by klíče při dalším startu zkoušel založit znovu.
+     */
+    private void dropForeignKeys() {
+        for (Map<String, Object> foreignKey : jdbcTemplate.queryForList(
+                "SELECT table_name, constraint_name FROM information_schema.referential_constraints " +
+                        "WHERE constraint_schema = DATABASE() AND (table_name = 'invoice_entity' OR referenced_table_name = 'invoice_entity')")) {
+            logger.warn("Odstraňuji cizí klíč {} tabulky {}, oddíly cizí klíče nepodporují",
+                    foreignKey.get("CONSTRAINT_NAME"), foreignKey.get("TABLE_NAME"));
+            jdbcTemplate.execute("ALTER TABLE `" + foreignKey.get("TABLE_NAME")
+                    + "` DROP FOREIGN KEY `" + foreignKey.get("CONSTRAINT_NAME") + "`");
+        }
+    }
+
+    private void addUpcomingPartitions(List<Map<String, Object>> partitions) {
+        Map<String, Object> last = partitions.get(partitions.size() - 1);
+        String expression = String.valueOf(last.get("PARTITION_EXPRESSION")).replace("`", "");
+        if (!"RANGE COLUMNS".equals(last.get("PARTITION_METHOD")) || !"issued".equals(expression)
+                || !MAX_PARTITION.equals(last.get("PARTITION_NAME")) || partitions.size() < 2) {
+            logger.warn("Tabulka invoice_entity je rozdělená jinak než RANGE COLUMNS(issued) s oddílem {}, údržba se přeskočí",
+                    MAX_PARTITION);
+            return;
+        }
+
+        // Horní mez posledního oddílu před p_max, např. '2025-02-01'
+        String bound = String.valueOf(partitions.get(partitions.size() - 2).get("PARTITION_DESCRIPTION")).replace("'", "");
+        List<String> definitions = definePartitions(LocalDate.parse(bound));
+        if (definitions.size() == 1) {
+            return;
+        }
+
+        logger.info("Zakládám {} nových oddílů tabulky invoice_entity", definitions.size() - 1);
+        jdbcTemplate.execute("ALTER TABLE invoice_entity REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                + String.join(", ", definitions) + ")");
+    }
+
+    /**
+     * Definice oddílů od začátku daného období po aktuální období a nastavený počet dalších, nakonec p_max.
+     */
+    private List<String> definePartitions(LocalDate from) {
+        LocalDate until = periodStart(LocalDate.now()).plus(periodsAhead + 1L, granularity);
+        DateTimeFormatter nameFormat = DateTimeFormatter.ofPattern(granularity == ChronoUnit.MONTHS ? "yyyyMM" : "yyyy");
+
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate start = from; start.isBefore(until); start = start.plus(1, granularity)) {
+            definitions.add("PARTITION p" + start.format(nameFormat)
+                    + " VALUES LESS THAN ('" + start.plus(1, granularity) + "')");
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        return definitions;
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return granularity == ChronoUnit.MONTHS ? date.withDayOfMonth(1) : date.withDayOfYear(1);
+    }
+}
@@ -0,0 +1,28 @@
+package cz.itnetwork.configuration;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Napojení Hibernate na monitoring - počítání příkazů na požadavek a log pomalých dotazů.
+ * Metriky endpointů, repository, Hibernate statistik a poolu spojení registruje Actuator sám.
+ */
+@Configuration
+public class MonitoringConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer monitoringHibernatePropertiesCustomizer(
+            QueryCountMonitor queryCountMonitor,
+            @Value("${invoice.monitoring.slow-query-threshold:500ms}") Duration slowQueryThreshold) {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCountMonitor);
+            // Dotazy delší než limit loguje Hibernate do org.hibernate.SQL_SLOW, 0 log vypne
+            properties.put(AvailableSettings.LOG_SLOW_QUERY, slowQueryThreshold.toMillis());
+        };
+    }
+}
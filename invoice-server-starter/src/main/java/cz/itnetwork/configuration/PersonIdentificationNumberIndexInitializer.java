@@ -0,0 +1,110 @@
+package cz.itnetwork.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Založí unikátní index nad IČO aktivních osob, který ddl-auto neumí vytvořit.
+ * <p>
+ * Skryté osoby si IČO ponechávají a smí jich být libovolně mnoho, proto je index nad generovaným
+ * sloupcem, který má u skrytých osob NULL. Dokud v tabulce zůstávají aktivní duplicity, index se nezaloží
+ * a hromadný zápis osob odmítne běžet ({@link #requireIndex()}) - dohledání nových osob podle IČO by jinak
+ * vybralo jednu z duplicit. Generovaný sloupec je syntaxe MySQL, na jiné databázi (H2 v testech) se nic nezakládá.
+ */
+@Component
+public class PersonIdentificationNumberIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonIdentificationNumberIndexInitializer.class);
+
+    private static final String INDEX_NAME = "ux_person_active_identification_number";
+
+    private static final String COLUMN_NAME = "active_identification_number";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Index existuje nebo ho databáze nepotřebuje, další kontroly se přeskočí
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndex() {
+        try {
+            List<String> duplicates = ensureIndex();
+            if (!duplicates.isEmpty()) {
+                logger.warn("Unikátní index {} nelze založit, IČO sdílí více aktivních osob: {}",
+                        INDEX_NAME, String.join(", ", duplicates));
+            }
+        } catch (DataAccessException e) {
+            logger.error("Unikátní index nad IČO aktivních osob se nepodařilo založit", e);
+        }
+    }
+
+    /**
+     * Ověří, že index existuje, případně ho znovu zkusí založit (duplicity mohly být mezitím odstraněny).
+     *
+     * @throws IllegalStateException pokud index chybí kvůli aktivním osobám se stejným IČO
+     */
+    public void requireIndex() {
+        List<String> duplicates = ensureIndex();
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException("Hromadný zápis osob vyžaduje unikátní index " + INDEX_NAME
+                    + ", IČO sdílí více aktivních osob: " + String.join(", ", duplicates)
+                    + ". Duplicitní osoby skryjte nebo slučte a zápis opakujte.");
+        }
+    }
+
+    /**
+     * Založí index, pokud chybí. Vrátí IČO, kvůli kterým ho založit nelze (nejvýše 20), jinak prázdný seznam.
+     */
+    private synchronized List<String> ensureIndex() {
+        if (ready) {
+            return List.of();
+        }
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(database)) {
+            logger.info("Unikátní index {} se na databázi {} nezakládá (jen MySQL)", INDEX_NAME, database);
+            ready = true;
+            return List.of();
+        }
+
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'person' AND index_name = ?",
+                Integer.class, INDEX_NAME);
+        if (existing != null && existing > 0) {
+            ready = true;
+            return List.of();
+        }
+
+        List<String> duplicates = jdbcTemplate.queryForList(
+                "SELECT identification_number FROM person WHERE hidden = false " +
+                        "GROUP BY identification_number HAVING COUNT(*) > 1 LIMIT 20",
+                String.class);
+        if (!duplicates.isEmpty()) {
+            return duplicates;
+        }
+
+        Integer column = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'person' AND column_name = ?",
+                Integer.class, COLUMN_NAME);
+        if (column == null || column == 0) {
+            jdbcTemplate.execute("ALTER TABLE person ADD COLUMN " + COLUMN_NAME + " VARCHAR(255) " +
+                    "GENERATED ALWAYS AS (CASE WHEN hidden THEN NULL ELSE identification_number END)");
+        }
+        logger.info("Zakládám unikátní index {} nad IČO aktivních osob", INDEX_NAME);
+        jdbcTemplate.execute("CREATE UNIQUE INDEX " + INDEX_NAME + " ON person (" + COLUMN_NAME + ")");
+        ready = true;
+        return List.of();
+    }
+}
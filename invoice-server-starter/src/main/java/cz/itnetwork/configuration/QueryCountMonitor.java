@@ -0,0 +1,85 @@
+package cz.itnetwork.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Detektor N+1 dotazů - počítá SQL příkazy připravené během jednoho HTTP požadavku.
+ * <p>
+ * Počet se zapisuje do metriky hibernate.request.statements podle URI endpointu, požadavek nad limitem
+ * se navíc zaloguje a započítá do hibernate.request.n_plus_one. Dotazy sekcí úvodní stránky běží
+ * na vlastních vláknech a do počtu požadavku se nezahrnují.
+ * <p>
+ * Při invoice.monitoring.strict-transactions (vývoj a testy) selže každý příkaz Hibernate mimo transakci -
+ * bez open-in-view by šlo o dotaz mimo fetch plán služby. Líné načtení mimo transakci končí
+ * LazyInitializationException už samo.
+ */
+@Component
+public class QueryCountMonitor implements StatementInspector, HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountMonitor.class);
+
+    private final ThreadLocal<int[]> statementCount = new ThreadLocal<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${invoice.monitoring.n-plus-one-threshold:20}")
+    private int threshold;
+
+    @Value("${invoice.monitoring.strict-transactions:false}")
+    private boolean strictTransactions;
+
+    @Override
+    public String inspect(String sql) {
+        if (strictTransactions && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("SQL příkaz mimo transakci služby: " + sql);
+        }
+        int[] count = statementCount.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        statementCount.set(new int[1]);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        int[] count = statementCount.get();
+        statementCount.remove();
+        if (count == null) {
+            return;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("hibernate.request.statements")
+                .description("Počet SQL příkazů na jeden HTTP požadavek")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(count[0]);
+
+        if (count[0] > threshold) {
+            meterRegistry.counter("hibernate.request.n_plus_one", "method", request.getMethod(), "uri", uri).increment();
+            logger.warn("Možný N+1 problém: {} {} provedl {} SQL příkazů (limit {})",
+                    request.getMethod(), uri, count[0], threshold);
+        }
+    }
+}
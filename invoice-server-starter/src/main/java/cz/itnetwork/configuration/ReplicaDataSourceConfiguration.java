@@ -0,0 +1,78 @@
+package cz.itnetwork.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Čtení z replik: read-only transakce (@Transactional(readOnly = true) včetně čtecích metod repository)
+ * jdou na repliky z invoice.datasource.replicas.pools, zápisy a vše mimo transakci na spring.datasource.
+ * Endpointy s ETagem čtou verzi i data z jedné databáze (viz {@link ConditionalGetInterceptor}).
+ * <p>
+ * Pooly replik se nastavují stejnými vlastnostmi jako spring.datasource.hikari (jdbc-url, username, password,
+ * maximum-pool-size, pool-name...) a mají vlastní metriky hikaricp.* se štítkem pool.
+ * Vyžaduje spring.jpa.open-in-view=false - otevřený EntityManager drží jedno spojení celý požadavek,
+ * takže by zápis mohl dostat spojení na repliku získané dřívějším čtením.
+ */
+@Configuration
+@ConditionalOnProperty(name = "invoice.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${invoice.datasource.replicas.max-lag:30s}") Duration maxLag,
+            @Value("${invoice.datasource.replicas.check-lag:true}") boolean checkLag,
+            @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException("invoice.datasource.replicas.enabled vyžaduje spring.jpa.open-in-view=false");
+        }
+        List<HikariDataSource> replicas = Binder.get(environment)
+                .bind("invoice.datasource.replicas.pools", Bindable.listOf(HikariDataSource.class))
+                .orElse(List.of());
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException("invoice.datasource.replicas.enabled vyžaduje alespoň jeden pool v invoice.datasource.replicas.pools");
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            HikariDataSource replica = replicas.get(i);
+            if (!StringUtils.hasText(replica.getPoolName())) {
+                replica.setPoolName("replica-" + (i + 1));
+            }
+            // Repliky nejsou beany, metriky poolu se proto napojují ručně
+            replica.setMetricRegistry(meterRegistry);
+            replica.setReadOnly(true);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag, checkLag, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
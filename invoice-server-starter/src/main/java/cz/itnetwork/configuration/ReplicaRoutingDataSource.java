@@ -0,0 +1,212 @@
+package cz.itnetwork.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Směrování spojení: read-only transakce na dostupné repliky (střídavě), vše ostatní na primární databázi.
+ * <p>
+ * Replika je dostupná, jen pokud poslední kontrola prošla a její zpoždění nepřekročilo limit. Dokud
+ * žádná dostupná není (i před první kontrolou), jdou i read-only transakce na primární databázi.
+ * Připnutý požadavek (viz {@link DataSourceRouting#pinTarget()}) čte celý z databáze, kterou dostal poprvé.
+ * Klíč se určuje až při získání fyzického spojení, proto musí být obalené LazyConnectionDataSourceProxy -
+ * transakční manažer si spojení bere dřív, než je transakce označená jako read-only.
+ * Pooly replik nejsou beany, zavírají se proto spolu s tímto beanem.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final boolean checkLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routedCounters = new HashMap<>();
+    private final Counter fallbackCounter;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, Duration maxLag,
+                                    boolean checkLag, MeterRegistry meterRegistry) {
+        this.maxLag = maxLag;
+        this.checkLag = checkLag;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        routedCounters.put(PRIMARY, routedCounter(meterRegistry, PRIMARY));
+        for (Replica replica : replicas) {
+            targets.put(replica.name, replica.dataSource);
+            routedCounters.put(replica.name, routedCounter(meterRegistry, replica.name));
+            Gauge.builder("invoice.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Zpoždění repliky za primární databází při poslední kontrole (NaN = neznámé)")
+                    .baseUnit("seconds")
+                    .tag("pool", replica.name)
+                    .register(meterRegistry);
+            Gauge.builder("invoice.datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .description("Zda replika přijímá read-only transakce")
+                    .tag("pool", replica.name)
+                    .register(meterRegistry);
+        }
+        fallbackCounter = Counter.builder("invoice.datasource.replica.fallback")
+                .description("Read-only spojení přesměrovaná na primární databázi, protože žádná replika nebyla dostupná")
+                .register(meterRegistry);
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String pool) {
+        return Counter.builder("invoice.datasource.routed")
+                .description("Fyzická spojení přidělená podle směrování")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = chooseTarget();
+        routedCounters.get(key).increment();
+        return key;
+    }
+
+    private String chooseTarget() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || DataSourceRouting.isPrimaryRequired()) {
+            return PRIMARY;
+        }
+        String pinned = DataSourceRouting.pinnedTarget();
+        if (pinned != null) {
+            // Vyřazená replika se nahradí primární databází, jiná replika může být ještě dál za daty požadavku
+            String target = PRIMARY.equals(pinned) || isAvailable(pinned) ? pinned : PRIMARY;
+            DataSourceRouting.rememberTarget(target);
+            return target;
+        }
+        String target = chooseReplica();
+        DataSourceRouting.rememberTarget(target);
+        return target;
+    }
+
+    private String chooseReplica() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.available) {
+                return replica.name;
+            }
+        }
+        fallbackCounter.increment();
+        return PRIMARY;
+    }
+
+    private boolean isAvailable(String name) {
+        for (Replica replica : replicas) {
+            if (replica.name.equals(name)) {
+                return replica.available;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ověří spojení a zpoždění všech replik a podle výsledku je zapne nebo vyřadí ze směrování.
+     */
+    @Scheduled(fixedDelayString = "${invoice.datasource.replicas.check-interval:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            Double lag;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                lag = checkLag ? readLagSeconds(connection) : Double.valueOf(0.0);
+            } catch (SQLException e) {
+                logger.debug("Kontrola repliky {} selhala", replica.name, e);
+                lag = null;
+            }
+            boolean available = lag != null && lag <= maxLag.toSeconds();
+            if (available != replica.available) {
+                if (available) {
+                    logger.info("Replika {} je dostupná (zpoždění {} s)", replica.name, lag);
+                } else {
+                    logger.warn("Replika {} vyřazena ze směrování, zpoždění {} s (limit {} s, null = nedostupná nebo zastavená replikace)",
+                            replica.name, lag, maxLag.toSeconds());
+                }
+            }
+            replica.lagSeconds = lag != null ? lag : Double.NaN;
+            replica.available = available;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    /**
+     * Zpoždění repliky v sekundách, null pokud replikace neběží. Server, který není replikou
+     * (např. samostatná lokální databáze v testu), má zpoždění 0.
+     */
+    protected Double readLagSeconds(Connection connection) throws SQLException {
+        // SHOW REPLICA STATUS od MySQL 8.0.22, starší servery znají jen SHOW SLAVE STATUS
+        for (String sql : List.of("SHOW REPLICA STATUS", "SHOW SLAVE STATUS")) {
+            try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+                if (!rs.next()) {
+                    return 0.0;
+                }
+                Object lag = rs.getObject(findColumn(rs.getMetaData(), "Seconds_Behind_Source", "Seconds_Behind_Master"));
+                return lag instanceof Number number ? number.doubleValue() : null;
+            } catch (SQLSyntaxErrorException e) {
+                // Zkusí se starší syntaxe
+            }
+        }
+        throw new SQLException("Stav replikace nelze zjistit (chybí oprávnění REPLICATION CLIENT?)");
+    }
+
+    private static int findColumn(ResultSetMetaData metaData, String... labels) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            for (String label : labels) {
+                if (label.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    return i;
+                }
+            }
+        }
+        throw new SQLException("Výpis stavu replikace neobsahuje sloupec " + String.join(" ani ", labels));
+    }
+
+    /**
+     * Jedna replika a výsledek její poslední kontroly.
+     */
+    private static class Replica {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean available;
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(HikariDataSource dataSource) {
+            this.name = dataSource.getPoolName();
+            this.dataSource = dataSource;
+        }
+    }
+}
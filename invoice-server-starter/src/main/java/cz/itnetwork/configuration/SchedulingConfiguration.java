@@ -0,0 +1,12 @@
+package cz.itnetwork.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Plánované úlohy serveru (archivace starých faktur). Úloha s cron výrazem "-" je vypnutá.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
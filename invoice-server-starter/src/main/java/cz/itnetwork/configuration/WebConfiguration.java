@@ -1,14 +1,22 @@
 package cz.itnetwork.configuration;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 @EnableWebMvc
 public class WebConfiguration implements WebMvcConfigurer {
 
+    @Autowired
+    private QueryCountMonitor queryCountMonitor;
+
+    @Autowired
+    private ConditionalGetInterceptor conditionalGetInterceptor;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         WebMvcConfigurer.super.addCorsMappings(registry);
@@ -17,4 +25,10 @@ public class WebConfiguration implements WebMvcConfigurer {
                 .allowedOriginPatterns("**")
                 .allowCredentials(true);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(queryCountMonitor).addPathPatterns("/api/**");
+        registry.addInterceptor(conditionalGetInterceptor).addPathPatterns("/api/**");
+    }
 }
@@ -0,0 +1,5 @@
+package cz.itnetwork.constant;
+
+public enum AnalyticsDimension {
+    SELLER, BUYER, PRODUCT, MONTH
+}
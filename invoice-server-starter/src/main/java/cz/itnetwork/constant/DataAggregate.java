@@ -0,0 +1,8 @@
+package cz.itnetwork.constant;
+
+/**
+ * Skupiny dat s vlastním čítačem verzí pro ETag odpovědí.
+ */
+public enum DataAggregate {
+    INVOICES, PERSONS
+}
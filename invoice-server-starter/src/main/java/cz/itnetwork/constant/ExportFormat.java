@@ -0,0 +1,37 @@
+package cz.itnetwork.constant;
+
+/**
+ * Formát exportu faktur, přípona souboru je název formátu malými písmeny.
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson;charset=UTF-8"),
+    CSV("text/csv;charset=UTF-8"),
+    CBOR("application/cbor"),
+    SMILE("application/x-jackson-smile");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Formát z parametru požadavku bez ohledu na velikost písmen.
+     */
+    public static ExportFormat parse(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Nepodporovaný formát exportu: " + value);
+    }
+}
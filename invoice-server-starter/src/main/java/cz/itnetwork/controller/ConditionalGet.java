@@ -0,0 +1,27 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.constant.DataAggregate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Endpoint odpovídá ETagem z verzí zadaných dat a na shodný If-None-Match vrátí 304 bez volání metody.
+ * Hlavička Cache-Control se bere z invoice.http-cache.cache-control.{cacheName}, jinak z výchozí hodnoty.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+
+    /**
+     * Data, na kterých odpověď závisí - zápis do kterékoli skupiny změní ETag.
+     */
+    DataAggregate[] value();
+
+    /**
+     * Klíč endpointu v konfiguraci Cache-Control.
+     */
+    String cacheName();
+}
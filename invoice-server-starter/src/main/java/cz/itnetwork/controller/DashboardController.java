@@ -0,0 +1,22 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.dto.DashboardDTO;
+import cz.itnetwork.service.DashboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    // Statistiky faktur a osob, produkty a osoby jedním požadavkem
+    @GetMapping
+    public DashboardDTO getDashboard() {
+        return dashboardService.getDashboard();
+    }
+}
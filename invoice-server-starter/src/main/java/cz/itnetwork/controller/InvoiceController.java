@@ -1,16 +1,44 @@
 package cz.itnetwork.controller;
 
+import cz.itnetwork.constant.AnalyticsDimension;
+import cz.itnetwork.constant.AnalyticsMetric;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.constant.ExportFormat;
+import cz.itnetwork.constant.StatisticsGranularity;
+import cz.itnetwork.dto.InvoiceAnalyticsGroupDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsStatusDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsSummaryDTO;
 import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceImportResultDTO;
+import cz.itnetwork.dto.InvoiceNumberGapsDTO;
+import cz.itnetwork.dto.InvoicePeriodStatisticsDTO;
+import cz.itnetwork.dto.InvoiceRollupStatusDTO;
 import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.dto.InvoiceSummaryDTO;
+import cz.itnetwork.dto.InvoiceWindowDTO;
+import cz.itnetwork.dto.PersonRollupDTO;
+import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.dto.ProductDTO;
+import cz.itnetwork.dto.ProductRollupDTO;
+import cz.itnetwork.entity.filter.InvoiceAnalyticsFilter;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import cz.itnetwork.service.InvoiceAnalyticsService;
+import cz.itnetwork.service.InvoiceImportService;
+import cz.itnetwork.service.InvoiceRollupService;
 import cz.itnetwork.service.InvoiceService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.YearMonth;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/invoices")
@@ -19,17 +47,61 @@ public class InvoiceController {
     @Autowired
     private InvoiceService invoiceService;
 
+    @Autowired
+    private InvoiceImportService invoiceImportService;
+
+    @Autowired
+    private InvoiceRollupService invoiceRollupService;
+
+    @Autowired
+    private InvoiceAnalyticsService invoiceAnalyticsService;
+
     @PostMapping
     public InvoiceDTO addInvoice(@RequestBody InvoiceDTO invoiceDTO) {
         return invoiceService.addInvoice(invoiceDTO);
     }
 
+    // Hromadný import - NDJSON (application/x-ndjson) nebo CSV s hlavičkou (text/csv)
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public InvoiceImportResultDTO importInvoicesNdjson(InputStream body) throws IOException {
+        return invoiceImportService.importNdjson(body);
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public InvoiceImportResultDTO importInvoicesCsv(InputStream body) throws IOException {
+        return invoiceImportService.importCsv(body);
+    }
+
     @GetMapping
-    public Page<InvoiceDTO> getInvoices(@RequestParam Map<String, String> filterParams, Pageable pageable) {
-        return invoiceService.getInvoices(filterParams, pageable);
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.list")
+    public Page<InvoiceSummaryDTO> getInvoices(@Valid InvoiceFilter filter, Pageable pageable) {
+        return invoiceService.getInvoices(filter, pageable);
+    }
+
+    // Stránkování kurzorem, první stránka se načte s prázdným parametrem cursor
+    @GetMapping(params = "cursor")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.list")
+    public InvoiceWindowDTO getInvoicesByCursor(@Valid InvoiceFilter filter,
+                                                @RequestParam String cursor,
+                                                Pageable pageable) {
+        return invoiceService.getInvoicesByCursor(filter, cursor, pageable);
+    }
+
+    // Export celé knihy faktur se stejnými filtry jako seznam, formát ndjson (výchozí), csv, cbor nebo smile
+    @GetMapping("/export")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.export")
+    public void exportInvoices(@Valid InvoiceFilter filter,
+                               @RequestParam(defaultValue = "ndjson") String format,
+                               HttpServletResponse response) throws IOException {
+        // Neznámý formát skončí 400 dřív, než se nastaví hlavičky
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoices." + exportFormat.getExtension());
+        invoiceService.exportInvoices(filter, exportFormat, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.detail")
     public InvoiceDTO getInvoiceDetail(@PathVariable Long id) {
         return invoiceService.getInvoiceDetail(id);
     }
@@ -46,17 +118,152 @@ public class InvoiceController {
     }
 
     @GetMapping("/statistics")
+    @ConditionalGet(value = DataAggregate.INVOICES, cacheName = "invoices.statistics")
     public InvoiceStatisticsDTO getInvoiceStatistics() {
         return invoiceService.getInvoiceStatistics();
     }
 
+    /**
+     * Statistiky za období, např. měsíční řada za rok, čtvrtletí do data nebo meziroční srovnání.
+     */
+    @GetMapping("/statistics/periods")
+    public List<InvoicePeriodStatisticsDTO> getPeriodStatistics(
+            @RequestParam YearMonth from,
+            @RequestParam(required = false) YearMonth to,
+            @RequestParam(defaultValue = "MONTH") StatisticsGranularity granularity,
+            @RequestParam(defaultValue = "false") boolean yearOverYear) {
+        return invoiceService.getPeriodStatistics(from, to != null ? to : YearMonth.now(), granularity, yearOverYear);
+    }
+
+    @PostMapping("/statistics/rebuild")
+    public int rebuildStatistics() {
+        return invoiceService.rebuildStatistics();
+    }
+
+    // Měsíční přehledy podle prodávajícího, kupujícího a produktu - čtou jen předpočítané součty
+    @GetMapping("/rollups/sellers")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.rollups")
+    public List<PersonRollupDTO> getSellerRollups(@RequestParam YearMonth from,
+                                                  @RequestParam(required = false) YearMonth to,
+                                                  @RequestParam(required = false) Long personId,
+                                                  @RequestParam(defaultValue = "false") boolean monthly) {
+        return invoiceRollupService.getSellerRollups(from, to != null ? to : YearMonth.now(), personId, monthly);
+    }
+
+    @GetMapping("/rollups/buyers")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.rollups")
+    public List<PersonRollupDTO> getBuyerRollups(@RequestParam YearMonth from,
+                                                 @RequestParam(required = false) YearMonth to,
+                                                 @RequestParam(required = false) Long personId,
+                                                 @RequestParam(defaultValue = "false") boolean monthly) {
+        return invoiceRollupService.getBuyerRollups(from, to != null ? to : YearMonth.now(), personId, monthly);
+    }
+
+    @GetMapping("/rollups/products")
+    @ConditionalGet(value = DataAggregate.INVOICES, cacheName = "invoices.rollups")
+    public List<ProductRollupDTO> getProductRollups(@RequestParam YearMonth from,
+                                                    @RequestParam(required = false) YearMonth to,
+                                                    @RequestParam(required = false) String product,
+                                                    @RequestParam(defaultValue = "false") boolean monthly) {
+        return invoiceRollupService.getProductRollups(from, to != null ? to : YearMonth.now(), product, monthly);
+    }
+
+    @GetMapping("/rollups/status")
+    public InvoiceRollupStatusDTO getRollupStatus() {
+        return invoiceRollupService.getStatus();
+    }
+
+    @PostMapping("/rollups/refresh")
+    public int refreshRollups() {
+        return invoiceRollupService.refresh();
+    }
+
+    @PostMapping("/rollups/rebuild")
+    public int rebuildRollups() {
+        return invoiceRollupService.rebuild();
+    }
+
+    // Analytické dotazy nad snapshotem faktur v paměti (invoice.analytics.enabled)
+    @GetMapping("/analytics/summary")
+    @ConditionalGet(value = DataAggregate.INVOICES, cacheName = "invoices.analytics")
+    public InvoiceAnalyticsSummaryDTO getAnalyticsSummary(@Valid InvoiceAnalyticsFilter filter) {
+        return invoiceAnalyticsService.summarize(filter);
+    }
+
+    @GetMapping("/analytics/groups")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.analytics")
+    public List<InvoiceAnalyticsGroupDTO> getAnalyticsGroups(@RequestParam AnalyticsDimension dimension,
+                                                             @Valid InvoiceAnalyticsFilter filter) {
+        return invoiceAnalyticsService.group(dimension, filter);
+    }
+
+    @GetMapping("/analytics/top")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.analytics")
+    public List<InvoiceAnalyticsGroupDTO> getAnalyticsTop(@RequestParam AnalyticsDimension dimension,
+                                                          @RequestParam(defaultValue = "PRICE") AnalyticsMetric metric,
+                                                          @RequestParam(defaultValue = "10") int limit,
+                                                          @Valid InvoiceAnalyticsFilter filter) {
+        return invoiceAnalyticsService.top(dimension, metric, limit, filter);
+    }
+
+    @GetMapping("/analytics/statistics")
+    @ConditionalGet(value = DataAggregate.INVOICES, cacheName = "invoices.analytics")
+    public InvoiceStatisticsDTO getAnalyticsStatistics() {
+        return invoiceAnalyticsService.getInvoiceStatistics();
+    }
+
+    @GetMapping("/analytics/persons/statistics")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "invoices.analytics")
+    public List<PersonStatisticsDTO> getAnalyticsPersonStatistics(
+            @RequestParam(defaultValue = "id") String sortColumn,
+            @RequestParam(defaultValue = "asc") String sortDirection,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return invoiceAnalyticsService.getPersonStatistics(sortColumn, sortDirection, page, size);
+    }
+
+    @GetMapping("/analytics/status")
+    public InvoiceAnalyticsStatusDTO getAnalyticsStatus() {
+        return invoiceAnalyticsService.getStatus();
+    }
+
+    @PostMapping("/analytics/reload")
+    public int reloadAnalytics() {
+        return invoiceAnalyticsService.reload();
+    }
+
+    @PostMapping("/archive")
+    public int archiveInvoices() {
+        return invoiceService.archiveInvoices();
+    }
+
     @GetMapping("/next-number")
     public String getNextInvoiceNumber() {
         return invoiceService.getNextInvoiceNumber();
     }
 
+    @GetMapping("/number-gaps")
+    public InvoiceNumberGapsDTO getInvoiceNumberGaps(@RequestParam(required = false) YearMonth month) {
+        return invoiceService.getInvoiceNumberGaps(month != null ? month : YearMonth.now());
+    }
+
     @GetMapping("/products") // Nový endpoint pro produkty
+    @ConditionalGet(value = DataAggregate.INVOICES, cacheName = "invoices.products")
     public List<String> getProducts() {
         return invoiceService.getProducts();
     }
+
+    // Našeptávač produktů podle začátku názvu
+    @GetMapping(value = "/products", params = "prefix")
+    @ConditionalGet(value = DataAggregate.INVOICES, cacheName = "invoices.products")
+    public List<ProductDTO> searchProducts(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "10") int size) {
+        return invoiceService.searchProducts(prefix, page, size);
+    }
+
+    @PostMapping("/products/rebuild")
+    public int rebuildProducts() {
+        return invoiceService.rebuildProducts();
+    }
 }
\ No newline at end of file
@@ -1,12 +1,21 @@
 package cz.itnetwork.controller;
 
-import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.dto.PersonCacheStatisticsDTO;
 import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonInvoicesDTO;
 import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.dto.PersonSyncResultDTO;
+import cz.itnetwork.entity.filter.InvoiceFilter;
 import cz.itnetwork.service.PersonService;
+import cz.itnetwork.service.PersonSyncService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -16,12 +25,23 @@ public class PersonController {
     @Autowired
     private PersonService personService;
 
+    @Autowired
+    private PersonSyncService personSyncService;
+
     @PostMapping
     public PersonDTO addPerson(@RequestBody PersonDTO personDTO) {
         return personService.addPerson(personDTO);
     }
 
+    // Hromadné založení a úprava osob podle IČO - NDJSON (application/x-ndjson), jeden PersonDTO na řádek
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public PersonSyncResultDTO syncPersons(InputStream body,
+                                           @RequestParam(defaultValue = "false") boolean hideMissing) throws IOException {
+        return personSyncService.syncNdjson(body, hideMissing);
+    }
+
     @GetMapping
+    @ConditionalGet(value = DataAggregate.PERSONS, cacheName = "persons.list")
     public List<PersonDTO> getAllPersons() {
         return personService.getAll();
     }
@@ -32,6 +52,7 @@ public class PersonController {
     }
 
     @GetMapping("/{id}")
+    @ConditionalGet(value = DataAggregate.PERSONS, cacheName = "persons.detail")
     public PersonDTO getPersonById(@PathVariable Long id) {
         return personService.getPersonById(id);
     }
@@ -42,21 +63,42 @@ public class PersonController {
     }
 
     @GetMapping("/statistics")
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "persons.statistics")
     public List<PersonStatisticsDTO> getPersonStatistics(
             @RequestParam(defaultValue = "id") String sortColumn,
-            @RequestParam(defaultValue = "asc") String sortDirection) {
-        return personService.getPersonStatistics(sortColumn, sortDirection);
+            @RequestParam(defaultValue = "asc") String sortDirection,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return personService.getPersonStatistics(sortColumn, sortDirection, page, size);
+    }
+
+    @PostMapping("/statistics/rebuild")
+    public int rebuildPersonStatistics() {
+        return personService.rebuildPersonStatistics();
+    }
+
+    @GetMapping("/cache/statistics")
+    public PersonCacheStatisticsDTO getPersonCacheStatistics() {
+        return personService.getPersonCacheStatistics();
     }
 
-    // NOVÝ ENDPOINT pro vystavené faktury
+    // NOVÝ ENDPOINT pro vystavené faktury, po stránkách (page, size, sort) s filtry seznamu faktur
     @GetMapping("/{identificationNumber}/sales")
-    public List<InvoiceDTO> getSalesByPerson(@PathVariable String identificationNumber) {
-        return personService.getSalesByPerson(identificationNumber);
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "persons.invoices")
+    public PersonInvoicesDTO getSalesByPerson(@PathVariable String identificationNumber,
+                                              @Valid InvoiceFilter filter,
+                                              Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean totals) {
+        return personService.getSalesByPerson(identificationNumber, filter, pageable, totals);
     }
 
-    // NOVÝ ENDPOINT pro přijaté faktury
+    // NOVÝ ENDPOINT pro přijaté faktury, po stránkách (page, size, sort) s filtry seznamu faktur
     @GetMapping("/{identificationNumber}/purchases")
-    public List<InvoiceDTO> getPurchasesByPerson(@PathVariable String identificationNumber) {
-        return personService.getPurchasesByPerson(identificationNumber);
+    @ConditionalGet(value = {DataAggregate.INVOICES, DataAggregate.PERSONS}, cacheName = "persons.invoices")
+    public PersonInvoicesDTO getPurchasesByPerson(@PathVariable String identificationNumber,
+                                                  @Valid InvoiceFilter filter,
+                                                  Pageable pageable,
+                                                  @RequestParam(defaultValue = "false") boolean totals) {
+        return personService.getPurchasesByPerson(identificationNumber, filter, pageable, totals);
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package cz.itnetwork.controller.advice;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+// Neplatné parametry filtrů (nepřevoditelná hodnota nebo porušené omezení) vrací 400 se seznamem chyb
+@ControllerAdvice
+public class BindExceptionAdvice {
+
+    @ExceptionHandler(BindException.class)
+    public ResponseEntity<String> handleBindException(BindException e) {
+        String message = e.getAllErrors().stream()
+                .map(BindExceptionAdvice::describe)
+                .collect(Collectors.joining("\n"));
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(message);
+    }
+
+    private static String describe(ObjectError error) {
+        if (error instanceof FieldError fieldError && fieldError.isBindingFailure()) {
+            return "Neplatná hodnota parametru " + fieldError.getField() + ": " + fieldError.getRejectedValue();
+        }
+        return error.getDefaultMessage();
+    }
+
+}
@@ -1,13 +1,17 @@
 package cz.itnetwork.controller.advice;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.webjars.NotFoundException;
 
+// NotFoundException dědí z IllegalArgumentException, proto musí mít přednost před IllegalArgumentExceptionAdvice
 @ControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class EntityNotFoundExceptionAdvice {
 
     @ExceptionHandler({NotFoundException.class, EntityNotFoundException.class})
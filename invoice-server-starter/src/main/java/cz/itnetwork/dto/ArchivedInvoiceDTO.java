@@ -0,0 +1,27 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Faktura v archivu - prodávající a kupující jen jako ID, údaje osob se doplní při čtení.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedInvoiceDTO {
+
+    private Long id;
+    private String invoiceNumber;
+    private Long sellerId;
+    private Long buyerId;
+    private LocalDate issued;
+    private LocalDate dueDate;
+    private String product;
+    private Long price;
+    private int vat;
+    private String note;
+}
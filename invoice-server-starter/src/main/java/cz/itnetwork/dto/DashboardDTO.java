@@ -0,0 +1,24 @@
+package cz.itnetwork.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data úvodní stránky v jedné odpovědi.
+ * Sekce, která nestihla časový limit nebo skončila chybou, zůstane null a má záznam v errors.
+ */
+@Data
+@NoArgsConstructor
+public class DashboardDTO {
+
+    private InvoiceStatisticsDTO invoiceStatistics;
+    private List<PersonStatisticsDTO> personStatistics;
+    private List<String> products;
+    private List<PersonDTO> persons;
+    // Název sekce -> "timeout" nebo "error"
+    private Map<String, String> errors = new LinkedHashMap<>();
+}
@@ -0,0 +1,25 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+/**
+ * Skupina analytického dotazu. Vyplněný je jen klíč zvoleného rozměru:
+ * osoba (personId, name), produkt, nebo měsíc (null u faktur bez data vystavení).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceAnalyticsGroupDTO {
+
+    private Long personId;
+    private String name;
+    private String product;
+    private YearMonth month;
+    private long invoicesCount;
+    private long priceSum;
+    private long vatSum;
+}
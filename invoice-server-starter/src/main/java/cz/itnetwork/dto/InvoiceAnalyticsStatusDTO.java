@@ -0,0 +1,24 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stav snapshotu faktur v paměti - kdy a jak dlouho se načítal a kolik drží faktur a hodnot ve slovnících.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceAnalyticsStatusDTO {
+
+    private boolean enabled;
+    private boolean loaded;
+    private LocalDateTime loadedAt;
+    private long loadMillis;
+    private int invoicesCount;
+    private int personsCount;
+    private int productsCount;
+}
@@ -0,0 +1,18 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Počet a součty faktur vybraných filtrem analytického dotazu.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceAnalyticsSummaryDTO {
+
+    private long invoicesCount;
+    private long priceSum;
+    private long vatSum;
+}
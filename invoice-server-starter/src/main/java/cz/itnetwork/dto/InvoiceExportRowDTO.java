@@ -0,0 +1,33 @@
+package cz.itnetwork.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Plochý řádek exportu faktur. Názvy sloupců odpovídají importu (InvoiceImportRowDTO),
+ * takže export lze znovu naimportovat.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonPropertyOrder({"id", "invoiceNumber", "sellerIdentificationNumber", "sellerName",
+        "buyerIdentificationNumber", "buyerName", "issued", "dueDate", "product", "price", "vat", "note"})
+public class InvoiceExportRowDTO {
+
+    private Long id;
+    private String invoiceNumber;
+    private String sellerIdentificationNumber;
+    private String sellerName;
+    private String buyerIdentificationNumber;
+    private String buyerName;
+    private LocalDate issued;
+    private LocalDate dueDate;
+    private String product;
+    private Long price;
+    private int vat;
+    private String note;
+}
@@ -0,0 +1,27 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class InvoiceImportResultDTO {
+
+    private long imported;
+    private long failed;
+    // Chyby jednotlivých řádků, výpis je omezený, počet "failed" je vždy úplný
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+
+        private long row;
+        private String message;
+    }
+}
@@ -0,0 +1,25 @@
+package cz.itnetwork.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Jeden řádek hromadného importu faktur (NDJSON objekt nebo řádek CSV se stejnými názvy sloupců).
+ * Prodávající a kupující se určují podle IČO, číslo faktury je volitelné.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class InvoiceImportRowDTO {
+
+    private String invoiceNumber;
+    private String sellerIdentificationNumber;
+    private String buyerIdentificationNumber;
+    private LocalDate issued;
+    private LocalDate dueDate;
+    private String product;
+    private Long price;
+    private int vat;
+    private String note;
+}
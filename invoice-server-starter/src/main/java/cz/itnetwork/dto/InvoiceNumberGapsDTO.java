@@ -0,0 +1,17 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceNumberGapsDTO {
+
+    private String period;
+    private long lastAllocated;
+    private List<String> missingNumbers;
+}
@@ -0,0 +1,26 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoicePeriodStatisticsDTO {
+
+    // Označení období, např. 2025-08, 2025-Q3 nebo 2025
+    private String period;
+    private YearMonth from;
+    private YearMonth to;
+    private long invoicesCount;
+    private long priceSum;
+    private long vatSum;
+
+    // Stejné období o rok dříve, vyplní se jen při meziročním srovnání
+    private Long previousYearInvoicesCount;
+    private Long previousYearPriceSum;
+    private Long previousYearVatSum;
+}
@@ -0,0 +1,20 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stav měsíčních přehledů - do jaké změny jsou aktuální a kolik změn ještě čeká na zpracování.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceRollupStatusDTO {
+
+    private Long lastChangeId;
+    private LocalDateTime updatedAt;
+    private long pendingChanges;
+}
@@ -0,0 +1,49 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Řádek seznamu faktur - bez poznámky a s prodávajícím a kupujícím zúženými na ID a název.
+ * Plní se přímo z dotazu (konstruktorová projekce), úplné údaje vrací detail faktury.
+ */
+@Data
+@NoArgsConstructor
+public class InvoiceSummaryDTO {
+
+    private Long id;
+    private String invoiceNumber;
+    private PersonSummary seller;
+    private PersonSummary buyer;
+    private LocalDate issued;
+    private LocalDate dueDate;
+    private String product;
+    private Long price;
+    private int vat;
+
+    public InvoiceSummaryDTO(Long id, String invoiceNumber, LocalDate issued, LocalDate dueDate,
+                             String product, Long price, int vat,
+                             Long sellerId, String sellerName, Long buyerId, String buyerName) {
+        this.id = id;
+        this.invoiceNumber = invoiceNumber;
+        this.issued = issued;
+        this.dueDate = dueDate;
+        this.product = product;
+        this.price = price;
+        this.vat = vat;
+        this.seller = sellerId != null ? new PersonSummary(sellerId, sellerName) : null;
+        this.buyer = buyerId != null ? new PersonSummary(buyerId, buyerName) : null;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PersonSummary {
+
+        private Long id;
+        private String name;
+    }
+}
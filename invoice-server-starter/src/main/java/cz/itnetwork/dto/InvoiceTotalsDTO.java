@@ -0,0 +1,18 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Počet, součet cen a součet DPH faktur vybraných filtrem.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceTotalsDTO {
+
+    private long invoicesCount;
+    private long priceSum;
+    private long vatSum;
+}
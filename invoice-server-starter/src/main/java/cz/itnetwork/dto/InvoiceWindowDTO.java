@@ -0,0 +1,21 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Jedna stránka faktur při stránkování kurzorem.
+ * Kurzory jsou neprůhledné řetězce, null znamená, že tím směrem už nic není.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceWindowDTO {
+
+    private List<InvoiceDTO> content;
+    private String next;
+    private String prev;
+}
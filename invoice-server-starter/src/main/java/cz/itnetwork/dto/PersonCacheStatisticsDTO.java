@@ -0,0 +1,21 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonCacheStatisticsDTO {
+
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRate;
+
+    // Převod IČO -> ID osoby
+    private long identificationNumberHits;
+    private long identificationNumberMisses;
+}
@@ -0,0 +1,18 @@
+package cz.itnetwork.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+/**
+ * Stránka vystavených nebo přijatých faktur osoby, součty za všechny faktury filtru jen na požádání (jinak null).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonInvoicesDTO {
+
+    private Page<InvoiceSummaryDTO> invoices;
+    private InvoiceTotalsDTO totals;
+}
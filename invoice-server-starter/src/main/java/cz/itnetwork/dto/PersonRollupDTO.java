@@ -0,0 +1,36 @@
+package cz.itnetwork.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+/**
+ * Řádek přehledu faktur podle prodávajícího nebo kupujícího.
+ * Plní se přímo z dotazu nad měsíčními přehledy, month je null u součtu za celý rozsah.
+ */
+@Data
+@NoArgsConstructor
+public class PersonRollupDTO {
+
+    private Long personId;
+    private String name;
+    private YearMonth month;
+    private long invoicesCount;
+    private long priceSum;
+    private long vatSum;
+
+    public PersonRollupDTO(Long personId, String name, Long invoicesCount, Long priceSum, Long vatSum) {
+        this(personId, name, null, invoicesCount, priceSum, vatSum);
+    }
+
+    public PersonRollupDTO(Long personId, String name, Integer period, Long invoicesCount, Long priceSum, Long vatSum) {
+        this.personId = personId;
+        this.name = name;
+        // Období yyyyMM, faktury bez data vystavení (období 0) nemají měsíc
+        this.month = period != null && period != 0 ? YearMonth.of(period / 100, period % 100) : null;
+        this.invoicesCount = invoicesCount;
+        this.priceSum = priceSum;
+        this.vatSum = vatSum;
+    }
+}
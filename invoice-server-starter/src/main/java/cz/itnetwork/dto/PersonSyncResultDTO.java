@@ -0,0 +1,21 @@
+package cz.itnetwork.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class PersonSyncResultDTO {
+
+    private long inserted;
+    private long updated;
+    private long unchanged;
+    // Aktivní osoby, které ve vstupu chyběly a byly skryty (jen při hideMissing)
+    private long hidden;
+    private long failed;
+    // Chyby jednotlivých řádků, výpis je omezený, počet "failed" je vždy úplný
+    private List<InvoiceImportResultDTO.RowError> errors = new ArrayList<>();
+}
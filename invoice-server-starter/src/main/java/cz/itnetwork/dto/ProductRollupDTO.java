@@ -0,0 +1,34 @@
+package cz.itnetwork.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+/**
+ * Řádek přehledu faktur podle produktu.
+ * Plní se přímo z dotazu nad měsíčními přehledy, month je null u součtu za celý rozsah.
+ */
+@Data
+@NoArgsConstructor
+public class ProductRollupDTO {
+
+    private String product;
+    private YearMonth month;
+    private long invoicesCount;
+    private long priceSum;
+    private long vatSum;
+
+    public ProductRollupDTO(String product, Long invoicesCount, Long priceSum, Long vatSum) {
+        this(product, null, invoicesCount, priceSum, vatSum);
+    }
+
+    public ProductRollupDTO(String product, Integer period, Long invoicesCount, Long priceSum, Long vatSum) {
+        this.product = product;
+        // Období yyyyMM, faktury bez data vystavení (období 0) nemají měsíc
+        this.month = period != null && period != 0 ? YearMonth.of(period / 100, period % 100) : null;
+        this.invoicesCount = invoicesCount;
+        this.priceSum = priceSum;
+        this.vatSum = vatSum;
+    }
+}
@@ -0,0 +1,30 @@
+package cz.itnetwork.entity;
+
+import cz.itnetwork.constant.DataAggregate;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Verze jedné skupiny dat pro ETag, zvyšuje se ve stejné transakci jako zápis dat.
+ * Chybějící řádek znamená verzi 0, zakládá se prvním zápisem.
+ */
+@Entity
+@Table(name = "data_version")
+@Getter
+@Setter
+public class DataVersionEntity {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private DataAggregate aggregate;
+
+    @Column(nullable = false)
+    private long version;
+}
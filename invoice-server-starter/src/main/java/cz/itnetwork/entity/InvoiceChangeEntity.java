@@ -0,0 +1,43 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Změna faktury čekající na promítnutí do měsíčních přehledů.
+ * Zapisuje se ve stejné transakci jako faktura: přidání +1, smazání -1, úprava jako dvojice -1/+1.
+ * Úloha přehledů řádky zpracuje a smaže.
+ */
+@Entity
+@Table(name = "invoice_change")
+@Getter
+@Setter
+public class InvoiceChangeEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // yyyyMM, faktury bez data vystavení mají období 0
+    @Column(nullable = false)
+    private int period;
+
+    private Long sellerId;
+    private Long buyerId;
+    private String product;
+
+    @Column(nullable = false)
+    private int invoicesCount;
+
+    @Column(nullable = false)
+    private long priceSum;
+
+    @Column(nullable = false)
+    private long vatSum;
+}
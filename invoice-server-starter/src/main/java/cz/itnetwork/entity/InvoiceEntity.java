@@ -1,15 +1,26 @@
 package cz.itnetwork.entity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 
 import java.time.LocalDate;
 
 @Entity
+// Rozsahy podle data vystavení (filtry, roční součty, archivace), prefix čísla faktury (číselná řada měsíce)
+// a historie faktur osoby v rozsahu dat (slouží i cizím klíčům osob)
+@Table(indexes = {
+        @Index(name = "idx_invoice_issued", columnList = "issued, id"),
+        @Index(name = "idx_invoice_number", columnList = "invoice_number"),
+        @Index(name = "idx_invoice_seller_issued", columnList = "seller_id, issued"),
+        @Index(name = "idx_invoice_buyer_issued", columnList = "buyer_id, issued")
+})
 public class InvoiceEntity {
 
     @Id
@@ -18,11 +29,12 @@ public class InvoiceEntity {
 
     private String invoiceNumber;
 
-    @ManyToOne
+    // Osoby se načítají jen podle fetch plánu služby (fetch join / entity graph), ne ke každé faktuře
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id")
     private PersonEntity seller;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "buyer_id")
     private PersonEntity buyer;
 
@@ -0,0 +1,26 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Číselná řada faktur pro jeden měsíc (období ve tvaru yyyyMM).
+ * Drží poslední přidělené pořadové číslo, takže další číslo nevyžaduje prohledání faktur.
+ */
+@Entity
+@Table(name = "invoice_number_sequence")
+@Getter
+@Setter
+public class InvoiceNumberSequenceEntity {
+
+    @Id
+    @Column(length = 6)
+    private String period;
+
+    @Column(name = "last_sequence", nullable = false)
+    private long lastValue;
+}
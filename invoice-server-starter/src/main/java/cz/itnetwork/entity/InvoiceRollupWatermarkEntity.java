@@ -0,0 +1,33 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stav měsíčních přehledů - poslední promítnutá změna a čas posledního zpracování.
+ * Chybějící řádek znamená, že přehledy ještě nebyly nikdy sestaveny.
+ */
+@Entity
+@Table(name = "invoice_rollup_watermark")
+@Getter
+@Setter
+public class InvoiceRollupWatermarkEntity {
+
+    public static final String ROLLUPS = "rollups";
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(nullable = false)
+    private long lastChangeId;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,33 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Průběžně udržované součty faktur za jeden měsíc.
+ * Období má tvar yyyyMM jako číslo (např. 202508), faktury bez data vystavení patří do období 0.
+ */
+@Entity
+@Table(name = "invoice_statistics_bucket")
+@Getter
+@Setter
+public class InvoiceStatisticsBucketEntity {
+
+    public static final int UNKNOWN_PERIOD = 0;
+
+    @Id
+    private Integer period;
+
+    @Column(nullable = false)
+    private long invoicesCount;
+
+    @Column(nullable = false)
+    private long priceSum;
+
+    @Column(nullable = false)
+    private long vatSum;
+}
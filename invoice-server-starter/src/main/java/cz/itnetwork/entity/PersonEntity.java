@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity(name = "person")
+@Table(indexes = @Index(name = "idx_person_identification_number", columnList = "identification_number, hidden"))
 @Getter
 @Setter
 public class PersonEntity {
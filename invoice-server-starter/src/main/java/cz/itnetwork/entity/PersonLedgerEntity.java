@@ -0,0 +1,37 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Materializovaná kniha tržeb a nákladů - jeden řádek na osobu.
+ * Udržuje se v InvoiceServiceImpl při každém zápisu faktury, statistiky osob čtou pouze tuto tabulku.
+ */
+@Entity
+@Table(name = "person_ledger")
+@Getter
+@Setter
+public class PersonLedgerEntity {
+
+    @Id
+    @Column(name = "person_id")
+    private Long personId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "person_id")
+    private PersonEntity person;
+
+    @Column(nullable = false)
+    private long revenue;
+
+    @Column(nullable = false)
+    private long expenses;
+
+    @Column(nullable = false)
+    private long salesCount;
+
+    @Column(nullable = false)
+    private long purchasesCount;
+}
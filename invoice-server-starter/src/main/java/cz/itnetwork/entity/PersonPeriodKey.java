@@ -0,0 +1,19 @@
+package cz.itnetwork.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Klíč měsíčních přehledů podle osoby - období (yyyyMM) a ID osoby.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonPeriodKey implements Serializable {
+
+    private Integer period;
+    private Long personId;
+}
@@ -0,0 +1,26 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Katalog produktů použitých na fakturách včetně počtu použití.
+ * Unikátní index na názvu obslouží jak vyhledání podle prefixu, tak řazení podle názvu.
+ */
+@Entity
+@Table(name = "product", uniqueConstraints = @UniqueConstraint(name = "uk_product_name", columnNames = "name"))
+@Getter
+@Setter
+public class ProductEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private long usageCount;
+}
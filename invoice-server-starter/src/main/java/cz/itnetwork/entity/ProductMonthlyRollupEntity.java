@@ -0,0 +1,36 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Měsíční přehled faktur podle produktu - počet faktur, součet cen a DPH za měsíc (yyyyMM).
+ */
+@Entity
+@Table(name = "product_monthly_rollup")
+@IdClass(ProductPeriodKey.class)
+@Getter
+@Setter
+public class ProductMonthlyRollupEntity {
+
+    @Id
+    private Integer period;
+
+    @Id
+    @Column(nullable = false)
+    private String product;
+
+    @Column(nullable = false)
+    private long invoicesCount;
+
+    @Column(nullable = false)
+    private long priceSum;
+
+    @Column(nullable = false)
+    private long vatSum;
+}
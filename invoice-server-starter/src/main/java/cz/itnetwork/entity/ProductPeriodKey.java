@@ -0,0 +1,19 @@
+package cz.itnetwork.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Klíč měsíčního přehledu podle produktu - období (yyyyMM) a název produktu.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPeriodKey implements Serializable {
+
+    private Integer period;
+    private String product;
+}
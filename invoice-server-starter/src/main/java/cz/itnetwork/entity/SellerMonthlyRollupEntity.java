@@ -0,0 +1,37 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Měsíční přehled faktur podle prodávajícího - počet faktur, součet cen a DPH za měsíc (yyyyMM).
+ */
+@Entity
+@Table(name = "seller_monthly_rollup", indexes = @Index(name = "idx_seller_rollup_person", columnList = "person_id, period"))
+@IdClass(PersonPeriodKey.class)
+@Getter
+@Setter
+public class SellerMonthlyRollupEntity {
+
+    @Id
+    private Integer period;
+
+    @Id
+    @Column(name = "person_id")
+    private Long personId;
+
+    @Column(nullable = false)
+    private long invoicesCount;
+
+    @Column(nullable = false)
+    private long priceSum;
+
+    @Column(nullable = false)
+    private long vatSum;
+}
@@ -0,0 +1,42 @@
+package cz.itnetwork.entity.filter;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filtry analytických dotazů nad snapshotem faktur v paměti.
+ * Osoby se zadávají ID a produkt přesným názvem, snapshot drží jen zakódované hodnoty.
+ */
+@Data
+public class InvoiceAnalyticsFilter {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dateFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dateTo;
+
+    @PositiveOrZero(message = "Minimální cena nesmí být záporná")
+    private Long minPrice;
+
+    @PositiveOrZero(message = "Maximální cena nesmí být záporná")
+    private Long maxPrice;
+
+    private Long sellerId;
+    private Long buyerId;
+    private String product;
+
+    @AssertTrue(message = "Datum od musí být před datem do")
+    private boolean isDateRangeValid() {
+        return dateFrom == null || dateTo == null || !dateFrom.isAfter(dateTo);
+    }
+
+    @AssertTrue(message = "Minimální cena musí být nejvýše maximální cena")
+    private boolean isPriceRangeValid() {
+        return minPrice == null || maxPrice == null || minPrice <= maxPrice;
+    }
+}
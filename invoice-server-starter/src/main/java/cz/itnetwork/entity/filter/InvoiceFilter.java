@@ -0,0 +1,47 @@
+package cz.itnetwork.entity.filter;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filtry seznamu, kurzorového stránkování i exportu faktur.
+ * Hodnoty se převádějí už při bindování parametrů, neplatný vstup vrací 400.
+ */
+@Data
+public class InvoiceFilter {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dateFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dateTo;
+
+    @PositiveOrZero(message = "Minimální cena nesmí být záporná")
+    private Long minPrice;
+
+    @PositiveOrZero(message = "Maximální cena nesmí být záporná")
+    private Long maxPrice;
+
+    private String buyerIdentificationNumber;
+    private String sellerIdentificationNumber;
+
+    // Hledání v názvu produktu
+    private String product;
+
+    // Hledání v produktu i poznámce
+    private String text;
+
+    @AssertTrue(message = "Datum od musí být před datem do")
+    private boolean isDateRangeValid() {
+        return dateFrom == null || dateTo == null || !dateFrom.isAfter(dateTo);
+    }
+
+    @AssertTrue(message = "Minimální cena musí být nejvýše maximální cena")
+    private boolean isPriceRangeValid() {
+        return minPrice == null || maxPrice == null || minPrice <= maxPrice;
+    }
+}
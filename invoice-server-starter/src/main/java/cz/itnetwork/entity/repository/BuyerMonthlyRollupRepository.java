@@ -0,0 +1,66 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.dto.PersonRollupDTO;
+import cz.itnetwork.entity.BuyerMonthlyRollupEntity;
+import cz.itnetwork.entity.PersonPeriodKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BuyerMonthlyRollupRepository extends JpaRepository<BuyerMonthlyRollupEntity, PersonPeriodKey> {
+
+    // Součty za rozsah období (yyyyMM) po kupujících, od nejvyšší tržby
+    @Query("SELECT new cz.itnetwork.dto.PersonRollupDTO(r.personId, p.name, SUM(r.invoicesCount), SUM(r.priceSum), SUM(r.vatSum)) " +
+            "FROM BuyerMonthlyRollupEntity r LEFT JOIN person p ON p.id = r.personId " +
+            "WHERE r.period BETWEEN :fromPeriod AND :toPeriod AND (:personId IS NULL OR r.personId = :personId) " +
+            "GROUP BY r.personId, p.name HAVING SUM(r.invoicesCount) <> 0 ORDER BY SUM(r.priceSum) DESC, r.personId")
+    List<PersonRollupDTO> sumByPerson(@Param("fromPeriod") int fromPeriod, @Param("toPeriod") int toPeriod,
+                                      @Param("personId") Long personId);
+
+    // Měsíční řádky v rozsahu období (yyyyMM) po kupujících
+    @Query("SELECT new cz.itnetwork.dto.PersonRollupDTO(r.personId, p.name, r.period, r.invoicesCount, r.priceSum, r.vatSum) " +
+            "FROM BuyerMonthlyRollupEntity r LEFT JOIN person p ON p.id = r.personId " +
+            "WHERE r.period BETWEEN :fromPeriod AND :toPeriod AND (:personId IS NULL OR r.personId = :personId) " +
+            "AND r.invoicesCount <> 0 ORDER BY r.period, r.personId")
+    List<PersonRollupDTO> findMonthly(@Param("fromPeriod") int fromPeriod, @Param("toPeriod") int toPeriod,
+                                      @Param("personId") Long personId);
+
+    /**
+     * Atomicky přičte rozdíly k měsíci osoby, případně řádek založí.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO buyer_monthly_rollup (period, person_id, invoices_count, price_sum, vat_sum) " +
+            "VALUES (:period, :personId, :invoicesCount, :priceSum, :vatSum) " +
+            "ON DUPLICATE KEY UPDATE invoices_count = invoices_count + VALUES(invoices_count), " +
+            "price_sum = price_sum + VALUES(price_sum), vat_sum = vat_sum + VALUES(vat_sum)",
+            nativeQuery = true)
+    void applyDelta(@Param("period") int period,
+                    @Param("personId") long personId,
+                    @Param("invoicesCount") long invoicesCount,
+                    @Param("priceSum") long priceSum,
+                    @Param("vatSum") long vatSum);
+
+    // Smaže celý přehled před přepočtem
+    @Modifying
+    @Query(value = "DELETE FROM buyer_monthly_rollup", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Přepočítá přehled od nuly z tabulky faktur.
+     *
+     * @return Počet vložených řádků.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO buyer_monthly_rollup (period, person_id, invoices_count, price_sum, vat_sum) " +
+            "SELECT b.period, b.person_id, COUNT(*), COALESCE(SUM(b.price), 0), COALESCE(SUM(FLOOR(b.price * b.vat / 100)), 0) " +
+            "FROM (SELECT COALESCE(YEAR(i.issued) * 100 + MONTH(i.issued), 0) AS period, i.buyer_id AS person_id, i.price, i.vat " +
+            "FROM invoice_entity i WHERE i.buyer_id IS NOT NULL) b " +
+            "GROUP BY b.period, b.person_id",
+            nativeQuery = true)
+    int insertRecomputedRows();
+}
@@ -0,0 +1,23 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.entity.InvoiceChangeEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InvoiceChangeRepository extends JpaRepository<InvoiceChangeEntity, Long> {
+
+    // Nejstarší čekající změny
+    @Query("SELECT c FROM InvoiceChangeEntity c ORDER BY c.id")
+    List<InvoiceChangeEntity> findOldest(Pageable pageable);
+
+    // Smaže všechny čekající změny před přepočtem přehledů
+    @Modifying
+    @Query(value = "DELETE FROM invoice_change", nativeQuery = true)
+    void deleteAllRows();
+}
@@ -0,0 +1,37 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.entity.InvoiceNumberSequenceEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface InvoiceNumberSequenceRepository extends JpaRepository<InvoiceNumberSequenceEntity, String> {
+
+    /**
+     * Načte číselnou řadu období a zamkne ji (SELECT ... FOR UPDATE) do konce transakce.
+     *
+     * @param period Období ve tvaru yyyyMM.
+     * @return Optional s řadou, nebo prázdný Optional, pokud řada ještě neexistuje.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM InvoiceNumberSequenceEntity s WHERE s.period = :period")
+    Optional<InvoiceNumberSequenceEntity> findForUpdate(@Param("period") String period);
+
+    // Nezamykající čtení pro náhled dalšího čísla
+    Optional<InvoiceNumberSequenceEntity> findByPeriod(String period);
+
+    /**
+     * Založí řadu období, pokud ji mezitím nezaložil jiný požadavek.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO invoice_number_sequence (period, last_sequence) VALUES (:period, :lastValue)",
+            nativeQuery = true)
+    void insertIfAbsent(@Param("period") String period, @Param("lastValue") long lastValue);
+}
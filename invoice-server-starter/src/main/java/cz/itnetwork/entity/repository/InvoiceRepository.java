@@ -1,12 +1,16 @@
 package cz.itnetwork.entity.repository;
 
+import cz.itnetwork.dto.ArchivedInvoiceDTO;
 import cz.itnetwork.entity.InvoiceEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,10 +49,36 @@ public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, J
     @Query("SELECT MAX(i.id) FROM InvoiceEntity i")
     Long findLastId();
 
-    // vrátí poslední pořadové číslo faktury pro daný rok a měsíc
+    // Zamkne kandidáty archivace (SELECT ... FOR UPDATE) do konce transakce, bez spojení s osobami
+    @Query(value = "SELECT id FROM invoice_entity WHERE issued < :cutoff AND id > :afterId ORDER BY id LIMIT :limit FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockArchiveCandidates(@Param("cutoff") LocalDate cutoff, @Param("afterId") long afterId,
+                                     @Param("limit") int limit);
+
+    // Kandidáti archivace vystavení před daným dnem, po dávkách podle ID (osoby jen jako ID, bez načítání entit)
+    @Query("SELECT new cz.itnetwork.dto.ArchivedInvoiceDTO(i.id, i.invoiceNumber, s.id, b.id, i.issued, i.dueDate, " +
+            "i.product, i.price, i.vat, i.note) FROM InvoiceEntity i LEFT JOIN i.seller s LEFT JOIN i.buyer b " +
+            "WHERE i.issued < :cutoff AND i.id > :afterId ORDER BY i.id")
+    List<ArchivedInvoiceDTO> findArchiveCandidates(@Param("cutoff") LocalDate cutoff, @Param("afterId") long afterId,
+                                                   Pageable pageable);
+
+    // Sloupce analytického snapshotu po dávkách podle ID (osoby jen jako ID, bez poznámek a načítání entit)
+    @Query("SELECT i.id, s.id, b.id, i.issued, i.product, i.price, i.vat FROM InvoiceEntity i " +
+            "LEFT JOIN i.seller s LEFT JOIN i.buyer b WHERE i.id > :afterId ORDER BY i.id")
+    List<Object[]> findAnalyticsRows(@Param("afterId") long afterId, Pageable pageable);
+
+    // vrátí poslední pořadové číslo faktury pro daný rok a měsíc, slouží jen k založení číselné řady měsíce
     @Query("SELECT MAX(CAST(SUBSTRING(i.invoiceNumber, 7) AS int)) FROM InvoiceEntity i WHERE i.invoiceNumber LIKE ?1")
     Optional<Integer> findLastInvoiceNumberInMonth(String prefix);
 
+    // vrátí všechna čísla faktur s daným prefixem (pro výpis mezer v číselné řadě)
+    @Query("SELECT i.invoiceNumber FROM InvoiceEntity i WHERE i.invoiceNumber LIKE ?1")
+    List<String> findInvoiceNumbersByPrefix(String prefix);
+
+    // vrátí ze zadaných čísel ta, která už nese některá faktura (i smazaná), pro kontrolu duplicit při importu
+    @Query("SELECT i.invoiceNumber FROM InvoiceEntity i WHERE i.invoiceNumber IN :invoiceNumbers")
+    List<String> findExistingInvoiceNumbers(@Param("invoiceNumbers") Collection<String> invoiceNumbers);
+
 
     /**
      * Spočítá celkovou sumu cen všech faktur v databázi.
@@ -65,6 +95,14 @@ public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, J
      * @param year Rok, pro který se má součet spočítat.
      * @return Součet cen faktur z daného roku.
      */
-    @Query("SELECT SUM(i.price) FROM InvoiceEntity i WHERE YEAR(i.issued) = :year")
-    Long calculateCurrentYearSum(@Param("year") int year);
+    default Long calculateCurrentYearSum(int year) {
+        return calculateSumIssuedBetween(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+    }
+
+    /**
+     * Spočítá sumu cen faktur vystavených od data (včetně) do data (bez něj).
+     * Rozsah nad sloupcem issued místo YEAR(issued) použije index i oddíly tabulky podle data vystavení.
+     */
+    @Query("SELECT SUM(i.price) FROM InvoiceEntity i WHERE i.issued >= :from AND i.issued < :to")
+    Long calculateSumIssuedBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
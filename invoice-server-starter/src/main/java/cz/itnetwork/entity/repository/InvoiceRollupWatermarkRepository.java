@@ -0,0 +1,32 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.entity.InvoiceRollupWatermarkEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface InvoiceRollupWatermarkRepository extends JpaRepository<InvoiceRollupWatermarkEntity, String> {
+
+    /**
+     * Načte watermark a zamkne ho (SELECT ... FOR UPDATE) do konce transakce - zpracování logu změn
+     * tak v jednu chvíli běží jen na jednom uzlu.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM InvoiceRollupWatermarkEntity w WHERE w.name = :name")
+    Optional<InvoiceRollupWatermarkEntity> findForUpdate(@Param("name") String name);
+
+    /**
+     * Založí watermark, pokud ho mezitím nezaložil jiný uzel.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO invoice_rollup_watermark (name, last_change_id, updated_at) " +
+            "VALUES (:name, 0, CURRENT_TIMESTAMP)", nativeQuery = true)
+    void insertIfAbsent(@Param("name") String name);
+}
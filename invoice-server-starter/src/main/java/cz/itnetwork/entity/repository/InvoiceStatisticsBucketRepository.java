@@ -0,0 +1,61 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.entity.InvoiceStatisticsBucketEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InvoiceStatisticsBucketRepository extends JpaRepository<InvoiceStatisticsBucketEntity, Integer> {
+
+    // Měsíční součty v rozsahu období (yyyyMM), seřazené podle období
+    List<InvoiceStatisticsBucketEntity> findByPeriodBetweenOrderByPeriod(int fromPeriod, int toPeriod);
+
+    // Celkový počet faktur přes všechna období
+    @Query("SELECT COALESCE(SUM(b.invoicesCount), 0) FROM InvoiceStatisticsBucketEntity b")
+    long sumInvoicesCount();
+
+    // Celkový součet cen přes všechna období
+    @Query("SELECT COALESCE(SUM(b.priceSum), 0) FROM InvoiceStatisticsBucketEntity b")
+    long sumPrice();
+
+    // Součet cen v rozsahu období (yyyyMM)
+    @Query("SELECT COALESCE(SUM(b.priceSum), 0) FROM InvoiceStatisticsBucketEntity b WHERE b.period BETWEEN :fromPeriod AND :toPeriod")
+    long sumPriceBetween(@Param("fromPeriod") int fromPeriod, @Param("toPeriod") int toPeriod);
+
+    /**
+     * Atomicky přičte rozdíly k měsíčnímu součtu, případně ho založí.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO invoice_statistics_bucket (period, invoices_count, price_sum, vat_sum) " +
+            "VALUES (:period, :invoicesCount, :priceSum, :vatSum) " +
+            "ON DUPLICATE KEY UPDATE invoices_count = invoices_count + VALUES(invoices_count), " +
+            "price_sum = price_sum + VALUES(price_sum), vat_sum = vat_sum + VALUES(vat_sum)",
+            nativeQuery = true)
+    void applyDelta(@Param("period") int period,
+                    @Param("invoicesCount") long invoicesCount,
+                    @Param("priceSum") long priceSum,
+                    @Param("vatSum") long vatSum);
+
+    // Smaže všechny součty před přepočtem
+    @Modifying
+    @Query(value = "DELETE FROM invoice_statistics_bucket", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Přepočítá měsíční součty od nuly z tabulky faktur.
+     *
+     * @return Počet vložených období.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO invoice_statistics_bucket (period, invoices_count, price_sum, vat_sum) " +
+            "SELECT b.period, COUNT(*), COALESCE(SUM(b.price), 0), COALESCE(SUM(FLOOR(b.price * b.vat / 100)), 0) " +
+            "FROM (SELECT COALESCE(YEAR(i.issued) * 100 + MONTH(i.issued), 0) AS period, i.price, i.vat FROM invoice_entity i) b " +
+            "GROUP BY b.period",
+            nativeQuery = true)
+    int insertRecomputedRows();
+}
@@ -0,0 +1,77 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.entity.PersonLedgerEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PersonLedgerRepository extends JpaRepository<PersonLedgerEntity, Long> {
+
+    /**
+     * Vrátí řádky knihy pro osoby se zadaným stavem "hidden".
+     * Řazení i stránkování probíhá v SQL, jméno osoby se načte jedním joinem.
+     *
+     * @param hidden   Indikátor, zda má být osoba skrytá.
+     * @param pageable Stránkování a řazení (např. "person.name", "revenue").
+     * @return Seznam řádků knihy.
+     */
+    @EntityGraph(attributePaths = "person")
+    List<PersonLedgerEntity> findByPersonHidden(boolean hidden, Pageable pageable);
+
+    /**
+     * Atomicky přičte rozdíly k řádku osoby, případně řádek založí.
+     * Jeden příkaz bez předchozího čtení, takže souběžné zápisy faktur nepřijdou o změnu.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO person_ledger (person_id, revenue, expenses, sales_count, purchases_count) " +
+            "VALUES (:personId, :revenue, :expenses, :salesCount, :purchasesCount) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), expenses = expenses + VALUES(expenses), " +
+            "sales_count = sales_count + VALUES(sales_count), purchases_count = purchases_count + VALUES(purchases_count)",
+            nativeQuery = true)
+    void applyDelta(@Param("personId") Long personId,
+                    @Param("revenue") long revenue,
+                    @Param("expenses") long expenses,
+                    @Param("salesCount") long salesCount,
+                    @Param("purchasesCount") long purchasesCount);
+
+    /**
+     * Založí prázdné řádky knihy pro zadané osoby, existující řádky nechá beze změny.
+     *
+     * @return Počet založených řádků.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO person_ledger (person_id, revenue, expenses, sales_count, purchases_count) " +
+            "SELECT p.id, 0, 0, 0, 0 FROM person p WHERE p.id IN (:personIds) " +
+            "AND NOT EXISTS (SELECT 1 FROM person_ledger l WHERE l.person_id = p.id)",
+            nativeQuery = true)
+    int insertEmptyRows(@Param("personIds") Collection<Long> personIds);
+
+    // Smaže celou knihu před přepočtem
+    @Modifying
+    @Query(value = "DELETE FROM person_ledger", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Přepočítá knihu od nuly z tabulky faktur - jeden řádek pro každou osobu.
+     *
+     * @return Počet vložených řádků.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO person_ledger (person_id, revenue, expenses, sales_count, purchases_count) " +
+            "SELECT p.id, " +
+            "COALESCE((SELECT SUM(i.price) FROM invoice_entity i WHERE i.seller_id = p.id), 0), " +
+            "COALESCE((SELECT SUM(i.price) FROM invoice_entity i WHERE i.buyer_id = p.id), 0), " +
+            "(SELECT COUNT(*) FROM invoice_entity i WHERE i.seller_id = p.id), " +
+            "(SELECT COUNT(*) FROM invoice_entity i WHERE i.buyer_id = p.id) " +
+            "FROM person p",
+            nativeQuery = true)
+    int insertRecomputedRows();
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,11 +19,53 @@ public interface PersonRepository extends JpaRepository<PersonEntity, Long>, Jpa
 
     /**
      * vyhledá osobu podle jejího iča
+     * Aktivní osoba má přednost před skrytými se stejným IČO, mezi skrytými vyhrává nejnovější.
      *
      * @param identificationNumber IČO osoby.
      * @return Optional s nalezenou osobou, nebo prázdný Optional, pokud osoba nebyla nalezena.
      */
-    Optional<PersonEntity> findByIdentificationNumber(String identificationNumber);
+    Optional<PersonEntity> findFirstByIdentificationNumberOrderByHiddenAscIdDesc(String identificationNumber);
+
+    // Zjistí, zda IČO už používá aktivní osoba (aktivní IČO je unikátní)
+    boolean existsByIdentificationNumberAndHiddenFalse(String identificationNumber);
+
+    // Zjistí, zda IČO už používá jiná aktivní osoba
+    boolean existsByIdentificationNumberAndHiddenFalseAndIdNot(String identificationNumber, Long id);
+
+    /**
+     * Načte aktivní osoby se zadanými IČO jedním dotazem (porovnání dávky hromadného zápisu).
+     *
+     * @param identificationNumbers IČO osob.
+     * @return Seznam nalezených aktivních osob.
+     */
+    @Query("SELECT p FROM person p WHERE p.hidden = false AND p.identificationNumber IN :identificationNumbers")
+    List<PersonEntity> findActiveByIdentificationNumbers(@Param("identificationNumbers") Collection<String> identificationNumbers);
+
+    /**
+     * Vrátí dvojice [ID, IČO] aktivních osob se zadanými IČO, např. ID právě vložených řádků.
+     *
+     * @param identificationNumbers IČO osob.
+     * @return Seznam dvojic [ID, IČO].
+     */
+    @Query("SELECT p.id, p.identificationNumber FROM person p WHERE p.hidden = false AND p.identificationNumber IN :identificationNumbers")
+    List<Object[]> findActiveIdsByIdentificationNumbers(@Param("identificationNumbers") Collection<String> identificationNumbers);
+
+    /**
+     * Vrátí dvojice [ID, IČO] všech aktivních osob bez načítání celých entit.
+     *
+     * @return Seznam dvojic [ID, IČO].
+     */
+    @Query("SELECT p.id, p.identificationNumber FROM person p WHERE p.hidden = false")
+    List<Object[]> findActiveIdsAndIdentificationNumbers();
+
+    /**
+     * Vrátí dvojice [ID, IČO] všech osob bez načítání celých entit.
+     * Skryté osoby jsou první, takže při skládání mapy podle IČO mají přednost aktivní osoby.
+     *
+     * @return Seznam dvojic [ID, IČO].
+     */
+    @Query("SELECT p.id, p.identificationNumber FROM person p ORDER BY p.hidden DESC, p.id")
+    List<Object[]> findAllIdsAndIdentificationNumbers();
 
     /**
      * získé seznam osob, které nejsou skryté, a načte jejich prodeje a nákupy.
@@ -0,0 +1,66 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.dto.ProductRollupDTO;
+import cz.itnetwork.entity.ProductMonthlyRollupEntity;
+import cz.itnetwork.entity.ProductPeriodKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductMonthlyRollupRepository extends JpaRepository<ProductMonthlyRollupEntity, ProductPeriodKey> {
+
+    // Součty za rozsah období (yyyyMM) po produktech, od nejvyšší tržby
+    @Query("SELECT new cz.itnetwork.dto.ProductRollupDTO(r.product, SUM(r.invoicesCount), SUM(r.priceSum), SUM(r.vatSum)) " +
+            "FROM ProductMonthlyRollupEntity r " +
+            "WHERE r.period BETWEEN :fromPeriod AND :toPeriod AND (:product IS NULL OR r.product = :product) " +
+            "GROUP BY r.product HAVING SUM(r.invoicesCount) <> 0 ORDER BY SUM(r.priceSum) DESC, r.product")
+    List<ProductRollupDTO> sumByProduct(@Param("fromPeriod") int fromPeriod, @Param("toPeriod") int toPeriod,
+                                        @Param("product") String product);
+
+    // Měsíční řádky v rozsahu období (yyyyMM) po produktech
+    @Query("SELECT new cz.itnetwork.dto.ProductRollupDTO(r.product, r.period, r.invoicesCount, r.priceSum, r.vatSum) " +
+            "FROM ProductMonthlyRollupEntity r " +
+            "WHERE r.period BETWEEN :fromPeriod AND :toPeriod AND (:product IS NULL OR r.product = :product) " +
+            "AND r.invoicesCount <> 0 ORDER BY r.period, r.product")
+    List<ProductRollupDTO> findMonthly(@Param("fromPeriod") int fromPeriod, @Param("toPeriod") int toPeriod,
+                                       @Param("product") String product);
+
+    /**
+     * Atomicky přičte rozdíly k měsíci produktu, případně řádek založí.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_monthly_rollup (period, product, invoices_count, price_sum, vat_sum) " +
+            "VALUES (:period, :product, :invoicesCount, :priceSum, :vatSum) " +
+            "ON DUPLICATE KEY UPDATE invoices_count = invoices_count + VALUES(invoices_count), " +
+            "price_sum = price_sum + VALUES(price_sum), vat_sum = vat_sum + VALUES(vat_sum)",
+            nativeQuery = true)
+    void applyDelta(@Param("period") int period,
+                    @Param("product") String product,
+                    @Param("invoicesCount") long invoicesCount,
+                    @Param("priceSum") long priceSum,
+                    @Param("vatSum") long vatSum);
+
+    // Smaže celý přehled před přepočtem
+    @Modifying
+    @Query(value = "DELETE FROM product_monthly_rollup", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Přepočítá přehled od nuly z tabulky faktur.
+     *
+     * @return Počet vložených řádků.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_monthly_rollup (period, product, invoices_count, price_sum, vat_sum) " +
+            "SELECT b.period, b.product, COUNT(*), COALESCE(SUM(b.price), 0), COALESCE(SUM(FLOOR(b.price * b.vat / 100)), 0) " +
+            "FROM (SELECT COALESCE(YEAR(i.issued) * 100 + MONTH(i.issued), 0) AS period, i.product, i.price, i.vat " +
+            "FROM invoice_entity i WHERE i.product IS NOT NULL) b " +
+            "GROUP BY b.period, b.product",
+            nativeQuery = true)
+    int insertRecomputedRows();
+}
@@ -0,0 +1,53 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.entity.ProductEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductRepository extends JpaRepository<ProductEntity, Long> {
+
+    // Názvy všech používaných produktů seřazené podle abecedy
+    @Query("SELECT p.name FROM ProductEntity p WHERE p.usageCount > 0 ORDER BY p.name")
+    List<String> findUsedNames();
+
+    /**
+     * Vyhledá používané produkty podle začátku názvu (LIKE 'prefix%' nad indexem názvu).
+     *
+     * @param prefix   Začátek názvu produktu.
+     * @param pageable Stránkování a řazení.
+     * @return Seznam nalezených produktů.
+     */
+    List<ProductEntity> findByNameStartingWithAndUsageCountGreaterThan(String prefix, long usageCount, Pageable pageable);
+
+    /**
+     * Atomicky změní počet použití produktu, případně produkt založí.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product (name, usage_count) VALUES (:name, :delta) " +
+            "ON DUPLICATE KEY UPDATE usage_count = usage_count + VALUES(usage_count)",
+            nativeQuery = true)
+    void applyDelta(@Param("name") String name, @Param("delta") long delta);
+
+    // Smaže celý katalog před přepočtem
+    @Modifying
+    @Query(value = "DELETE FROM product", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Naplní katalog od nuly z tabulky faktur.
+     *
+     * @return Počet vložených produktů.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product (name, usage_count) " +
+            "SELECT i.product, COUNT(*) FROM invoice_entity i WHERE i.product IS NOT NULL GROUP BY i.product",
+            nativeQuery = true)
+    int insertRecomputedRows();
+}
@@ -0,0 +1,69 @@
+package cz.itnetwork.entity.repository.specification;
+
+import cz.itnetwork.entity.InvoiceEntity;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Podmínka stránkování kurzorem: faktury za pozicí z kurzoru v daném řazení (při zpětném posunu před ní).
+ * <p>
+ * Řadicí klíče kromě ID mohou být prázdné. Null se řadí jako nejmenší hodnota, stejně jako výchozí řazení
+ * MySQL (na začátku u ASC, na konci u DESC), porovnání s null se proto skládá z IS NULL a IS NOT NULL.
+ * Pro pozici (a, b, id) vznikne a > :a OR (a = :a AND b > :b) OR (a = :a AND b = :b AND id > :id).
+ */
+public class InvoiceKeysetSpecification implements Specification<InvoiceEntity> {
+
+    private final Sort sort;
+    private final Map<String, Object> keys;
+    private final boolean backward;
+
+    public InvoiceKeysetSpecification(Sort sort, Map<String, Object> keys, boolean backward) {
+        this.sort = sort;
+        this.keys = keys;
+        this.backward = backward;
+    }
+
+    @Override
+    public Predicate toPredicate(Root<InvoiceEntity> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression<Comparable<Object>> path = root.get(order.getProperty());
+            Object value = keys.get(order.getProperty());
+
+            Predicate beyond = beyond(builder, path, value, order.isAscending() != backward);
+            if (beyond != null) {
+                List<Predicate> alternative = new ArrayList<>(equalPrefix);
+                alternative.add(beyond);
+                alternatives.add(builder.and(alternative.toArray(new Predicate[0])));
+            }
+            equalPrefix.add(value == null ? builder.isNull(path) : builder.equal(path, value));
+        }
+        return builder.or(alternatives.toArray(new Predicate[0]));
+    }
+
+    /**
+     * Hodnoty za danou hodnotou ve směru větších (greater) nebo menších, null pokud žádné nejsou.
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate beyond(CriteriaBuilder builder, Expression<Comparable<Object>> path, Object value,
+                                    boolean greater) {
+        if (value == null) {
+            // Pod null už nic není, nad ním všechny vyplněné hodnoty
+            return greater ? builder.isNotNull(path) : null;
+        }
+        Comparable<Object> comparable = (Comparable<Object>) value;
+        return greater
+                ? builder.greaterThan(path, comparable)
+                : builder.or(builder.lessThan(path, comparable), builder.isNull(path));
+    }
+}
@@ -0,0 +1,95 @@
+package cz.itnetwork.entity.repository.specification;
+
+import cz.itnetwork.configuration.FullTextFunctionContributor;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.InvoiceEntity_;
+import cz.itnetwork.entity.PersonEntity_;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Specification seznamu faktur podle {@link InvoiceFilter}.
+ * Podmínky se skládají vždy ve stejném pořadí a všechny hodnoty jdou do dotazu jako parametry,
+ * takže stejná kombinace filtrů dává pokaždé stejné SQL a využije cache připravených dotazů.
+ */
+public class InvoiceSpecification implements Specification<InvoiceEntity> {
+
+    private final InvoiceFilter filter;
+    private final String textFullTextQuery;
+
+    /**
+     * @param textFullTextQuery Dotaz pro FULLTEXT hledání v produktu a poznámce, null = hledání podřetězce.
+     */
+    public InvoiceSpecification(InvoiceFilter filter, String textFullTextQuery) {
+        this.filter = filter;
+        this.textFullTextQuery = textFullTextQuery;
+    }
+
+    @Override
+    public Predicate toPredicate(Root<InvoiceEntity> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        HibernateCriteriaBuilder builder = (HibernateCriteriaBuilder) criteriaBuilder;
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (filter.getDateFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(root.get(InvoiceEntity_.issued), filter.getDateFrom()));
+        }
+        if (filter.getDateTo() != null) {
+            predicates.add(builder.lessThanOrEqualTo(root.get(InvoiceEntity_.issued), filter.getDateTo()));
+        }
+        if (filter.getMinPrice() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(root.get(InvoiceEntity_.price), filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            predicates.add(builder.lessThanOrEqualTo(root.get(InvoiceEntity_.price), filter.getMaxPrice()));
+        }
+        if (StringUtils.hasText(filter.getBuyerIdentificationNumber())) {
+            predicates.add(builder.equal(root.get(InvoiceEntity_.buyer).get(PersonEntity_.identificationNumber),
+                    filter.getBuyerIdentificationNumber().trim()));
+        }
+        if (StringUtils.hasText(filter.getSellerIdentificationNumber())) {
+            predicates.add(builder.equal(root.get(InvoiceEntity_.seller).get(PersonEntity_.identificationNumber),
+                    filter.getSellerIdentificationNumber().trim()));
+        }
+
+        // Produkt se hledá jako podřetězec ("ware" najde "Software"), FULLTEXT hledá jen začátky slov
+        if (StringUtils.hasText(filter.getProduct())) {
+            predicates.add(builder.like(builder.lower(root.get(InvoiceEntity_.product)),
+                    builder.value(toLikePattern(filter.getProduct()))));
+        }
+
+        // Textové hledání v produktu i poznámce, výsledky seřazené podle relevance
+        if (StringUtils.hasText(filter.getText())) {
+            if (textFullTextQuery != null) {
+                Expression<Double> relevance = builder.function(FullTextFunctionContributor.MATCH_PRODUCT_NOTE,
+                        Double.class, root.get(InvoiceEntity_.product), root.get(InvoiceEntity_.note),
+                        builder.value(textFullTextQuery));
+                predicates.add(builder.greaterThan(relevance, 0.0));
+                // Řazení podle relevance jen u výběru dat, ne u COUNT dotazu; explicitní sort ho přepíše
+                if (!Long.class.equals(query.getResultType())) {
+                    query.orderBy(builder.desc(relevance));
+                }
+            } else {
+                Expression<String> pattern = builder.value(toLikePattern(filter.getText()));
+                predicates.add(builder.or(
+                        builder.like(builder.lower(root.get(InvoiceEntity_.product)), pattern),
+                        builder.like(builder.lower(root.get(InvoiceEntity_.note)), pattern)));
+            }
+        }
+
+        return builder.and(predicates.toArray(new Predicate[0]));
+    }
+
+    private static String toLikePattern(String term) {
+        return "%" + term.trim().toLowerCase() + "%";
+    }
+}
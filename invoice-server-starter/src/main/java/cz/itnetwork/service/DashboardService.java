@@ -0,0 +1,12 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.DashboardDTO;
+
+public interface DashboardService {
+
+    /**
+     * Načte statistiky faktur, statistiky osob, produkty a osoby souběžně.
+     * Každá sekce má vlastní časový limit, pomalá nebo chybná sekce se vrátí jako chyba a ostatní zůstanou.
+     */
+    DashboardDTO getDashboard();
+}
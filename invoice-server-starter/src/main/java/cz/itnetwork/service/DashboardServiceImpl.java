@@ -0,0 +1,98 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.DashboardDTO;
+import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonStatisticsDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Úvodní stránka - sekce běží souběžně na virtuálních vláknech, každá ve vlastní read-only transakci.
+ * Odpověď tak trvá jako nejpomalejší sekce, nejdéle však časový limit.
+ */
+@Service
+public class DashboardServiceImpl implements DashboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardServiceImpl.class);
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.dashboard.section-timeout:2s}")
+    private Duration sectionTimeout;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Override
+    public DashboardDTO getDashboard() {
+        // Všechny sekce startují zároveň, limit se proto počítá od společného začátku
+        long deadline = System.nanoTime() + sectionTimeout.toNanos();
+
+        Future<InvoiceStatisticsDTO> invoiceStatistics = submit(invoiceService::getInvoiceStatistics);
+        Future<List<PersonStatisticsDTO>> personStatistics =
+                submit(() -> personService.getPersonStatistics("id", "asc", null, null));
+        Future<List<String>> products = submit(invoiceService::getProducts);
+        Future<List<PersonDTO>> persons = submit(personService::getAll);
+
+        DashboardDTO dashboard = new DashboardDTO();
+        collect("invoiceStatistics", invoiceStatistics, deadline, dashboard, dashboard::setInvoiceStatistics);
+        collect("personStatistics", personStatistics, deadline, dashboard, dashboard::setPersonStatistics);
+        collect("products", products, deadline, dashboard, dashboard::setProducts);
+        collect("persons", persons, deadline, dashboard, dashboard::setPersons);
+        return dashboard;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> Future<T> submit(Supplier<T> section) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        // Dotazy zrušené sekce nedrží spojení déle než limit
+        transactionTemplate.setTimeout((int) Math.max(1, sectionTimeout.toSeconds()));
+        return executor.submit(() -> transactionTemplate.execute(status -> section.get()));
+    }
+
+    private <T> void collect(String section, Future<T> future, long deadline, DashboardDTO dashboard, Consumer<T> setter) {
+        try {
+            setter.accept(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("Sekce {} nestihla časový limit {}", section, sectionTimeout);
+            dashboard.getErrors().put(section, "timeout");
+        } catch (ExecutionException e) {
+            logger.error("Sekce {} skončila chybou", section, e.getCause());
+            dashboard.getErrors().put(section, "error");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            dashboard.getErrors().put(section, "error");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.DataAggregate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verze faktur a osob v tabulce data_version, ze kterých se skládá ETag čtecích endpointů.
+ * <p>
+ * Zápis zvýší verzi ve své transakci (těsně před commitem), takže ji všechny instance aplikace
+ * i repliky uvidí současně s daty. Pro ETag se verze drží krátce v paměti (invoice.http-cache.version-ttl),
+ * zápis v této instanci ji po commitu zneplatní hned, zápis na jiném uzlu se projeví nejpozději po této době.
+ */
+@Component
+public class DataVersions {
+
+    // Řádek se založí prvním zápisem, další zápisy jen zvyšují verzi
+    private static final String INCREMENT_SQL = "INSERT INTO data_version (aggregate, version) VALUES (?, 1) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1";
+
+    private static final String SELECT_SQL = "SELECT aggregate, version FROM data_version";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final long ttlNanos;
+
+    // Zvyšuje se s každým zneplatněním, načtení souběžné se zápisem se pak do paměti neuloží
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    public DataVersions(@Value("${invoice.http-cache.version-ttl:1s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Zvýší verze v probíhající transakci (každou skupinu jednou, před commitem), mimo transakci hned.
+     */
+    public void bump(DataAggregate... aggregates) {
+        if (aggregates.length == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(EnumSet.of(aggregates[0], aggregates));
+            invalidate();
+            return;
+        }
+        PendingBump pending = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingBump bump && bump.owner() == this) {
+                pending = bump;
+            }
+        }
+        if (pending == null) {
+            pending = new PendingBump();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        Collections.addAll(pending.aggregates, aggregates);
+    }
+
+    /**
+     * Hodnota ETagu ze současných verzí zadaných skupin dat, např. "12-4".
+     */
+    public String etag(DataAggregate... aggregates) {
+        return format(cachedVersions(), aggregates);
+    }
+
+    /**
+     * Hodnota ETagu z verzí přečtených v read-only transakci, tedy ze stejné databáze (repliky) jako data
+     * čtená po ní. Verze přečtená dřív než data nikdy nepatří ke starším datům, než klient dostane.
+     */
+    @Transactional(readOnly = true)
+    public String readEtag(DataAggregate... aggregates) {
+        return format(load(), aggregates);
+    }
+
+    private Map<DataAggregate, Long> cachedVersions() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.loadedAt < ttlNanos) {
+            return current.versions;
+        }
+        long loadedGeneration = generation.get();
+        Map<DataAggregate, Long> versions = load();
+        if (generation.get() == loadedGeneration) {
+            snapshot = new Snapshot(versions, System.nanoTime());
+        }
+        return versions;
+    }
+
+    private Map<DataAggregate, Long> load() {
+        Map<DataAggregate, Long> versions = new EnumMap<>(DataAggregate.class);
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            versions.put(DataAggregate.valueOf(rs.getString(1)), rs.getLong(2));
+        });
+        return versions;
+    }
+
+    private static String format(Map<DataAggregate, Long> versions, DataAggregate... aggregates) {
+        StringBuilder etag = new StringBuilder("\"");
+        for (DataAggregate aggregate : aggregates) {
+            if (etag.length() > 1) {
+                etag.append('-');
+            }
+            etag.append(versions.getOrDefault(aggregate, 0L));
+        }
+        return etag.append('"').toString();
+    }
+
+    // Řádky v pořadí výčtu, souběžné transakce je tak zamykají ve stejném pořadí
+    private void increment(Set<DataAggregate> aggregates) {
+        for (DataAggregate aggregate : aggregates) {
+            jdbcTemplate.update(INCREMENT_SQL, aggregate.name());
+        }
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * Skupiny dat zapsané v jedné transakci, verze se zvýší až před jejím commitem.
+     * Řádky verzí jsou tak zamčené jen po dobu commitu, ne celé transakce.
+     */
+    private class PendingBump implements TransactionSynchronization {
+
+        private final Set<DataAggregate> aggregates = EnumSet.noneOf(DataAggregate.class);
+
+        private DataVersions owner() {
+            return DataVersions.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            increment(aggregates);
+        }
+
+        @Override
+        public void afterCommit() {
+            invalidate();
+        }
+    }
+
+    private record Snapshot(Map<DataAggregate, Long> versions, long loadedAt) {
+    }
+}
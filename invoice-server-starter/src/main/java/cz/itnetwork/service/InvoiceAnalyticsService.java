@@ -0,0 +1,68 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.AnalyticsDimension;
+import cz.itnetwork.constant.AnalyticsMetric;
+import cz.itnetwork.dto.InvoiceAnalyticsGroupDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsStatusDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsSummaryDTO;
+import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.filter.InvoiceAnalyticsFilter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Volitelný analytický snapshot všech faktur (včetně archivu) v paměti po sloupcích.
+ * <p>
+ * Načte se při startu a zápisy faktur ho po commitu rovnou upravují. Vypnutý (invoice.analytics.enabled=false)
+ * zápisy ignoruje a dotazy odmítne.
+ */
+public interface InvoiceAnalyticsService {
+
+    /**
+     * Po commitu vloží nebo přepíše fakturu ve snapshotu.
+     */
+    void recordInvoice(InvoiceEntity invoice);
+
+    /**
+     * Po commitu odebere fakturu ze snapshotu.
+     */
+    void revertInvoice(InvoiceEntity invoice);
+
+    /**
+     * Po commitu vloží faktury zapsané mimo JPA (hromadný import), faktury musí mít vyplněné ID.
+     */
+    void recordInvoices(Collection<InvoiceEntity> invoices);
+
+    /**
+     * Načte snapshot znovu z tabulky faktur a archivu, vrací počet faktur.
+     */
+    int reload();
+
+    InvoiceAnalyticsStatusDTO getStatus();
+
+    InvoiceAnalyticsSummaryDTO summarize(InvoiceAnalyticsFilter filter);
+
+    /**
+     * Součty po prodávajících, kupujících, produktech nebo měsících.
+     */
+    List<InvoiceAnalyticsGroupDTO> group(AnalyticsDimension dimension, InvoiceAnalyticsFilter filter);
+
+    /**
+     * Nejvýše limit skupin s nejvyšší hodnotou metriky.
+     */
+    List<InvoiceAnalyticsGroupDTO> top(AnalyticsDimension dimension, AnalyticsMetric metric, int limit,
+                                       InvoiceAnalyticsFilter filter);
+
+    /**
+     * Stejné součty jako {@link InvoiceService#getInvoiceStatistics()}, spočítané ze snapshotu.
+     */
+    InvoiceStatisticsDTO getInvoiceStatistics();
+
+    /**
+     * Stejný výpis jako {@link PersonService#getPersonStatistics(String, String, Integer, Integer)}, spočítaný ze snapshotu.
+     */
+    List<PersonStatisticsDTO> getPersonStatistics(String sortColumn, String sortDirection, Integer page, Integer size);
+}
@@ -0,0 +1,376 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.configuration.DataSourceRouting;
+import cz.itnetwork.constant.AnalyticsDimension;
+import cz.itnetwork.constant.AnalyticsMetric;
+import cz.itnetwork.dto.InvoiceAnalyticsGroupDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsStatusDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsSummaryDTO;
+import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.filter.InvoiceAnalyticsFilter;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.PersonRepository;
+import cz.itnetwork.service.analytics.InvoiceColumnStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Collator;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Analytický snapshot faktur nad {@link InvoiceColumnStore}.
+ * <p>
+ * Změny se do snapshotu promítají až po commitu a dřív než zvýšení verze pro ETag, odpověď s novým ETagem
+ * tak vždy vidí i novou fakturu. Změna jen upraví pole v paměti, z databáze nic nečte. Během načítání
+ * nového snapshotu se změny dál promítají do stávajícího a zároveň se zapamatují; po načtení se přehrají
+ * i do nového, takže na načítání nikdo nečeká. Dotazy běží souběžně a změnám nebrání, dokud nepíšou.
+ */
+@Service
+public class InvoiceAnalyticsServiceImpl implements InvoiceAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceAnalyticsServiceImpl.class);
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.analytics.enabled:false}")
+    private boolean enabled;
+
+    @Value("${invoice.analytics.parallelism:0}")
+    private int parallelism;
+
+    @Value("${invoice.analytics.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    private ForkJoinPool pool;
+
+    // Hotový snapshot, při opětovném načtení se vymění celý
+    private volatile InvoiceColumnStore store;
+    private volatile LocalDateTime loadedAt;
+    private volatile long loadMillis;
+
+    // Řadí změny snapshotu za sebe a chrání pendingChanges
+    private final Object changesLock = new Object();
+
+    // Změny potvrzené během načítání nového snapshotu, null = nic se nenačítá
+    private List<Consumer<InvoiceColumnStore>> pendingChanges;
+
+    @PostConstruct
+    void createPool() {
+        if (enabled) {
+            pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @PreDestroy
+    void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    @Override
+    public void recordInvoice(InvoiceEntity invoice) {
+        recordInvoices(List.of(invoice));
+    }
+
+    @Override
+    public void recordInvoices(Collection<InvoiceEntity> invoices) {
+        if (!enabled) {
+            return;
+        }
+        // Hodnoty se zkopírují hned, entity může volající po commitu ještě měnit
+        List<InvoiceEntity> copies = invoices.stream().map(InvoiceAnalyticsServiceImpl::copyOf).toList();
+        afterCommit(() -> applyChange(target -> target.putAll(copies, true)));
+    }
+
+    @Override
+    public void revertInvoice(InvoiceEntity invoice) {
+        if (!enabled) {
+            return;
+        }
+        long id = invoice.getId();
+        afterCommit(() -> applyChange(target -> target.remove(id)));
+    }
+
+    @Override
+    public synchronized int reload() {
+        requireEnabled();
+        long start = System.currentTimeMillis();
+        InvoiceColumnStore loading = new InvoiceColumnStore(pool);
+        synchronized (changesLock) {
+            pendingChanges = new ArrayList<>();
+        }
+        try {
+            // Nejdřív tabulka, pak archiv: faktura přesunutá do archivu mezi oběma průchody se tak nevynechá
+            loadTable(loading);
+            invoiceArchiveService.forEachBlock(invoices -> loading.putAll(invoices, false));
+
+            synchronized (changesLock) {
+                // Vložení i odebrání jde přehrát opakovaně, na pořadí vůči čtení tabulky nezáleží
+                pendingChanges.forEach(change -> change.accept(loading));
+                store = loading;
+            }
+        } finally {
+            synchronized (changesLock) {
+                pendingChanges = null;
+            }
+        }
+        loadedAt = LocalDateTime.now();
+        loadMillis = System.currentTimeMillis() - start;
+        logger.info("Analytický snapshot faktur načten: {} faktur za {} ms", loading.size(), loadMillis);
+        return loading.size();
+    }
+
+    @Override
+    public InvoiceAnalyticsStatusDTO getStatus() {
+        InvoiceColumnStore current = store;
+        if (current == null) {
+            return new InvoiceAnalyticsStatusDTO(enabled, false, null, 0, 0, 0, 0);
+        }
+        return new InvoiceAnalyticsStatusDTO(enabled, true, loadedAt, loadMillis,
+                current.size(), current.personsCount(), current.productsCount());
+    }
+
+    @Override
+    public InvoiceAnalyticsSummaryDTO summarize(InvoiceAnalyticsFilter filter) {
+        InvoiceColumnStore.Group sums = requireStore().summarize(filter);
+        return new InvoiceAnalyticsSummaryDTO(sums.invoicesCount(), sums.priceSum(), sums.vatSum());
+    }
+
+    @Override
+    public List<InvoiceAnalyticsGroupDTO> group(AnalyticsDimension dimension, InvoiceAnalyticsFilter filter) {
+        return toGroupDTOs(dimension, requireStore().group(dimension, filter));
+    }
+
+    @Override
+    public List<InvoiceAnalyticsGroupDTO> top(AnalyticsDimension dimension, AnalyticsMetric metric, int limit,
+                                              InvoiceAnalyticsFilter filter) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Počet skupin musí být alespoň 1.");
+        }
+        return toGroupDTOs(dimension, requireStore().top(dimension, metric, limit, filter));
+    }
+
+    @Override
+    public InvoiceStatisticsDTO getInvoiceStatistics() {
+        InvoiceColumnStore current = requireStore();
+        int year = LocalDate.now().getYear();
+        InvoiceAnalyticsFilter currentYear = new InvoiceAnalyticsFilter();
+        currentYear.setDateFrom(LocalDate.of(year, 1, 1));
+        currentYear.setDateTo(LocalDate.of(year, 12, 31));
+
+        InvoiceColumnStore.Group all = current.summarize(null);
+        return new InvoiceStatisticsDTO(current.summarize(currentYear).priceSum(), all.priceSum(), all.invoicesCount());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PersonStatisticsDTO> getPersonStatistics(String sortColumn, String sortDirection, Integer page, Integer size) {
+        InvoiceColumnStore current = requireStore();
+        Map<Long, Long> revenues = sumsByPerson(current.group(AnalyticsDimension.SELLER, null));
+        Map<Long, Long> expenses = sumsByPerson(current.group(AnalyticsDimension.BUYER, null));
+
+        Comparator<PersonStatisticsDTO> order = switch (sortColumn) {
+            case "name" -> Comparator.comparing(PersonStatisticsDTO::getName, Comparator.nullsFirst(Collator.getInstance(Locale.of("cs"))));
+            case "revenue" -> Comparator.comparingLong(PersonStatisticsDTO::getRevenue);
+            case "expenses" -> Comparator.comparingLong(PersonStatisticsDTO::getExpenses);
+            default -> Comparator.comparing(PersonStatisticsDTO::getPersonId); // Výchozí řazení podle ID
+        };
+        if ("desc".equalsIgnoreCase(sortDirection)) {
+            order = order.reversed();
+        }
+        order = order.thenComparing(PersonStatisticsDTO::getPersonId);
+
+        List<PersonStatisticsDTO> statistics = personRepository.findByHidden(false).stream()
+                .map(person -> new PersonStatisticsDTO(
+                        person.getId(),
+                        person.getName(),
+                        revenues.getOrDefault(person.getId(), 0L),
+                        expenses.getOrDefault(person.getId(), 0L)))
+                .sorted(order)
+                .collect(Collectors.toList());
+
+        if (page == null || size == null) {
+            return statistics;
+        }
+        // Stejná kontrola stránky a velikosti jako u výpisu z databáze
+        Pageable pageable = PageRequest.of(page, size);
+        if (pageable.getOffset() >= statistics.size()) {
+            return List.of();
+        }
+        int from = (int) pageable.getOffset();
+        return statistics.subList(from, Math.min(from + size, statistics.size()));
+    }
+
+    private void applyChange(Consumer<InvoiceColumnStore> change) {
+        synchronized (changesLock) {
+            if (store != null) {
+                change.accept(store);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        }
+    }
+
+    /**
+     * Načte z tabulky všechny faktury po dávkách podle ID.
+     */
+    private void loadTable(InvoiceColumnStore target) {
+        // Každá dávka ve vlastní krátké transakci
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            // Snapshot se načítá z primární databáze, replika může být pozadu za změnami přehrávanými po načtení
+            long from = afterId;
+            rows = DataSourceRouting.onPrimary(() -> transactionTemplate.execute(
+                    status -> invoiceRepository.findAnalyticsRows(from, PageRequest.of(0, loadBatchSize))));
+            List<InvoiceEntity> invoices = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                invoices.add(toEntity(row));
+            }
+            target.putAll(invoices, false);
+            if (!rows.isEmpty()) {
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        } while (rows.size() == loadBatchSize);
+    }
+
+    private List<InvoiceAnalyticsGroupDTO> toGroupDTOs(AnalyticsDimension dimension, List<InvoiceColumnStore.Group> groups) {
+        Map<Long, String> names = new HashMap<>();
+        if (dimension == AnalyticsDimension.SELLER || dimension == AnalyticsDimension.BUYER) {
+            // Jména jedním dotazem pro všechny osoby výsledku
+            List<Long> personIds = groups.stream().map(InvoiceColumnStore.Group::personId).toList();
+            for (PersonEntity person : personRepository.findAllById(personIds)) {
+                names.put(person.getId(), person.getName());
+            }
+        }
+
+        return groups.stream()
+                .map(group -> switch (dimension) {
+                    case SELLER, BUYER -> new InvoiceAnalyticsGroupDTO(group.personId(), names.get(group.personId()),
+                            null, null, group.invoicesCount(), group.priceSum(), group.vatSum());
+                    case PRODUCT -> new InvoiceAnalyticsGroupDTO(null, null, group.product(), null,
+                            group.invoicesCount(), group.priceSum(), group.vatSum());
+                    case MONTH -> new InvoiceAnalyticsGroupDTO(null, null, null,
+                            group.period() != 0 ? YearMonth.of(group.period() / 100, group.period() % 100) : null,
+                            group.invoicesCount(), group.priceSum(), group.vatSum());
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static Map<Long, Long> sumsByPerson(List<InvoiceColumnStore.Group> groups) {
+        Map<Long, Long> sums = new HashMap<>();
+        for (InvoiceColumnStore.Group group : groups) {
+            sums.put(group.personId(), group.priceSum());
+        }
+        return sums;
+    }
+
+    private InvoiceColumnStore requireStore() {
+        requireEnabled();
+        InvoiceColumnStore current = store;
+        if (current == null) {
+            throw new IllegalArgumentException("Analytický snapshot faktur se ještě načítá.");
+        }
+        return current;
+    }
+
+    private void requireEnabled() {
+        if (!enabled) {
+            throw new IllegalArgumentException("Analytický snapshot faktur je vypnutý (invoice.analytics.enabled).");
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static InvoiceEntity copyOf(InvoiceEntity invoice) {
+        InvoiceEntity copy = new InvoiceEntity();
+        copy.setId(invoice.getId());
+        copy.setSeller(invoice.getSeller() != null ? personStub(invoice.getSeller().getId()) : null);
+        copy.setBuyer(invoice.getBuyer() != null ? personStub(invoice.getBuyer().getId()) : null);
+        copy.setIssued(invoice.getIssued());
+        copy.setProduct(invoice.getProduct());
+        copy.setPrice(invoice.getPrice());
+        copy.setVat(invoice.getVat());
+        return copy;
+    }
+
+    // Řádek z findAnalyticsRows: id, prodávající, kupující, vystaveno, produkt, cena, DPH
+    private static InvoiceEntity toEntity(Object[] row) {
+        InvoiceEntity invoice = new InvoiceEntity();
+        invoice.setId((Long) row[0]);
+        invoice.setSeller(row[1] != null ? personStub((Long) row[1]) : null);
+        invoice.setBuyer(row[2] != null ? personStub((Long) row[2]) : null);
+        invoice.setIssued((LocalDate) row[3]);
+        invoice.setProduct((String) row[4]);
+        invoice.setPrice((Long) row[5]);
+        invoice.setVat((Integer) row[6]);
+        return invoice;
+    }
+
+    private static PersonEntity personStub(Long id) {
+        PersonEntity person = new PersonEntity();
+        person.setId(id);
+        return person;
+    }
+}
@@ -0,0 +1,48 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Studený archiv starých faktur v komprimovaných souborech po letech vystavení.
+ * <p>
+ * Faktury z archivu se vrací jako nespravované entity jen pro čtení, prodávající a kupující
+ * jsou kopie z cache osob. Archivované faktury nelze upravit ani smazat.
+ */
+public interface InvoiceArchiveService {
+
+    /**
+     * Přesune faktury vystavené před nastaveným stářím z tabulky do archivu, vrací počet přesunutých faktur.
+     */
+    int archive();
+
+    /**
+     * Vrátí den, před kterým mohou být faktury v archivu, nebo null, pokud je archiv prázdný.
+     */
+    LocalDate getHorizon();
+
+    boolean isArchived(long invoiceId);
+
+    Optional<InvoiceEntity> findById(long invoiceId);
+
+    /**
+     * Vrátí archivované faktury odpovídající filtrům seznamu faktur.
+     * Produkt a text se hledají jako podřetězec bez ohledu na velikost písmen (archiv nemá FULLTEXT index).
+     */
+    List<InvoiceEntity> find(InvoiceFilter filter);
+
+    /**
+     * Vrátí archivovaná čísla faktur z číselné řady daného měsíce (yyyyMM).
+     */
+    List<String> findInvoiceNumbers(String period);
+
+    /**
+     * Projde celý archiv po blocích, např. pro přepočet souhrnů. Osoby faktur mají vyplněné jen ID.
+     */
+    void forEachBlock(Consumer<List<InvoiceEntity>> consumer);
+}
@@ -0,0 +1,345 @@
+package cz.itnetwork.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.dto.ArchivedInvoiceDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.service.archive.ArchiveBlock;
+import cz.itnetwork.service.archive.ArchiveSegment;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.webjars.NotFoundException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Archiv faktur v souborech {@code <adresář>/<rok>/segment-*.arc}.
+ * <p>
+ * Patičky všech souborů se drží v paměti, dotazy podle nich vyberou jen bloky, které mohou obsahovat
+ * hledané faktury. Archivace nemění knihu osob, statistiky ani katalog produktů - přesunuté faktury
+ * se v nich dál počítají.
+ */
+@Service
+public class InvoiceArchiveServiceImpl implements InvoiceArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceArchiveServiceImpl.class);
+
+    private static final String SEGMENT_SUFFIX = ".arc";
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PersonCache personCache;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.archive.directory:archive}")
+    private Path directory;
+
+    @Value("${invoice.archive.min-age:2y}")
+    private Period minAge;
+
+    @Value("${invoice.archive.block-size:1000}")
+    private int blockSize;
+
+    @Value("${invoice.archive.batch-size:50000}")
+    private int batchSize;
+
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+
+    private int segmentSequence;
+
+    /**
+     * Načte patičky existujících souborů, nedokončené dočasné soubory po pádu smaže.
+     */
+    @PostConstruct
+    void loadSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX + ".tmp")) {
+                    Files.delete(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(ArchiveSegment.open(file, smileMapper));
+                }
+            }
+        }
+        logger.info("Archiv faktur načten, počet souborů: {}", segments.size());
+    }
+
+    @Override
+    @Scheduled(cron = "${invoice.archive.cron:-}")
+    public synchronized int archive() {
+        LocalDate cutoff = LocalDate.now().minus(minAge);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        int archived = 0;
+        long afterId = 0;
+        while (true) {
+            long lastId = afterId;
+            List<ArchivedInvoiceDTO> invoices = new ArrayList<>();
+            List<ArchiveSegment> written = new ArrayList<>();
+            Long lastCandidateId;
+            try {
+                // Čtení, zápis souborů i smazání v jedné transakci se zamčenými řádky - úprava faktury
+                // potvrzená mezi čtením a smazáním by se jinak do archivu nedostala a smazáním ztratila
+                lastCandidateId = transactionTemplate.execute(status -> {
+                    invoiceRepository.lockArchiveCandidates(cutoff, lastId, batchSize);
+                    List<ArchivedInvoiceDTO> candidates =
+                            invoiceRepository.findArchiveCandidates(cutoff, lastId, PageRequest.of(0, batchSize));
+                    if (candidates.isEmpty()) {
+                        return null;
+                    }
+                    // Faktury zapsané do archivu při dřívějším nedokončeném běhu se jen smažou z tabulky
+                    candidates.stream()
+                            .filter(invoice -> !isArchived(invoice.getId()))
+                            .forEach(invoices::add);
+                    written.addAll(writeSegments(invoices, cutoff));
+
+                    List<Long> ids = candidates.stream().map(ArchivedInvoiceDTO::getId).toList();
+                    for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+                        invoiceRepository.deleteAllByIdInBatch(ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size())));
+                    }
+                    dataVersions.bump(DataAggregate.INVOICES);
+                    return candidates.get(candidates.size() - 1).getId();
+                });
+            } catch (RuntimeException e) {
+                // Bez smazání z tabulky by faktury byly dvakrát, nové soubory se zahodí
+                for (ArchiveSegment segment : written) {
+                    deleteQuietly(segment.getPath());
+                }
+                throw e;
+            }
+            if (lastCandidateId == null) {
+                break;
+            }
+            afterId = lastCandidateId;
+            segments.addAll(written);
+            archived += invoices.size();
+        }
+
+        logger.info("Archivace faktur vystavených před {} dokončena, počet faktur: {}", cutoff, archived);
+        return archived;
+    }
+
+    @Override
+    public LocalDate getHorizon() {
+        return segments.stream()
+                .map(segment -> segment.getFooter().getArchivedBefore())
+                .max(LocalDate::compareTo)
+                .orElse(null);
+    }
+
+    @Override
+    public boolean isArchived(long invoiceId) {
+        return segments.stream()
+                .flatMap(segment -> segment.getFooter().getBlocks().stream())
+                .anyMatch(block -> block.containsId(invoiceId));
+    }
+
+    @Override
+    public Optional<InvoiceEntity> findById(long invoiceId) {
+        return scan(block -> block.containsId(invoiceId), invoice -> invoice.getId() == invoiceId).stream()
+                .findFirst()
+                .map(this::toEntity);
+    }
+
+    @Override
+    public List<InvoiceEntity> find(InvoiceFilter filter) {
+        if (segments.isEmpty()) {
+            return List.of();
+        }
+        Long sellerId;
+        Long buyerId;
+        try {
+            sellerId = findPersonId(filter.getSellerIdentificationNumber());
+            buyerId = findPersonId(filter.getBuyerIdentificationNumber());
+        } catch (NotFoundException e) {
+            // Neznámé IČO nemůže mít v archivu žádnou fakturu
+            return List.of();
+        }
+
+        LocalDate from = filter.getDateFrom();
+        LocalDate to = filter.getDateTo();
+        String product = toLowerCase(filter.getProduct());
+        String text = toLowerCase(filter.getText());
+
+        Predicate<ArchiveBlock> blockFilter = block -> block.overlaps(from, to)
+                && (sellerId == null || block.containsSeller(sellerId))
+                && (buyerId == null || block.containsBuyer(buyerId));
+        Predicate<ArchivedInvoiceDTO> invoiceFilter = invoice ->
+                (from == null || !invoice.getIssued().isBefore(from))
+                        && (to == null || !invoice.getIssued().isAfter(to))
+                        && (filter.getMinPrice() == null || (invoice.getPrice() != null && invoice.getPrice() >= filter.getMinPrice()))
+                        && (filter.getMaxPrice() == null || (invoice.getPrice() != null && invoice.getPrice() <= filter.getMaxPrice()))
+                        && (sellerId == null || sellerId.equals(invoice.getSellerId()))
+                        && (buyerId == null || buyerId.equals(invoice.getBuyerId()))
+                        && (product == null || contains(invoice.getProduct(), product))
+                        && (text == null || contains(invoice.getProduct(), text) || contains(invoice.getNote(), text));
+
+        return scan(blockFilter, invoiceFilter).stream()
+                .map(this::toEntity)
+                .toList();
+    }
+
+    @Override
+    public List<String> findInvoiceNumbers(String period) {
+        return scan(block -> block.containsNumberPeriod(period), invoice -> invoice.getInvoiceNumber() != null
+                && invoice.getInvoiceNumber().startsWith(period)).stream()
+                .map(ArchivedInvoiceDTO::getInvoiceNumber)
+                .toList();
+    }
+
+    @Override
+    public void forEachBlock(Consumer<List<InvoiceEntity>> consumer) {
+        for (ArchiveSegment segment : segments) {
+            for (ArchiveBlock block : segment.getFooter().getBlocks()) {
+                consumer.accept(readBlock(segment, block).stream()
+                        .map(invoice -> toEntity(invoice, this::personStub))
+                        .toList());
+            }
+        }
+    }
+
+    /**
+     * Projde bloky vybrané podle patiček a vrátí faktury splňující podmínku.
+     */
+    private List<ArchivedInvoiceDTO> scan(Predicate<ArchiveBlock> blockFilter, Predicate<ArchivedInvoiceDTO> invoiceFilter) {
+        List<ArchivedInvoiceDTO> result = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            for (ArchiveBlock block : segment.getFooter().getBlocks()) {
+                if (blockFilter.test(block)) {
+                    readBlock(segment, block).stream().filter(invoiceFilter).forEach(result::add);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Jeden soubor na rok vystavení a dávku, jméno podle času a pořadí je v adresáři roku jedinečné
+    private List<ArchiveSegment> writeSegments(List<ArchivedInvoiceDTO> invoices, LocalDate cutoff) {
+        Map<Integer, List<ArchivedInvoiceDTO>> byYear = new TreeMap<>();
+        for (ArchivedInvoiceDTO invoice : invoices) {
+            byYear.computeIfAbsent(invoice.getIssued().getYear(), year -> new ArrayList<>()).add(invoice);
+        }
+
+        List<ArchiveSegment> written = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, List<ArchivedInvoiceDTO>> entry : byYear.entrySet()) {
+                Path yearDirectory = Files.createDirectories(directory.resolve(String.valueOf(entry.getKey())));
+                Path target = yearDirectory.resolve("segment-" + System.currentTimeMillis() + "-" + (++segmentSequence) + SEGMENT_SUFFIX);
+                written.add(ArchiveSegment.write(target, entry.getKey(), cutoff, entry.getValue(), blockSize, smileMapper));
+            }
+        } catch (IOException e) {
+            for (ArchiveSegment segment : written) {
+                deleteQuietly(segment.getPath());
+            }
+            throw new UncheckedIOException("Zápis archivu faktur selhal", e);
+        }
+        return written;
+    }
+
+    private List<ArchivedInvoiceDTO> readBlock(ArchiveSegment segment, ArchiveBlock block) {
+        try {
+            return segment.readBlock(block);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Čtení archivu " + segment.getPath() + " selhalo", e);
+        }
+    }
+
+    private InvoiceEntity toEntity(ArchivedInvoiceDTO invoice) {
+        return toEntity(invoice, this::findPerson);
+    }
+
+    private InvoiceEntity toEntity(ArchivedInvoiceDTO invoice, Function<Long, PersonEntity> persons) {
+        InvoiceEntity entity = new InvoiceEntity();
+        entity.setId(invoice.getId());
+        entity.setInvoiceNumber(invoice.getInvoiceNumber());
+        entity.setSeller(invoice.getSellerId() != null ? persons.apply(invoice.getSellerId()) : null);
+        entity.setBuyer(invoice.getBuyerId() != null ? persons.apply(invoice.getBuyerId()) : null);
+        entity.setIssued(invoice.getIssued());
+        entity.setDueDate(invoice.getDueDate());
+        entity.setProduct(invoice.getProduct());
+        entity.setPrice(invoice.getPrice());
+        entity.setVat(invoice.getVat());
+        entity.setNote(invoice.getNote());
+        return entity;
+    }
+
+    // Osoby se nemažou, jen skrývají - pro jistotu ale chybějící osobu nahradí odkaz jen s ID
+    private PersonEntity findPerson(Long personId) {
+        try {
+            return personCache.getById(personId);
+        } catch (NotFoundException e) {
+            return personStub(personId);
+        }
+    }
+
+    private PersonEntity personStub(Long personId) {
+        PersonEntity person = new PersonEntity();
+        person.setId(personId);
+        return person;
+    }
+
+    private Long findPersonId(String identificationNumber) {
+        return StringUtils.hasText(identificationNumber)
+                ? personCache.getByIdentificationNumber(identificationNumber.trim()).getId()
+                : null;
+    }
+
+    private static String toLowerCase(String term) {
+        return StringUtils.hasText(term) ? term.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static boolean contains(String value, String term) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(term);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Soubor archivu {} se nepodařilo smazat", path, e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.entity.InvoiceEntity;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Převod pozice stránkování kurzorem na neprůhledný řetězec a zpět.
+ * <p>
+ * Kurzor nese směr a hodnoty řadicích klíčů poslední (resp. první) faktury stránky,
+ * vždy včetně ID, které zajišťuje jednoznačné pořadí. Prázdná hodnota klíče se zapíše bez "=".
+ */
+@Component
+public class InvoiceCursorCodec {
+
+    private static final String FORWARD = "F";
+    private static final String BACKWARD = "B";
+
+    // Povolené řadicí klíče: jak hodnotu z faktury přečíst a jak ji z kurzoru obnovit
+    private static final Map<String, Function<InvoiceEntity, Object>> GETTERS = Map.of(
+            "id", InvoiceEntity::getId,
+            "invoiceNumber", InvoiceEntity::getInvoiceNumber,
+            "issued", InvoiceEntity::getIssued,
+            "dueDate", InvoiceEntity::getDueDate,
+            "product", InvoiceEntity::getProduct,
+            "price", InvoiceEntity::getPrice,
+            "vat", InvoiceEntity::getVat
+    );
+
+    private static final Map<String, Function<String, Object>> PARSERS = Map.of(
+            "id", Long::valueOf,
+            "invoiceNumber", value -> value,
+            "issued", LocalDate::parse,
+            "dueDate", LocalDate::parse,
+            "product", value -> value,
+            "price", Long::valueOf,
+            "vat", Integer::valueOf
+    );
+
+    /**
+     * Ověří řazení a doplní ID jako poslední klíč.
+     */
+    public Sort normalizeSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!GETTERS.containsKey(order.getProperty())) {
+                throw new IllegalArgumentException("Podle vlastnosti " + order.getProperty() + " nelze stránkovat kurzorem.");
+            }
+        }
+        return sort.getOrderFor("id") != null ? sort : sort.and(Sort.by("id"));
+    }
+
+    /**
+     * Vytvoří kurzor z faktury na okraji stránky.
+     */
+    public String encode(InvoiceEntity invoice, Sort sort, ScrollPosition.Direction direction) {
+        StringBuilder builder = new StringBuilder(direction == ScrollPosition.Direction.FORWARD ? FORWARD : BACKWARD);
+        for (Sort.Order order : sort) {
+            Object value = GETTERS.get(order.getProperty()).apply(invoice);
+            builder.append('\n').append(order.getProperty());
+            if (value != null) {
+                builder.append('=').append(URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8));
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Obnoví pozici z kurzoru. Prázdný kurzor znamená první stránku.
+     */
+    public KeysetScrollPosition decode(String cursor, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        String direction;
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n");
+            direction = parts[0];
+            for (int i = 1; i < parts.length; i++) {
+                int separator = parts[i].indexOf('=');
+                if (separator < 0) {
+                    keys.put(requireKnown(parts[i]), null);
+                    continue;
+                }
+                String property = parts[i].substring(0, separator);
+                keys.put(property, PARSERS.get(property).apply(URLDecoder.decode(parts[i].substring(separator + 1), StandardCharsets.UTF_8)));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Neplatný kurzor.", e);
+        }
+
+        for (Sort.Order order : sort) {
+            if (!keys.containsKey(order.getProperty())) {
+                throw new IllegalArgumentException("Kurzor neodpovídá zvolenému řazení.");
+            }
+        }
+        if (keys.get("id") == null) {
+            throw new IllegalArgumentException("Neplatný kurzor.");
+        }
+        return BACKWARD.equals(direction) ? ScrollPosition.backward(keys) : ScrollPosition.forward(keys);
+    }
+
+    private static String requireKnown(String property) {
+        if (!PARSERS.containsKey(property)) {
+            throw new IllegalArgumentException("Neznámý klíč kurzoru " + property + ".");
+        }
+        return property;
+    }
+}
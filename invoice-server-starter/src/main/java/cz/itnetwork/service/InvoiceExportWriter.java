@@ -0,0 +1,151 @@
+package cz.itnetwork.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import cz.itnetwork.constant.ExportFormat;
+import cz.itnetwork.dto.InvoiceExportRowDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.PersonEntity;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Zapisuje řádky exportu faktur přímo do výstupu odpovědi, bez mezipaměti celého výsledku.
+ */
+public abstract class InvoiceExportWriter implements Closeable {
+
+    /**
+     * Vytvoří zapisovač pro daný formát.
+     */
+    public static InvoiceExportWriter create(ExportFormat format, OutputStream output, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvWriter(output);
+            case CBOR -> new BinaryWriter(output, objectMapper.copyWith(new CBORFactory()));
+            case SMILE -> new BinaryWriter(output, objectMapper.copyWith(new SmileFactory()));
+            case NDJSON -> new NdjsonWriter(output, objectMapper);
+        };
+    }
+
+    public abstract void write(InvoiceEntity invoice);
+
+    protected static InvoiceExportRowDTO toRow(InvoiceEntity invoice) {
+        PersonEntity seller = invoice.getSeller();
+        PersonEntity buyer = invoice.getBuyer();
+        return new InvoiceExportRowDTO(
+                invoice.getId(),
+                invoice.getInvoiceNumber(),
+                seller != null ? seller.getIdentificationNumber() : null,
+                seller != null ? seller.getName() : null,
+                buyer != null ? buyer.getIdentificationNumber() : null,
+                buyer != null ? buyer.getName() : null,
+                invoice.getIssued(),
+                invoice.getDueDate(),
+                invoice.getProduct(),
+                invoice.getPrice(),
+                invoice.getVat(),
+                invoice.getNote());
+    }
+
+    private static class NdjsonWriter extends InvoiceExportWriter {
+
+        private final OutputStream output;
+        private final ObjectMapper objectMapper;
+
+        private NdjsonWriter(OutputStream output, ObjectMapper objectMapper) {
+            this.output = new BufferedOutputStream(output);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public void write(InvoiceEntity invoice) {
+            try {
+                output.write(objectMapper.writeValueAsBytes(toRow(invoice)));
+                output.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.flush();
+        }
+    }
+
+    // Posloupnost binárních hodnot za sebou (CBOR sequence, Smile stream), nastavení mapperu zůstává jako u JSON
+    private static class BinaryWriter extends InvoiceExportWriter {
+
+        private final SequenceWriter sequenceWriter;
+
+        private BinaryWriter(OutputStream output, ObjectMapper objectMapper) throws IOException {
+            this.sequenceWriter = objectMapper.writer().writeValues(new BufferedOutputStream(output));
+        }
+
+        @Override
+        public void write(InvoiceEntity invoice) {
+            try {
+                sequenceWriter.write(toRow(invoice));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            sequenceWriter.flush();
+        }
+    }
+
+    private static class CsvWriter extends InvoiceExportWriter {
+
+        private final Writer writer;
+
+        private CsvWriter(OutputStream output) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write("id,invoiceNumber,sellerIdentificationNumber,sellerName,buyerIdentificationNumber,buyerName,"
+                    + "issued,dueDate,product,price,vat,note\n");
+        }
+
+        @Override
+        public void write(InvoiceEntity invoice) {
+            InvoiceExportRowDTO row = toRow(invoice);
+            try {
+                writer.write(String.join(",",
+                        escape(row.getId()), escape(row.getInvoiceNumber()),
+                        escape(row.getSellerIdentificationNumber()), escape(row.getSellerName()),
+                        escape(row.getBuyerIdentificationNumber()), escape(row.getBuyerName()),
+                        escape(row.getIssued()), escape(row.getDueDate()),
+                        escape(row.getProduct()), escape(row.getPrice()), escape(row.getVat()),
+                        escape(row.getNote())));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Hodnoty s čárkou, uvozovkou nebo koncem řádku se uzavřou do uvozovek
+        private static String escape(Object value) {
+            String text = Objects.toString(value, "");
+            if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+                return "\"" + text.replace("\"", "\"\"") + "\"";
+            }
+            return text;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.InvoiceImportResultDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface InvoiceImportService {
+
+    /**
+     * Naimportuje faktury z proudu NDJSON (jeden JSON objekt na řádek).
+     */
+    InvoiceImportResultDTO importNdjson(InputStream input) throws IOException;
+
+    /**
+     * Naimportuje faktury z CSV s hlavičkou (názvy sloupců odpovídají InvoiceImportRowDTO).
+     */
+    InvoiceImportResultDTO importCsv(InputStream input) throws IOException;
+}
@@ -0,0 +1,403 @@
+package cz.itnetwork.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.dto.InvoiceImportResultDTO;
+import cz.itnetwork.dto.InvoiceImportRowDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Hromadný import faktur.
+ * <p>
+ * Vstup se čte po řádcích, v paměti je vždy jen jedna dávka. Osoby se hledají v mapě IČO -> ID
+ * sestavené jednou na začátku importu, faktury se zapisují dávkovým JDBC insertem
+ * (IDENTITY klíč brání dávkování přes Hibernate) a kniha osob, katalog produktů, statistiky,
+ * log změn pro měsíční přehledy a číselná řada se aktualizují jednou za dávku ve stejné transakci.
+ * Dodaná čísla faktur nesmí být v importu dvakrát ani patřit existující nebo archivované faktuře
+ * a číselná řada se po dávce posune za nejvyšší z nich.
+ */
+@Service
+public class InvoiceImportServiceImpl implements InvoiceImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceImportServiceImpl.class);
+
+    // Maximální počet vypsaných chyb řádků v odpovědi
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO invoice_entity " +
+            "(invoice_number, seller_id, buyer_id, issued, due_date, product, price, vat, note, deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, false)";
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    @Autowired
+    private InvoiceNumberService invoiceNumberService;
+
+    @Autowired
+    private PersonLedgerService personLedgerService;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private InvoiceStatisticsService invoiceStatisticsService;
+
+    @Autowired
+    private InvoiceRollupService invoiceRollupService;
+
+    @Autowired
+    private InvoiceAnalyticsService invoiceAnalyticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Value("${invoice.import.batch-size:1000}")
+    private int batchSize;
+
+    // Tabulka rozdělená na oddíly podle data vystavení nesnese fakturu bez issued
+    @Value("${invoice.partitioning.enabled:false}")
+    private boolean issuedRequired;
+
+    @Override
+    public InvoiceImportResultDTO importNdjson(InputStream input) throws IOException {
+        ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long rowNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    run.add(rowNumber, objectMapper.readValue(line, InvoiceImportRowDTO.class));
+                } catch (JsonProcessingException e) {
+                    run.fail(rowNumber, "Neplatný JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    @Override
+    public InvoiceImportResultDTO importCsv(InputStream input) throws IOException {
+        ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return run.finish();
+            }
+            List<String> header = parseCsvLine(headerLine);
+
+            String line;
+            long rowNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> values = parseCsvLine(line);
+                Map<String, String> fields = new HashMap<>();
+                for (int i = 0; i < header.size() && i < values.size(); i++) {
+                    if (!values.get(i).isEmpty()) {
+                        fields.put(header.get(i).trim(), values.get(i));
+                    }
+                }
+                try {
+                    run.add(rowNumber, objectMapper.convertValue(fields, InvoiceImportRowDTO.class));
+                } catch (IllegalArgumentException e) {
+                    run.fail(rowNumber, "Neplatná hodnota: " + e.getMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    /**
+     * Rozdělí řádek CSV na hodnoty, podporuje uvozovky a zdvojené uvozovky uvnitř hodnoty.
+     * Hodnoty přes více řádků nejsou podporované.
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * Stav jednoho importu - mapa osob, rozpracovaná dávka a výsledek.
+     */
+    private class ImportRun {
+
+        private final Map<String, PersonEntity> personsByIdentificationNumber = new HashMap<>();
+        private final List<InvoiceEntity> batch = new ArrayList<>(batchSize);
+        private final List<Long> batchRows = new ArrayList<>(batchSize);
+        // Dodaná čísla faktur celého importu a archivovaná čísla podle období pro kontrolu duplicit
+        private final Set<String> suppliedNumbers = new HashSet<>();
+        private final Map<String, Set<String>> archivedNumbers = new HashMap<>();
+        private final InvoiceImportResultDTO result = new InvoiceImportResultDTO();
+
+        private ImportRun() {
+            // Pozdější (aktivní) osoba se stejným IČO přepíše dřívější (skrytou).
+            // Zapisovací transakce čte z primární databáze, takže vidí i právě založené osoby
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            for (Object[] row : transactionTemplate.execute(status -> personRepository.findAllIdsAndIdentificationNumbers())) {
+                PersonEntity person = new PersonEntity();
+                person.setId((Long) row[0]);
+                personsByIdentificationNumber.put((String) row[1], person);
+            }
+        }
+
+        private void add(long rowNumber, InvoiceImportRowDTO row) {
+            PersonEntity seller = personsByIdentificationNumber.get(row.getSellerIdentificationNumber());
+            PersonEntity buyer = personsByIdentificationNumber.get(row.getBuyerIdentificationNumber());
+            if (seller == null) {
+                fail(rowNumber, "Prodávající s IČ " + row.getSellerIdentificationNumber() + " nebyl nalezen.");
+                return;
+            }
+            if (buyer == null) {
+                fail(rowNumber, "Kupující s IČ " + row.getBuyerIdentificationNumber() + " nebyl nalezen.");
+                return;
+            }
+            if (row.getPrice() == null) {
+                fail(rowNumber, "Cena musí být uvedena.");
+                return;
+            }
+            if (issuedRequired && row.getIssued() == null) {
+                fail(rowNumber, "Datum vystavení musí být uvedeno.");
+                return;
+            }
+
+            String invoiceNumber = row.getInvoiceNumber() == null || row.getInvoiceNumber().isBlank()
+                    ? null : row.getInvoiceNumber();
+            if (invoiceNumber != null && !suppliedNumbers.add(invoiceNumber)) {
+                fail(rowNumber, "Číslo faktury " + invoiceNumber + " je v importu uvedeno vícekrát.");
+                return;
+            }
+
+            InvoiceEntity invoice = new InvoiceEntity();
+            invoice.setInvoiceNumber(invoiceNumber);
+            invoice.setSeller(seller);
+            invoice.setBuyer(buyer);
+            invoice.setIssued(row.getIssued());
+            invoice.setDueDate(row.getDueDate());
+            invoice.setProduct(row.getProduct());
+            invoice.setPrice(row.getPrice());
+            invoice.setVat(row.getVat());
+            invoice.setNote(row.getNote());
+
+            batch.add(invoice);
+            batchRows.add(rowNumber);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void fail(long rowNumber, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new InvoiceImportResultDTO.RowError(rowNumber, message));
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.executeWithoutResult(status -> writeBatch());
+                result.setImported(result.getImported() + batch.size());
+            } catch (RuntimeException e) {
+                // Transakce dávky je už odvolaná, import pokračuje další dávkou a hlášení řádků zůstane celé
+                logger.warn("Dávka importu faktur selhala", e);
+                String message = "Zápis dávky selhal: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                batchRows.forEach(rowNumber -> fail(rowNumber, message));
+            }
+            batch.clear();
+            batchRows.clear();
+        }
+
+        private void writeBatch() {
+            rejectExistingNumbers();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            // Řada se posune za dodaná čísla dřív, než se z ní přidělí čísla chybějící
+            invoiceNumberService.raiseSequences(batch.stream()
+                    .map(InvoiceEntity::getInvoiceNumber)
+                    .filter(Objects::nonNull)
+                    .toList());
+            int missingNumbers = (int) batch.stream().filter(invoice -> invoice.getInvoiceNumber() == null).count();
+            Iterator<String> numbers = invoiceNumberService.allocateNumbers(missingNumbers).iterator();
+            for (InvoiceEntity invoice : batch) {
+                if (invoice.getInvoiceNumber() == null) {
+                    invoice.setInvoiceNumber(numbers.next());
+                }
+            }
+
+            insertBatch();
+
+            personLedgerService.recordInvoices(batch);
+            invoiceStatisticsService.recordInvoices(batch);
+            invoiceRollupService.recordInvoices(batch);
+            productCatalogService.recordProducts(batch.stream().map(InvoiceEntity::getProduct).toList());
+            invoiceAnalyticsService.recordInvoices(batch);
+            dataVersions.bump(DataAggregate.INVOICES);
+        }
+
+        /**
+         * Vloží dávku jedním JDBC batchem a doplní fakturám ID, která jim přidělila databáze.
+         */
+        private void insertBatch() {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            InvoiceEntity invoice = batch.get(i);
+                            statement.setString(1, invoice.getInvoiceNumber());
+                            statement.setLong(2, invoice.getSeller().getId());
+                            statement.setLong(3, invoice.getBuyer().getId());
+                            statement.setObject(4, invoice.getIssued() != null ? Date.valueOf(invoice.getIssued()) : null, Types.DATE);
+                            statement.setObject(5, invoice.getDueDate() != null ? Date.valueOf(invoice.getDueDate()) : null, Types.DATE);
+                            statement.setString(6, invoice.getProduct());
+                            statement.setLong(7, invoice.getPrice());
+                            statement.setInt(8, invoice.getVat());
+                            statement.setString(9, invoice.getNote());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    },
+                    keyHolder);
+
+            // Klíče jsou ve stejném pořadí jako řádky dávky (MySQL: GENERATED_KEY, H2: ID)
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.size() != batch.size()) {
+                throw new IllegalStateException("Databáze vrátila " + keys.size() + " ID pro "
+                        + batch.size() + " vložených faktur");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+        }
+
+        /**
+         * Vyřadí z dávky faktury s dodaným číslem, které už nese faktura v tabulce nebo v archivu.
+         */
+        private void rejectExistingNumbers() {
+            List<String> numbers = batch.stream()
+                    .map(InvoiceEntity::getInvoiceNumber)
+                    .filter(Objects::nonNull)
+                    .toList();
+            if (numbers.isEmpty()) {
+                return;
+            }
+            Set<String> existing = new HashSet<>(invoiceRepository.findExistingInvoiceNumbers(numbers));
+            for (String invoiceNumber : numbers) {
+                if (invoiceNumber.length() > 6 && archivedNumbers(invoiceNumber.substring(0, 6)).contains(invoiceNumber)) {
+                    existing.add(invoiceNumber);
+                }
+            }
+            if (existing.isEmpty()) {
+                return;
+            }
+
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                String invoiceNumber = batch.get(i).getInvoiceNumber();
+                if (invoiceNumber != null && existing.contains(invoiceNumber)) {
+                    fail(batchRows.get(i), "Faktura s číslem " + invoiceNumber + " již existuje.");
+                    batch.remove(i);
+                    batchRows.remove(i);
+                }
+            }
+        }
+
+        private Set<String> archivedNumbers(String period) {
+            return archivedNumbers.computeIfAbsent(period,
+                    p -> new HashSet<>(invoiceArchiveService.findInvoiceNumbers(p)));
+        }
+
+        private InvoiceImportResultDTO finish() {
+            flush();
+            logger.info("Import faktur dokončen: {} importováno, {} chybných řádků", result.getImported(), result.getFailed());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.InvoiceNumberGapsDTO;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+public interface InvoiceNumberService {
+
+    /**
+     * Přidělí další číslo faktury ve formátu yyyyMM + pořadové číslo, např. 2025081.
+     * Musí se volat uvnitř transakce, která fakturu ukládá.
+     */
+    String allocateNumber();
+
+    /**
+     * Vezme další číslo z bloku rezervovaného tímto uzlem (velikost bloku větší než 1).
+     * Volá se mimo transakci, aby případná rezervace nového bloku nečekala na druhé spojení z poolu.
+     *
+     * @return Číslo faktury, nebo null, pokud se čísla po blocích nerezervují.
+     */
+    String takeReservedNumber();
+
+    /**
+     * Přidělí najednou souvislou řadu čísel faktur (hromadný import) jedním zápisem do číselné řady.
+     */
+    List<String> allocateNumbers(int count);
+
+    /**
+     * Posune číselné řady za nejvyšší z dodaných čísel faktur (import s vlastními čísly),
+     * aby server stejná čísla později nepřidělil znovu. Čísla mimo formát řady se přeskočí.
+     * Musí se volat uvnitř transakce, která faktury ukládá.
+     */
+    void raiseSequences(Collection<String> invoiceNumbers);
+
+    /**
+     * Vrátí náhled dalšího čísla faktury bez jeho rezervace.
+     */
+    String previewNextNumber();
+
+    /**
+     * Vrátí čísla faktur, která byla v daném měsíci přidělena, ale žádná faktura je nenese.
+     */
+    InvoiceNumberGapsDTO findGaps(YearMonth month);
+}
@@ -0,0 +1,243 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.InvoiceNumberGapsDTO;
+import cz.itnetwork.entity.InvoiceNumberSequenceEntity;
+import cz.itnetwork.entity.repository.InvoiceNumberSequenceRepository;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Přidělování čísel faktur z měsíční číselné řady.
+ * <p>
+ * Při velikosti bloku 1 se řada zamyká v transakci ukládané faktury, takže čísla jdou bez mezer.
+ * Při větším bloku si uzel rezervuje celý blok čísel v samostatné transakci ještě před transakcí
+ * faktury a další čísla rozdává z paměti bez dotazu do databáze. Nevyužitá čísla z bloku
+ * (např. po restartu) zůstanou jako mezery, které vypíše {@link #findGaps(YearMonth)}.
+ */
+@Service
+public class InvoiceNumberServiceImpl implements InvoiceNumberService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceNumberServiceImpl.class);
+
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final int PERIOD_LENGTH = 6;
+
+    @Autowired
+    private InvoiceNumberSequenceRepository sequenceRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    @Value("${invoice.numbering.block-size:1}")
+    private int blockSize;
+
+    // Rezervované bloky tohoto uzlu podle období, přístup je synchronizovaný přes this
+    private final Map<String, NumberBlock> reservedBlocks = new HashMap<>();
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String allocateNumber() {
+        String period = YearMonth.now().format(PERIOD_FORMAT);
+        String invoiceNumber = period + reserve(period, 1);
+        logger.info("GENERATED INVOICE NUMBER: {}", invoiceNumber);
+        return invoiceNumber;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NEVER)
+    public String takeReservedNumber() {
+        if (blockSize <= 1) {
+            return null;
+        }
+        String period = YearMonth.now().format(PERIOD_FORMAT);
+        String invoiceNumber = period + nextFromBlock(period);
+        logger.info("GENERATED INVOICE NUMBER: {}", invoiceNumber);
+        return invoiceNumber;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<String> allocateNumbers(int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        String period = YearMonth.now().format(PERIOD_FORMAT);
+        long lastValue = reserve(period, count);
+
+        List<String> numbers = new ArrayList<>(count);
+        for (long sequence = lastValue - count + 1; sequence <= lastValue; sequence++) {
+            numbers.add(period + sequence);
+        }
+        return numbers;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void raiseSequences(Collection<String> invoiceNumbers) {
+        // Řady se zamykají seřazené podle období, aby se souběžné importy nezablokovaly navzájem
+        Map<String, Long> highest = new TreeMap<>();
+        for (String invoiceNumber : invoiceNumbers) {
+            if (invoiceNumber == null || invoiceNumber.length() <= PERIOD_LENGTH
+                    || !invoiceNumber.chars().allMatch(Character::isDigit)) {
+                continue;
+            }
+            String period = invoiceNumber.substring(0, PERIOD_LENGTH);
+            try {
+                YearMonth.parse(period, PERIOD_FORMAT);
+                highest.merge(period, Long.parseLong(invoiceNumber.substring(PERIOD_LENGTH)), Math::max);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                logger.debug("Invoice number outside the sequence format: {}", invoiceNumber);
+            }
+        }
+
+        highest.forEach((period, sequence) -> {
+            InvoiceNumberSequenceEntity entity = lockSequence(period);
+            if (entity.getLastValue() < sequence) {
+                entity.setLastValue(sequence);
+            }
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String previewNextNumber() {
+        String period = YearMonth.now().format(PERIOD_FORMAT);
+        synchronized (this) {
+            NumberBlock block = reservedBlocks.get(period);
+            if (block != null && !block.isExhausted()) {
+                return period + block.next;
+            }
+        }
+        long lastValue = sequenceRepository.findByPeriod(period)
+                .map(InvoiceNumberSequenceEntity::getLastValue)
+                .orElseGet(() -> (long) lastUsedSequence(period));
+        return period + (lastValue + 1);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceNumberGapsDTO findGaps(YearMonth month) {
+        String period = month.format(PERIOD_FORMAT);
+        long lastValue = sequenceRepository.findByPeriod(period)
+                .map(InvoiceNumberSequenceEntity::getLastValue)
+                .orElse(0L);
+
+        Set<Long> used = new HashSet<>();
+        List<String> invoiceNumbers = new ArrayList<>(invoiceRepository.findInvoiceNumbersByPrefix(period + "%"));
+        // Čísla archivovaných faktur nejsou mezery
+        invoiceNumbers.addAll(invoiceArchiveService.findInvoiceNumbers(period));
+        for (String invoiceNumber : invoiceNumbers) {
+            try {
+                used.add(Long.parseLong(invoiceNumber.substring(period.length())));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                logger.debug("Invalid invoice number format: {}", invoiceNumber);
+            }
+        }
+
+        // Čísla z vlastního ještě nevyčerpaného bloku nejsou mezery, jen čekají na použití
+        long reservedFrom = Long.MAX_VALUE;
+        synchronized (this) {
+            NumberBlock block = reservedBlocks.get(period);
+            if (block != null && !block.isExhausted()) {
+                reservedFrom = block.next;
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (long sequence = 1; sequence <= lastValue && sequence < reservedFrom; sequence++) {
+            if (!used.contains(sequence)) {
+                missing.add(period + sequence);
+            }
+        }
+        return new InvoiceNumberGapsDTO(period, lastValue, missing);
+    }
+
+    /**
+     * Vezme číslo z bloku, vyčerpaný blok nahradí novým. Volající nedrží žádné spojení,
+     * takže vlákna čekající na monitor během rezervace bloku neblokují pool.
+     */
+    private synchronized long nextFromBlock(String period) {
+        NumberBlock block = reservedBlocks.get(period);
+        if (block == null || block.isExhausted()) {
+            // Bloky minulých měsíců už se nepoužijí
+            reservedBlocks.keySet().removeIf(p -> !p.equals(period));
+
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            Long lastValue = transactionTemplate.execute(status -> reserve(period, blockSize));
+
+            block = new NumberBlock(lastValue - blockSize + 1, lastValue);
+            reservedBlocks.put(period, block);
+        }
+        return block.next++;
+    }
+
+    /**
+     * Posune řadu období o zadaný počet čísel pod zámkem řádku.
+     *
+     * @return Poslední rezervované pořadové číslo.
+     */
+    private long reserve(String period, int count) {
+        InvoiceNumberSequenceEntity sequence = lockSequence(period);
+        sequence.setLastValue(sequence.getLastValue() + count);
+        return sequence.getLastValue();
+    }
+
+    /**
+     * Načte a zamkne řadu období, chybějící řadu nejdřív založí.
+     */
+    private InvoiceNumberSequenceEntity lockSequence(String period) {
+        return sequenceRepository.findForUpdate(period).orElseGet(() -> {
+            // První faktura měsíce - řada navazuje na případná již existující čísla
+            sequenceRepository.insertIfAbsent(period, lastUsedSequence(period));
+            return sequenceRepository.findForUpdate(period).orElseThrow();
+        });
+    }
+
+    private int lastUsedSequence(String period) {
+        return invoiceRepository.findLastInvoiceNumberInMonth(period + "%").orElse(0);
+    }
+
+    private static class NumberBlock {
+
+        private long next;
+        private final long end;
+
+        private NumberBlock(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+
+        private boolean isExhausted() {
+            return next > end;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.InvoiceRollupStatusDTO;
+import cz.itnetwork.dto.PersonRollupDTO;
+import cz.itnetwork.dto.ProductRollupDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Měsíční přehledy faktur podle prodávajícího, kupujícího a produktu.
+ * <p>
+ * Zápis faktury jen přidá řádek do logu změn ve stejné transakci, do přehledů ho promítne plánovaná úloha.
+ * Přehledy tak mohou za fakturami o chvíli zaostávat, stav ukazuje {@link #getStatus()}.
+ */
+public interface InvoiceRollupService {
+
+    /**
+     * Zapíše přidání faktury do logu změn.
+     */
+    void recordInvoice(InvoiceEntity invoice);
+
+    /**
+     * Zapíše smazání faktury do logu změn.
+     */
+    void revertInvoice(InvoiceEntity invoice);
+
+    /**
+     * Zapíše úpravu faktury do logu změn (odečtení původních a přičtení nových hodnot).
+     */
+    void replaceInvoice(InvoiceEntity previous, InvoiceEntity updated);
+
+    /**
+     * Zapíše přidání více faktur najednou (hromadný import), jedním dávkovým insertem.
+     */
+    void recordInvoices(Collection<InvoiceEntity> invoices);
+
+    /**
+     * Promítne čekající změny do přehledů, vrací počet zpracovaných změn.
+     */
+    int refresh();
+
+    /**
+     * Přepočítá přehledy od nuly z tabulky faktur i archivu, vrací počet řádků přehledů.
+     */
+    int rebuild();
+
+    /**
+     * Vrátí přehled podle prodávajících za měsíce od-do (včetně), součty za celý rozsah nebo po měsících.
+     */
+    List<PersonRollupDTO> getSellerRollups(YearMonth from, YearMonth to, Long personId, boolean monthly);
+
+    /**
+     * Vrátí přehled podle kupujících za měsíce od-do (včetně), součty za celý rozsah nebo po měsících.
+     */
+    List<PersonRollupDTO> getBuyerRollups(YearMonth from, YearMonth to, Long personId, boolean monthly);
+
+    /**
+     * Vrátí přehled podle produktů za měsíce od-do (včetně), součty za celý rozsah nebo po měsících.
+     */
+    List<ProductRollupDTO> getProductRollups(YearMonth from, YearMonth to, String product, boolean monthly);
+
+    InvoiceRollupStatusDTO getStatus();
+}
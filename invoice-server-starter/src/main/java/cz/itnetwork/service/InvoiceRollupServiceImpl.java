@@ -0,0 +1,344 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.configuration.DataSourceRouting;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.dto.InvoiceRollupStatusDTO;
+import cz.itnetwork.dto.PersonRollupDTO;
+import cz.itnetwork.dto.ProductRollupDTO;
+import cz.itnetwork.entity.InvoiceChangeEntity;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.InvoiceRollupWatermarkEntity;
+import cz.itnetwork.entity.InvoiceStatisticsBucketEntity;
+import cz.itnetwork.entity.repository.BuyerMonthlyRollupRepository;
+import cz.itnetwork.entity.repository.InvoiceChangeRepository;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.InvoiceRollupWatermarkRepository;
+import cz.itnetwork.entity.repository.ProductMonthlyRollupRepository;
+import cz.itnetwork.entity.repository.SellerMonthlyRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Měsíční přehledy udržované z logu změn faktur.
+ * <p>
+ * Úloha čte nejstarší změny po dávkách, sečte je po klíčích přehledů, přičte jedním upsertem na klíč
+ * a zpracované změny smaže - vše v jedné transakci. Log se tak vyprazdňuje postupně a změna z transakce,
+ * která se potvrdila později než novější změny, se nepřeskočí. Poslední zpracovaná změna a čas zpracování
+ * se ukládají jako watermark.
+ * <p>
+ * Každá dávka i přepočet nejdřív zamknou řádek watermarku, takže na více uzlech se tatáž změna
+ * nepromítne dvakrát - synchronized chrání jen v rámci jedné instance.
+ */
+@Service
+public class InvoiceRollupServiceImpl implements InvoiceRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceRollupServiceImpl.class);
+
+    private static final String INSERT_CHANGE_SQL = "INSERT INTO invoice_change " +
+            "(period, seller_id, buyer_id, product, invoices_count, price_sum, vat_sum) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private InvoiceChangeRepository changeRepository;
+
+    @Autowired
+    private InvoiceRollupWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private SellerMonthlyRollupRepository sellerRollupRepository;
+
+    @Autowired
+    private BuyerMonthlyRollupRepository buyerRollupRepository;
+
+    @Autowired
+    private ProductMonthlyRollupRepository productRollupRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.rollups.batch-size:10000}")
+    private int batchSize;
+
+    // Zápisy se vždy připojí k transakci volající služby faktur
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInvoice(InvoiceEntity invoice) {
+        insertChanges(List.of(toChange(invoice, 1)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertInvoice(InvoiceEntity invoice) {
+        insertChanges(List.of(toChange(invoice, -1)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void replaceInvoice(InvoiceEntity previous, InvoiceEntity updated) {
+        insertChanges(List.of(toChange(previous, -1), toChange(updated, 1)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInvoices(Collection<InvoiceEntity> invoices) {
+        insertChanges(invoices.stream().map(invoice -> toChange(invoice, 1)).toList());
+    }
+
+    @Override
+    @Scheduled(cron = "${invoice.rollups.cron:0 * * * * *}")
+    public synchronized int refresh() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int processed = 0;
+        int applied;
+        do {
+            applied = transactionTemplate.execute(status -> applyPendingChanges());
+            processed += applied;
+        } while (applied == batchSize);
+
+        if (processed > 0) {
+            logger.info("Měsíční přehledy aktualizovány, počet změn: {}", processed);
+        }
+        return processed;
+    }
+
+    // Vlastní transakce uvnitř zámku, aby úloha nezačala číst log změn dřív, než se přepočet potvrdí
+    @Override
+    public synchronized int rebuild() {
+        int rows = new TransactionTemplate(transactionManager).execute(status -> {
+            watermarkRepository.insertIfAbsent(InvoiceRollupWatermarkEntity.ROLLUPS);
+            long lastChangeId = watermarkRepository.findForUpdate(InvoiceRollupWatermarkEntity.ROLLUPS)
+                    .orElseThrow()
+                    .getLastChangeId();
+            changeRepository.deleteAllRows();
+            sellerRollupRepository.deleteAllRows();
+            buyerRollupRepository.deleteAllRows();
+            productRollupRepository.deleteAllRows();
+
+            sellerRollupRepository.insertRecomputedRows();
+            buyerRollupRepository.insertRecomputedRows();
+            productRollupRepository.insertRecomputedRows();
+            // Archivované faktury v tabulce nejsou, přičtou se po blocích
+            invoiceArchiveService.forEachBlock(invoices -> applyChanges(invoices.stream()
+                    .map(invoice -> toChange(invoice, 1))
+                    .toList()));
+
+            saveWatermark(lastChangeId);
+            dataVersions.bump(DataAggregate.INVOICES);
+            return (int) (sellerRollupRepository.count() + buyerRollupRepository.count() + productRollupRepository.count());
+        });
+        logger.info("Měsíční přehledy přepočítány, počet řádků: {}", rows);
+        return rows;
+    }
+
+    /**
+     * Při prvním startu nad existující databází přehledy ještě neexistují, proto se dopočítají.
+     * Rozhoduje primární databáze, zpožděná replika by vyvolala zbytečný přepočet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        boolean empty = DataSourceRouting.onPrimary(
+                () -> !watermarkRepository.existsById(InvoiceRollupWatermarkEntity.ROLLUPS)
+                        && (invoiceRepository.count() > 0 || invoiceArchiveService.getHorizon() != null));
+        if (empty) {
+            rebuild();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PersonRollupDTO> getSellerRollups(YearMonth from, YearMonth to, Long personId, boolean monthly) {
+        validateRange(from, to);
+        return monthly
+                ? sellerRollupRepository.findMonthly(toPeriod(from), toPeriod(to), personId)
+                : sellerRollupRepository.sumByPerson(toPeriod(from), toPeriod(to), personId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PersonRollupDTO> getBuyerRollups(YearMonth from, YearMonth to, Long personId, boolean monthly) {
+        validateRange(from, to);
+        return monthly
+                ? buyerRollupRepository.findMonthly(toPeriod(from), toPeriod(to), personId)
+                : buyerRollupRepository.sumByPerson(toPeriod(from), toPeriod(to), personId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductRollupDTO> getProductRollups(YearMonth from, YearMonth to, String product, boolean monthly) {
+        validateRange(from, to);
+        return monthly
+                ? productRollupRepository.findMonthly(toPeriod(from), toPeriod(to), product)
+                : productRollupRepository.sumByProduct(toPeriod(from), toPeriod(to), product);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceRollupStatusDTO getStatus() {
+        InvoiceRollupWatermarkEntity watermark = watermarkRepository.findById(InvoiceRollupWatermarkEntity.ROLLUPS).orElse(null);
+        return new InvoiceRollupStatusDTO(
+                watermark != null ? watermark.getLastChangeId() : null,
+                watermark != null ? watermark.getUpdatedAt() : null,
+                changeRepository.count());
+    }
+
+    private int applyPendingChanges() {
+        if (!lockWatermark()) {
+            return 0;
+        }
+        List<InvoiceChangeEntity> changes = changeRepository.findOldest(PageRequest.of(0, batchSize));
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        applyChanges(changes);
+
+        List<Long> ids = changes.stream().map(InvoiceChangeEntity::getId).toList();
+        changeRepository.deleteAllByIdInBatch(ids);
+        saveWatermark(ids.get(ids.size() - 1));
+        dataVersions.bump(DataAggregate.INVOICES);
+        return changes.size();
+    }
+
+    /**
+     * Zamkne watermark do konce transakce dávky. Uzel, který zámek nedostal, čeká a pak čte až změny,
+     * které první uzel nesmazal. Chybějící watermark se založí jen tehdy, když je co zpracovat
+     * (jinak by rebuildIfEmpty přehledy nad existující databází nedopočítal).
+     *
+     * @return false, pokud watermark neexistuje a log změn je prázdný
+     */
+    private boolean lockWatermark() {
+        if (watermarkRepository.findForUpdate(InvoiceRollupWatermarkEntity.ROLLUPS).isPresent()) {
+            return true;
+        }
+        if (changeRepository.findOldest(PageRequest.of(0, 1)).isEmpty()) {
+            return false;
+        }
+        watermarkRepository.insertIfAbsent(InvoiceRollupWatermarkEntity.ROLLUPS);
+        return watermarkRepository.findForUpdate(InvoiceRollupWatermarkEntity.ROLLUPS).isPresent();
+    }
+
+    /**
+     * Sečte změny po klíčích přehledů a každý klíč zapíše jedním upsertem, vzestupně podle období a klíče.
+     */
+    private void applyChanges(List<InvoiceChangeEntity> changes) {
+        Map<Integer, Map<Long, long[]>> sellerDeltas = new TreeMap<>();
+        Map<Integer, Map<Long, long[]>> buyerDeltas = new TreeMap<>();
+        Map<Integer, Map<String, long[]>> productDeltas = new TreeMap<>();
+        for (InvoiceChangeEntity change : changes) {
+            addChange(sellerDeltas, change.getSellerId(), change);
+            addChange(buyerDeltas, change.getBuyerId(), change);
+            addChange(productDeltas, change.getProduct(), change);
+        }
+
+        forEachDelta(sellerDeltas, (period, personId, delta) ->
+                sellerRollupRepository.applyDelta(period, personId, delta[0], delta[1], delta[2]));
+        forEachDelta(buyerDeltas, (period, personId, delta) ->
+                buyerRollupRepository.applyDelta(period, personId, delta[0], delta[1], delta[2]));
+        forEachDelta(productDeltas, (period, product, delta) ->
+                productRollupRepository.applyDelta(period, product, delta[0], delta[1], delta[2]));
+    }
+
+    private void insertChanges(List<InvoiceChangeEntity> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE_SQL, changes, changes.size(), (statement, change) -> {
+            statement.setInt(1, change.getPeriod());
+            statement.setObject(2, change.getSellerId(), Types.BIGINT);
+            statement.setObject(3, change.getBuyerId(), Types.BIGINT);
+            statement.setString(4, change.getProduct());
+            statement.setInt(5, change.getInvoicesCount());
+            statement.setLong(6, change.getPriceSum());
+            statement.setLong(7, change.getVatSum());
+        });
+    }
+
+    private void saveWatermark(long lastChangeId) {
+        InvoiceRollupWatermarkEntity watermark = watermarkRepository.findById(InvoiceRollupWatermarkEntity.ROLLUPS)
+                .orElseGet(InvoiceRollupWatermarkEntity::new);
+        watermark.setName(InvoiceRollupWatermarkEntity.ROLLUPS);
+        watermark.setLastChangeId(lastChangeId);
+        watermark.setUpdatedAt(LocalDateTime.now());
+        watermarkRepository.save(watermark);
+    }
+
+    private static InvoiceChangeEntity toChange(InvoiceEntity invoice, int sign) {
+        long price = invoice.getPrice() != null ? invoice.getPrice() : 0L;
+        InvoiceChangeEntity change = new InvoiceChangeEntity();
+        change.setPeriod(invoice.getIssued() != null
+                ? toPeriod(YearMonth.from(invoice.getIssued()))
+                : InvoiceStatisticsBucketEntity.UNKNOWN_PERIOD);
+        change.setSellerId(invoice.getSeller() != null ? invoice.getSeller().getId() : null);
+        change.setBuyerId(invoice.getBuyer() != null ? invoice.getBuyer().getId() : null);
+        change.setProduct(invoice.getProduct());
+        change.setInvoicesCount(sign);
+        change.setPriceSum(sign * price);
+        change.setVatSum(sign * (price * invoice.getVat() / 100));
+        return change;
+    }
+
+    private static <K> void addChange(Map<Integer, Map<K, long[]>> deltas, K key, InvoiceChangeEntity change) {
+        if (key == null) {
+            return;
+        }
+        long[] delta = deltas.computeIfAbsent(change.getPeriod(), period -> new TreeMap<>())
+                .computeIfAbsent(key, k -> new long[3]);
+        delta[0] += change.getInvoicesCount();
+        delta[1] += change.getPriceSum();
+        delta[2] += change.getVatSum();
+    }
+
+    private static <K> void forEachDelta(Map<Integer, Map<K, long[]>> deltas, DeltaConsumer<K> consumer) {
+        deltas.forEach((period, keys) -> keys.forEach((key, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0 || delta[2] != 0) {
+                consumer.accept(period, key, delta);
+            }
+        }));
+    }
+
+    private static void validateRange(YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Začátek období musí být před jeho koncem.");
+        }
+    }
+
+    private static int toPeriod(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    @FunctionalInterface
+    private interface DeltaConsumer<K> {
+
+        void accept(int period, K key, long[] delta);
+    }
+}
@@ -1,12 +1,25 @@
 package cz.itnetwork.service;
 
+import cz.itnetwork.constant.ExportFormat;
+import cz.itnetwork.constant.PersonRole;
+import cz.itnetwork.constant.StatisticsGranularity;
 import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceNumberGapsDTO;
+import cz.itnetwork.dto.InvoicePeriodStatisticsDTO;
 import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.dto.InvoiceSummaryDTO;
+import cz.itnetwork.dto.InvoiceWindowDTO;
+import cz.itnetwork.dto.PersonInvoicesDTO;
+import cz.itnetwork.dto.ProductDTO;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.filter.InvoiceFilter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.YearMonth;
 import java.util.List;
-import java.util.Map;
 
 public interface InvoiceService {
 
@@ -16,12 +29,30 @@ public interface InvoiceService {
     InvoiceDTO addInvoice(InvoiceDTO invoiceDTO);
 
     /**
-     * Vrátí seznam všech faktur s volitelnými filtry a paginací.
+     * Vrátí seznam všech faktur s volitelnými filtry a paginací, řádky jsou zúžené na údaje pro výpis.
+     * Archivované faktury se přidají, pokud rozsah dat filtru sahá před hranici archivu (i bez data od).
      */
-    Page<InvoiceDTO> getInvoices(Map<String, String> filterParams, Pageable pageable);
+    Page<InvoiceSummaryDTO> getInvoices(InvoiceFilter filter, Pageable pageable);
 
     /**
-     * Vrátí detail faktury podle ID.
+     * Vrátí stránku faktur, které osoba vystavila (SELLER) nebo přijala (BUYER), včetně archivovaných.
+     * Filtry a řazení jako u getInvoices, bez zadaného řazení podle ID. Součty za celý filtr jen s withTotals.
+     */
+    PersonInvoicesDTO getPersonInvoices(PersonEntity person, PersonRole role, InvoiceFilter filter,
+                                        Pageable pageable, boolean withTotals);
+
+    /**
+     * Vrátí stránku faktur se stejnými filtry jako getInvoices, ale stránkovanou kurzorem (bez COUNT a OFFSET).
+     */
+    InvoiceWindowDTO getInvoicesByCursor(InvoiceFilter filter, String cursor, Pageable pageable);
+
+    /**
+     * Zapíše všechny faktury odpovídající filtrům do výstupu ve zvoleném formátu, s konstantní spotřebou paměti.
+     */
+    void exportInvoices(InvoiceFilter filter, ExportFormat format, OutputStream output) throws IOException;
+
+    /**
+     * Vrátí detail faktury podle ID, i archivované.
      */
     InvoiceDTO getInvoiceDetail(Long invoiceId);
 
@@ -40,6 +71,22 @@ public interface InvoiceService {
      */
     InvoiceStatisticsDTO getInvoiceStatistics();
 
+    /**
+     * Vrátí statistiky faktur za období od-do seskupené po měsících, čtvrtletích nebo letech.
+     */
+    List<InvoicePeriodStatisticsDTO> getPeriodStatistics(YearMonth from, YearMonth to,
+                                                         StatisticsGranularity granularity, boolean yearOverYear);
+
+    /**
+     * Přepočítá měsíční statistiky faktur od nuly, vrací počet období.
+     */
+    int rebuildStatistics();
+
+    /**
+     * Přesune staré faktury do archivu, vrací počet přesunutých faktur.
+     */
+    int archiveInvoices();
+
     /**
      * Vrátí ID poslední faktury (pokud existuje).
      */
@@ -50,8 +97,23 @@ public interface InvoiceService {
      */
     String getNextInvoiceNumber();
 
+    /**
+     * Vrátí přidělená čísla faktur daného měsíce, která žádná faktura nenese.
+     */
+    InvoiceNumberGapsDTO getInvoiceNumberGaps(YearMonth month);
+
     /**
      * Vrátí seznam jedinečných názvů produktů z databáze.
      */
     List<String> getProducts();
+
+    /**
+     * Vrátí stránku produktů začínajících zadaným prefixem (našeptávač).
+     */
+    List<ProductDTO> searchProducts(String prefix, int page, int size);
+
+    /**
+     * Přepočítá katalog produktů od nuly, vrací počet produktů.
+     */
+    int rebuildProducts();
 }
\ No newline at end of file
@@ -1,132 +1,518 @@
 package cz.itnetwork.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.constant.ExportFormat;
+import cz.itnetwork.constant.PersonRole;
+import cz.itnetwork.constant.StatisticsGranularity;
 import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceNumberGapsDTO;
+import cz.itnetwork.dto.InvoicePeriodStatisticsDTO;
 import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.dto.InvoiceSummaryDTO;
+import cz.itnetwork.dto.InvoiceTotalsDTO;
+import cz.itnetwork.dto.InvoiceWindowDTO;
+import cz.itnetwork.dto.PersonInvoicesDTO;
+import cz.itnetwork.dto.ProductDTO;
 import cz.itnetwork.dto.mapper.InvoiceMapper;
 import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.InvoiceEntity_;
 import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.PersonEntity_;
+import cz.itnetwork.entity.filter.InvoiceFilter;
 import cz.itnetwork.entity.repository.InvoiceRepository;
-import cz.itnetwork.entity.repository.PersonRepository;
-import jakarta.persistence.criteria.Predicate;
+import cz.itnetwork.entity.repository.specification.InvoiceKeysetSpecification;
+import cz.itnetwork.entity.repository.specification.InvoiceSpecification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.webjars.NotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
 @Service
 public class InvoiceServiceImpl implements InvoiceService {
 
     private static final Logger logger = LoggerFactory.getLogger(InvoiceServiceImpl.class);
 
+    // Vlastnosti řazení seznamu, které umí seřadit i řádky z archivu
+    private static final Map<String, Comparator<InvoiceSummaryDTO>> SUMMARY_ORDER = Map.ofEntries(
+            Map.entry("id", byValue(InvoiceSummaryDTO::getId)),
+            Map.entry("invoiceNumber", byText(InvoiceSummaryDTO::getInvoiceNumber)),
+            Map.entry("issued", byValue(InvoiceSummaryDTO::getIssued)),
+            Map.entry("dueDate", byValue(InvoiceSummaryDTO::getDueDate)),
+            Map.entry("product", byText(InvoiceSummaryDTO::getProduct)),
+            Map.entry("price", byValue(InvoiceSummaryDTO::getPrice)),
+            Map.entry("vat", byValue(InvoiceSummaryDTO::getVat)),
+            Map.entry("seller.id", byValue(invoice -> invoice.getSeller() != null ? invoice.getSeller().getId() : null)),
+            Map.entry("seller.name", byText(invoice -> invoice.getSeller() != null ? invoice.getSeller().getName() : null)),
+            Map.entry("buyer.id", byValue(invoice -> invoice.getBuyer() != null ? invoice.getBuyer().getId() : null)),
+            Map.entry("buyer.name", byText(invoice -> invoice.getBuyer() != null ? invoice.getBuyer().getName() : null)));
+
     @Autowired
     private InvoiceRepository invoiceRepository;
 
     @Autowired
-    private PersonRepository personRepository;
+    private PersonCache personCache;
 
     @Autowired
     private InvoiceMapper invoiceMapper;
 
+    @Autowired
+    private PersonLedgerService personLedgerService;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private InvoiceNumberService invoiceNumberService;
+
+    @Autowired
+    private InvoiceCursorCodec invoiceCursorCodec;
+
+    @Autowired
+    private InvoiceStatisticsService invoiceStatisticsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    @Autowired
+    private InvoiceRollupService invoiceRollupService;
+
+    @Autowired
+    private InvoiceAnalyticsService invoiceAnalyticsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${invoice.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Value("${invoice.search.fulltext:true}")
+    private boolean fullTextEnabled;
+
+    // Tabulka rozdělená na oddíly podle data vystavení má issued v primárním klíči, NULL tam nejde
+    @Value("${invoice.partitioning.enabled:false}")
+    private boolean issuedRequired;
+
+    @Value("${invoice.search.min-token-size:3}")
+    private int fullTextMinTokenSize;
+
     @Override
-    @Transactional
     public InvoiceDTO addInvoice(InvoiceDTO invoiceDTO) {
         if (invoiceDTO.getSeller() == null || invoiceDTO.getBuyer() == null) {
             throw new IllegalArgumentException("Prodávající a kupující musí být uvedeni");
         }
+        checkIssued(invoiceDTO);
 
-        PersonEntity seller = personRepository.findById(invoiceDTO.getSeller().getId())
-                .orElseThrow(() -> new NotFoundException("Prodávající s ID " + invoiceDTO.getSeller().getId() + " nebyl nalezen."));
+        // Číslo z bloku se bere dřív, než transakce faktury obsadí spojení z poolu
+        String reservedNumber = invoiceNumberService.takeReservedNumber();
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> insertInvoice(invoiceDTO, reservedNumber));
+    }
 
-        PersonEntity buyer = personRepository.findById(invoiceDTO.getBuyer().getId())
-                .orElseThrow(() -> new NotFoundException("Kupující s ID " + invoiceDTO.getBuyer().getId() + " nebyl nalezen."));
+    private InvoiceDTO insertInvoice(InvoiceDTO invoiceDTO, String reservedNumber) {
+        PersonEntity seller = findPerson(invoiceDTO.getSeller().getId(), "Prodávající");
+        PersonEntity buyer = findPerson(invoiceDTO.getBuyer().getId(), "Kupující");
 
         InvoiceEntity newInvoice = invoiceMapper.toEntity(invoiceDTO);
         newInvoice.setSeller(seller);
         newInvoice.setBuyer(buyer);
+        // Číslo přiděluje server, číslo z formuláře je jen náhled
+        newInvoice.setInvoiceNumber(reservedNumber != null ? reservedNumber : invoiceNumberService.allocateNumber());
 
         InvoiceEntity savedInvoice = invoiceRepository.save(newInvoice);
+        personLedgerService.recordInvoice(savedInvoice);
+        invoiceStatisticsService.recordInvoice(savedInvoice);
+        invoiceRollupService.recordInvoice(savedInvoice);
+        productCatalogService.recordProduct(savedInvoice.getProduct());
+        invoiceAnalyticsService.recordInvoice(savedInvoice);
+        dataVersions.bump(DataAggregate.INVOICES);
         return invoiceMapper.toDTO(savedInvoice);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<InvoiceDTO> getInvoices(Map<String, String> filterParams, Pageable pageable) {
-        Specification<InvoiceEntity> spec = (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            // Časový filtr - od data a do data
-            if (filterParams.containsKey("dateFrom") && !filterParams.get("dateFrom").isEmpty()) {
-                try {
-                    LocalDate dateFrom = LocalDate.parse(filterParams.get("dateFrom"));
-                    predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("issued"), dateFrom));
-                } catch (DateTimeParseException e) {
-                    logger.debug("Invalid dateFrom format: {}", filterParams.get("dateFrom"));
-                }
-            }
+    public Page<InvoiceSummaryDTO> getInvoices(InvoiceFilter filter, Pageable pageable) {
+        Specification<InvoiceEntity> spec = buildSpecification(filter);
 
-            if (filterParams.containsKey("dateTo") && !filterParams.get("dateTo").isEmpty()) {
-                try {
-                    LocalDate dateTo = LocalDate.parse(filterParams.get("dateTo"));
-                    predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("issued"), dateTo));
-                } catch (DateTimeParseException e) {
-                    logger.debug("Invalid dateTo format: {}", filterParams.get("dateTo"));
-                }
-            }
+        List<InvoiceEntity> archived = reachesArchive(filter) ? invoiceArchiveService.find(filter) : null;
+        return findInvoicePage(spec, pageable, archived, () -> invoiceRepository.count(spec));
+    }
 
-            // Ošetření záporných cen je v controlleru
-            if (filterParams.containsKey("minPrice") && !filterParams.get("minPrice").isEmpty()) {
-                try {
-                    double minPrice = Double.parseDouble(filterParams.get("minPrice"));
-                    predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), minPrice));
-                } catch (NumberFormatException e) {
-                    logger.debug("Invalid minPrice format: {}", filterParams.get("minPrice"));
-                }
+    @Override
+    @Transactional(readOnly = true)
+    public PersonInvoicesDTO getPersonInvoices(PersonEntity person, PersonRole role, InvoiceFilter filter,
+                                               Pageable pageable, boolean withTotals) {
+        // V tabulce podmínka přímo na seller_id / buyer_id (index s issued), archiv hledá osobu podle IČO
+        InvoiceFilter otherFilters = copyOf(filter);
+        InvoiceFilter archiveFilter = copyOf(filter);
+        if (role == PersonRole.SELLER) {
+            otherFilters.setSellerIdentificationNumber(null);
+            archiveFilter.setSellerIdentificationNumber(person.getIdentificationNumber());
+        } else {
+            otherFilters.setBuyerIdentificationNumber(null);
+            archiveFilter.setBuyerIdentificationNumber(person.getIdentificationNumber());
+        }
+        Specification<InvoiceEntity> spec = buildSpecification(otherFilters).and((root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get(role == PersonRole.SELLER ? InvoiceEntity_.seller : InvoiceEntity_.buyer)
+                        .get(PersonEntity_.id), person.getId()));
+        Pageable sorted = pageable.getSort().isSorted()
+                ? pageable
+                : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"));
+
+        List<InvoiceEntity> archived = reachesArchive(filter) ? invoiceArchiveService.find(archiveFilter) : null;
+
+        if (!withTotals) {
+            return new PersonInvoicesDTO(findInvoicePage(spec, sorted, archived, () -> invoiceRepository.count(spec)), null);
+        }
+        // Počet z tabulky je součástí součtů, stránka už COUNT nepotřebuje
+        InvoiceTotalsDTO hotTotals = sumInvoices(spec);
+        Page<InvoiceSummaryDTO> invoices = findInvoicePage(spec, sorted, archived, hotTotals::getInvoicesCount);
+        return new PersonInvoicesDTO(invoices, archived != null ? addTotals(hotTotals, archived) : hotTotals);
+    }
+
+    /**
+     * Archiv se prochází, když rozsah dat filtru sahá před hranici archivace - bez data od vždy
+     * (i když je zadané jen datum do).
+     */
+    private boolean reachesArchive(InvoiceFilter filter) {
+        LocalDate horizon = invoiceArchiveService.getHorizon();
+        return horizon != null && (filter.getDateFrom() == null || filter.getDateFrom().isBefore(horizon));
+    }
+
+    /**
+     * Stránka z tabulky, případně spojená s archivem.
+     *
+     * @param archived Vyhovující archivované faktury, null = archiv se neprochází.
+     * @param hotCount Počet vyhovujících faktur v tabulce, volá se jen když je potřeba.
+     */
+    private Page<InvoiceSummaryDTO> findInvoicePage(Specification<InvoiceEntity> spec, Pageable pageable,
+                                                    List<InvoiceEntity> archived, LongSupplier hotCount) {
+        if (archived != null) {
+            return getInvoicesWithArchive(archived, spec, pageable, hotCount);
+        }
+        List<InvoiceSummaryDTO> invoices = pageable.isPaged()
+                ? findInvoiceSummaries(spec, pageable.getSort(), (int) pageable.getOffset(), pageable.getPageSize())
+                : findInvoiceSummaries(spec, pageable.getSort(), 0, -1);
+        return PageableExecutionUtils.getPage(invoices, pageable, hotCount);
+    }
+
+    /**
+     * Stránka složená z tabulky a archivu. Z tabulky stačí prvních offset + size řádků ve stejném řazení,
+     * archivní řádky se seřadí v paměti, obě části se spojí a ořízne se požadovaná stránka.
+     */
+    private Page<InvoiceSummaryDTO> getInvoicesWithArchive(List<InvoiceEntity> archivedInvoices, Specification<InvoiceEntity> spec,
+                                                           Pageable pageable, LongSupplier hotCount) {
+        Comparator<InvoiceSummaryDTO> comparator = toSummaryComparator(pageable.getSort());
+        // ID rozhoduje při shodě i v databázi, aby obě části byly seřazené stejně
+        Sort sort = pageable.getSort().getOrderFor("id") == null ? pageable.getSort().and(Sort.by("id")) : pageable.getSort();
+
+        List<InvoiceSummaryDTO> archived = archivedInvoices.stream()
+                .map(InvoiceServiceImpl::toSummary)
+                .toList();
+        List<InvoiceSummaryDTO> hot = pageable.isPaged()
+                ? findInvoiceSummaries(spec, sort, 0, (int) pageable.getOffset() + pageable.getPageSize())
+                : findInvoiceSummaries(spec, sort, 0, -1);
+
+        List<InvoiceSummaryDTO> merged = Stream.concat(hot.stream(), archived.stream())
+                .sorted(comparator)
+                .toList();
+        if (pageable.isPaged()) {
+            int from = (int) Math.min(pageable.getOffset(), merged.size());
+            merged = merged.subList(from, Math.min(from + pageable.getPageSize(), merged.size()));
+        }
+        return new PageImpl<>(merged, pageable, hotCount.getAsLong() + archived.size());
+    }
+
+    /**
+     * Počet a součty faktur z tabulky jedním agregačním dotazem se stejnými podmínkami jako stránka.
+     */
+    private InvoiceTotalsDTO sumInvoices(Specification<InvoiceEntity> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<InvoiceEntity> root = query.from(InvoiceEntity.class);
+        Expression<Long> price = root.get(InvoiceEntity_.price);
+        // DPH zaokrouhlené dolů po fakturách, stejně jako v měsíčních statistikách
+        Expression<Number> vat = criteriaBuilder.floor(
+                criteriaBuilder.quot(criteriaBuilder.prod(price, root.get(InvoiceEntity_.vat)), 100));
+
+        query.multiselect(criteriaBuilder.count(root), criteriaBuilder.sum(price), criteriaBuilder.sum(vat));
+        query.where(spec.toPredicate(root, query, criteriaBuilder));
+        // Fulltextový filtr může přidat řazení podle relevance, které agregační dotaz nesnese
+        query.orderBy(List.of());
+
+        Tuple sums = entityManager.createQuery(query).getSingleResult();
+        return new InvoiceTotalsDTO(toLong(sums.get(0)), toLong(sums.get(1)), toLong(sums.get(2)));
+    }
+
+    private static InvoiceTotalsDTO addTotals(InvoiceTotalsDTO totals, List<InvoiceEntity> invoices) {
+        long priceSum = totals.getPriceSum();
+        long vatSum = totals.getVatSum();
+        for (InvoiceEntity invoice : invoices) {
+            long price = invoice.getPrice() != null ? invoice.getPrice() : 0L;
+            priceSum += price;
+            vatSum += price * invoice.getVat() / 100;
+        }
+        return new InvoiceTotalsDTO(totals.getInvoicesCount() + invoices.size(), priceSum, vatSum);
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static InvoiceFilter copyOf(InvoiceFilter filter) {
+        InvoiceFilter copy = new InvoiceFilter();
+        copy.setDateFrom(filter.getDateFrom());
+        copy.setDateTo(filter.getDateTo());
+        copy.setMinPrice(filter.getMinPrice());
+        copy.setMaxPrice(filter.getMaxPrice());
+        copy.setSellerIdentificationNumber(filter.getSellerIdentificationNumber());
+        copy.setBuyerIdentificationNumber(filter.getBuyerIdentificationNumber());
+        copy.setProduct(filter.getProduct());
+        copy.setText(filter.getText());
+        return copy;
+    }
+
+    /**
+     * Jeden SELECT jen s potřebnými sloupci, osoby se nenačítají jako entity.
+     *
+     * @param maxResults Nejvyšší počet řádků, záporná hodnota = bez omezení.
+     */
+    private List<InvoiceSummaryDTO> findInvoiceSummaries(Specification<InvoiceEntity> spec, Sort sort,
+                                                         int firstResult, int maxResults) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<InvoiceSummaryDTO> query = criteriaBuilder.createQuery(InvoiceSummaryDTO.class);
+        Root<InvoiceEntity> root = query.from(InvoiceEntity.class);
+        Join<InvoiceEntity, PersonEntity> seller = root.join(InvoiceEntity_.seller, JoinType.LEFT);
+        Join<InvoiceEntity, PersonEntity> buyer = root.join(InvoiceEntity_.buyer, JoinType.LEFT);
+
+        query.select(criteriaBuilder.construct(InvoiceSummaryDTO.class,
+                root.get(InvoiceEntity_.id), root.get(InvoiceEntity_.invoiceNumber), root.get(InvoiceEntity_.issued), root.get(InvoiceEntity_.dueDate),
+                root.get(InvoiceEntity_.product), root.get(InvoiceEntity_.price), root.get(InvoiceEntity_.vat),
+                seller.get(PersonEntity_.id), seller.get(PersonEntity_.name), buyer.get(PersonEntity_.id), buyer.get(PersonEntity_.name)));
+        query.where(spec.toPredicate(root, query, criteriaBuilder));
+        if (sort.isSorted()) {
+            // Řazení podle seller.name / buyer.name použije již připojené osoby
+            query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+
+        TypedQuery<InvoiceSummaryDTO> typedQuery = entityManager.createQuery(query);
+        if (maxResults >= 0) {
+            typedQuery.setFirstResult(firstResult);
+            typedQuery.setMaxResults(maxResults);
+        }
+        return typedQuery.getResultList();
+    }
+
+    /**
+     * Řazení řádků seznamu v paměti podle stejných vlastností jako v dotazu, nakonec vždy podle ID.
+     */
+    private static Comparator<InvoiceSummaryDTO> toSummaryComparator(Sort sort) {
+        Comparator<InvoiceSummaryDTO> byId = SUMMARY_ORDER.get("id");
+        Comparator<InvoiceSummaryDTO> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<InvoiceSummaryDTO> propertyOrder = SUMMARY_ORDER.get(order.getProperty());
+            if (propertyOrder == null) {
+                throw new IllegalArgumentException("Podle vlastnosti " + order.getProperty() + " nelze řadit.");
             }
+            propertyOrder = order.isDescending() ? propertyOrder.reversed() : propertyOrder;
+            comparator = comparator == null ? propertyOrder : comparator.thenComparing(propertyOrder);
+        }
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private static InvoiceSummaryDTO toSummary(InvoiceEntity invoice) {
+        PersonEntity seller = invoice.getSeller();
+        PersonEntity buyer = invoice.getBuyer();
+        return new InvoiceSummaryDTO(invoice.getId(), invoice.getInvoiceNumber(), invoice.getIssued(), invoice.getDueDate(),
+                invoice.getProduct(), invoice.getPrice(), invoice.getVat(),
+                seller != null ? seller.getId() : null, seller != null ? seller.getName() : null,
+                buyer != null ? buyer.getId() : null, buyer != null ? buyer.getName() : null);
+    }
+
+    // MySQL řadí NULL na začátek a texty podle collation bez ohledu na velikost písmen
+    private static <T extends Comparable<? super T>> Comparator<InvoiceSummaryDTO> byValue(Function<InvoiceSummaryDTO, T> value) {
+        return Comparator.comparing(value, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    private static Sort reverse(Sort sort) {
+        return Sort.by(sort.stream()
+                .map(order -> order.with(order.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC))
+                .toList());
+    }
+
+    private static Comparator<InvoiceSummaryDTO> byText(Function<InvoiceSummaryDTO, String> value) {
+        return Comparator.comparing(value, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceWindowDTO getInvoicesByCursor(InvoiceFilter filter, String cursor, Pageable pageable) {
+        Sort sort = invoiceCursorCodec.normalizeSort(pageable.getSort());
+        KeysetScrollPosition position = invoiceCursorCodec.decode(cursor, sort);
+
+        boolean backward = position.scrollsBackward();
+        int size = pageable.getPageSize();
+
+        // Bez COUNT(*) a bez OFFSET - dotaz pokračuje za klíči posledního záznamu, pozpátku v obráceném řazení.
+        // Vlastní podmínka místo scroll(): keyset ze Spring Data neumí prázdné hodnoty klíčů
+        Specification<InvoiceEntity> specification = buildSpecification(filter);
+        if (!position.isInitial()) {
+            specification = specification.and(new InvoiceKeysetSpecification(sort, position.getKeys(), backward));
+        }
+        Sort querySort = backward ? reverse(sort) : sort;
+        // Osoby se načtou stejným dotazem (entity graph), mapování na DTO pak už nic nedočítá.
+        // Záznam navíc říká, zda tím směrem ještě něco zbývá
+        List<InvoiceEntity> rows = invoiceRepository.findBy(specification,
+                query -> query.project("seller", "buyer").sortBy(querySort).limit(size + 1).all());
+
+        boolean more = rows.size() > size;
+        List<InvoiceEntity> invoices = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+        if (invoices.isEmpty()) {
+            return new InvoiceWindowDTO(List.of(), null, null);
+        }
+        if (backward) {
+            Collections.reverse(invoices);
+        }
+
+        // Při zpětném posunu znamená záznam navíc další záznamy směrem k začátku
+        boolean hasNext = backward || more;
+        boolean hasPrev = backward ? more : !position.isInitial();
+
+        String next = hasNext
+                ? invoiceCursorCodec.encode(invoices.get(invoices.size() - 1), sort, ScrollPosition.Direction.FORWARD)
+                : null;
+        String prev = hasPrev
+                ? invoiceCursorCodec.encode(invoices.get(0), sort, ScrollPosition.Direction.BACKWARD)
+                : null;
 
-            if (filterParams.containsKey("maxPrice") && !filterParams.get("maxPrice").isEmpty()) {
-                try {
-                    double maxPrice = Double.parseDouble(filterParams.get("maxPrice"));
-                    predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), maxPrice));
-                } catch (NumberFormatException e) {
-                    logger.debug("Invalid maxPrice format: {}", filterParams.get("maxPrice"));
+        return new InvoiceWindowDTO(invoices.stream().map(invoiceMapper::toDTO).toList(), next, prev);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportInvoices(InvoiceFilter filter, ExportFormat format, OutputStream output) throws IOException {
+        Specification<InvoiceEntity> spec = buildSpecification(filter);
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<InvoiceEntity> query = criteriaBuilder.createQuery(InvoiceEntity.class);
+        Root<InvoiceEntity> root = query.from(InvoiceEntity.class);
+        root.fetch(InvoiceEntity_.seller, JoinType.LEFT);
+        root.fetch(InvoiceEntity_.buyer, JoinType.LEFT);
+        query.where(spec.toPredicate(root, query, criteriaBuilder));
+        query.orderBy(criteriaBuilder.asc(root.get(InvoiceEntity_.id)));
+
+        // Dopředný kurzor s daným fetch size, entity se průběžně uvolňují z persistence contextu
+        try (InvoiceExportWriter writer = InvoiceExportWriter.create(format, output, objectMapper);
+             Stream<InvoiceEntity> invoices = entityManager.createQuery(query)
+                     .setHint(AvailableHints.HINT_FETCH_SIZE, exportFetchSize)
+                     .setHint(AvailableHints.HINT_READ_ONLY, true)
+                     .getResultStream()) {
+            long[] written = {0};
+            invoices.forEach(invoice -> {
+                writer.write(invoice);
+                if (++written[0] % exportFetchSize == 0) {
+                    entityManager.clear();
                 }
-            }
+            });
+            logger.info("Export faktur dokončen, počet řádků: {}", written[0]);
+        }
+    }
 
-            if (filterParams.containsKey("buyerIdentificationNumber") && !filterParams.get("buyerIdentificationNumber").isEmpty()) {
-                String buyerIN = filterParams.get("buyerIdentificationNumber");
-                predicates.add(criteriaBuilder.equal(root.get("buyer").get("identificationNumber"), buyerIN));
-            }
-            if (filterParams.containsKey("sellerIdentificationNumber") && !filterParams.get("sellerIdentificationNumber").isEmpty()) {
-                String sellerIN = filterParams.get("sellerIdentificationNumber");
-                predicates.add(criteriaBuilder.equal(root.get("seller").get("identificationNumber"), sellerIN));
-            }
-            if (filterParams.containsKey("product") && !filterParams.get("product").isEmpty()) {
-                String product = filterParams.get("product");
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("product")), "%" + product.toLowerCase() + "%"));
-            }
+    /**
+     * Sestaví Specification z filtrů seznamu faktur, FULLTEXT dotazy se připraví předem podle nastavení.
+     */
+    private Specification<InvoiceEntity> buildSpecification(InvoiceFilter filter) {
+        return new InvoiceSpecification(filter, toFullTextQuery(filter.getText()));
+    }
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+    private void checkIssued(InvoiceDTO invoiceDTO) {
+        if (issuedRequired && invoiceDTO.getIssued() == null) {
+            throw new IllegalArgumentException("Datum vystavení musí být uvedeno");
+        }
+    }
 
-        return invoiceRepository.findAll(spec, pageable).map(invoiceMapper::toDTO);
+    // Prodávající/kupující z cache osob, s původní chybovou hláškou
+    private PersonEntity findPerson(Long personId, String role) {
+        try {
+            return personCache.getById(personId);
+        } catch (NotFoundException e) {
+            throw new NotFoundException(role + " s ID " + personId + " nebyl nalezen.");
+        }
+    }
+
+    /**
+     * Převede hledaný výraz na dotaz pro MATCH ... AGAINST v boolean režimu (+slovo* pro každé slovo).
+     * Slovo kratší než minimální délka tokenu FULLTEXT index nezná, takový výraz se hledá přes LIKE.
+     *
+     * @return Dotaz, nebo null, pokud je fulltext vypnutý nebo výraz obsahuje příliš krátké slovo.
+     */
+    private String toFullTextQuery(String term) {
+        if (!fullTextEnabled || term == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String word : term.replaceAll("[+\\-<>()~*\"@]", " ").trim().split("\\s+")) {
+            if (word.length() < fullTextMinTokenSize) {
+                return null;
+            }
+            builder.append(builder.isEmpty() ? "" : " ").append('+').append(word).append('*');
+        }
+        return builder.isEmpty() ? null : builder.toString();
     }
 
     @Override
     @Transactional(readOnly = true)
     public InvoiceDTO getInvoiceDetail(Long invoiceId) {
-        InvoiceEntity invoice = invoiceRepository.findById(invoiceId)
+        InvoiceEntity invoice = invoiceRepository.findByIdWithPersons(invoiceId)
+                .or(() -> invoiceArchiveService.findById(invoiceId))
                 .orElseThrow(() -> new NotFoundException("Faktura s ID " + invoiceId + " nebyla nalezena."));
         return invoiceMapper.toDTO(invoice);
     }
@@ -134,27 +520,37 @@ public class InvoiceServiceImpl implements InvoiceService {
     @Override
     @Transactional
     public void deleteInvoice(Long invoiceId) {
-        if (!invoiceRepository.existsById(invoiceId)) {
-            throw new NotFoundException("Faktura s ID " + invoiceId + " nebyla nalezena.");
-        }
-        invoiceRepository.deleteById(invoiceId);
+        InvoiceEntity invoice = findWritableInvoice(invoiceId);
+        personLedgerService.revertInvoice(invoice);
+        invoiceStatisticsService.revertInvoice(invoice);
+        invoiceRollupService.revertInvoice(invoice);
+        productCatalogService.releaseProduct(invoice.getProduct());
+        invoiceAnalyticsService.revertInvoice(invoice);
+        invoiceRepository.delete(invoice);
+        dataVersions.bump(DataAggregate.INVOICES);
     }
 
     @Override
     @Transactional
     public InvoiceDTO updateInvoice(Long invoiceId, InvoiceDTO invoiceDTO) {
-        InvoiceEntity existingInvoice = invoiceRepository.findById(invoiceId)
-                .orElseThrow(() -> new NotFoundException("Faktura s ID " + invoiceId + " nebyla nalezena."));
+        InvoiceEntity existingInvoice = findWritableInvoice(invoiceId);
 
         if (invoiceDTO.getSeller() == null || invoiceDTO.getBuyer() == null) {
             throw new IllegalArgumentException("Seller and Buyer must be provided.");
         }
+        checkIssued(invoiceDTO);
 
-        PersonEntity seller = personRepository.findById(invoiceDTO.getSeller().getId())
-                .orElseThrow(() -> new NotFoundException("Prodávající s ID " + invoiceDTO.getSeller().getId() + " nebyl nalezen."));
+        PersonEntity seller = findPerson(invoiceDTO.getSeller().getId(), "Prodávající");
+        PersonEntity buyer = findPerson(invoiceDTO.getBuyer().getId(), "Kupující");
 
-        PersonEntity buyer = personRepository.findById(invoiceDTO.getBuyer().getId())
-                .orElseThrow(() -> new NotFoundException("Kupující s ID " + invoiceDTO.getBuyer().getId() + " nebyl nalezen."));
+        // Kopie původních hodnot, rozdíl v knize a statistikách se pak zapíše najednou v pevném pořadí zámků
+        InvoiceEntity previousInvoice = new InvoiceEntity();
+        previousInvoice.setSeller(existingInvoice.getSeller());
+        previousInvoice.setBuyer(existingInvoice.getBuyer());
+        previousInvoice.setIssued(existingInvoice.getIssued());
+        previousInvoice.setProduct(existingInvoice.getProduct());
+        previousInvoice.setPrice(existingInvoice.getPrice());
+        previousInvoice.setVat(existingInvoice.getVat());
 
         existingInvoice.setInvoiceNumber(String.valueOf(invoiceDTO.getInvoiceNumber()));
         existingInvoice.setSeller(seller);
@@ -167,73 +563,77 @@ public class InvoiceServiceImpl implements InvoiceService {
         existingInvoice.setNote(invoiceDTO.getNote());
 
         InvoiceEntity updatedInvoice = invoiceRepository.save(existingInvoice);
+        personLedgerService.replaceInvoice(previousInvoice, updatedInvoice);
+        invoiceStatisticsService.replaceInvoice(previousInvoice, updatedInvoice);
+        invoiceRollupService.replaceInvoice(previousInvoice, updatedInvoice);
+        productCatalogService.replaceProduct(previousInvoice.getProduct(), updatedInvoice.getProduct());
+        invoiceAnalyticsService.recordInvoice(updatedInvoice);
+        dataVersions.bump(DataAggregate.INVOICES);
         return invoiceMapper.toDTO(updatedInvoice);
     }
 
+    // Archivované faktury jsou jen pro čtení
+    private InvoiceEntity findWritableInvoice(Long invoiceId) {
+        return invoiceRepository.findById(invoiceId)
+                .orElseThrow(() -> invoiceArchiveService.isArchived(invoiceId)
+                        ? new IllegalArgumentException("Faktura s ID " + invoiceId + " je archivovaná a nelze ji měnit.")
+                        : new NotFoundException("Faktura s ID " + invoiceId + " nebyla nalezena."));
+    }
+
     @Override
-    @Transactional(readOnly = true)
     public InvoiceStatisticsDTO getInvoiceStatistics() {
-        try {
-            Long invoicesCount = invoiceRepository.count();
-            Long allTimeSum = invoiceRepository.calculateAllTimeSum();
-            Long currentYearSum = invoiceRepository.calculateCurrentYearSum(LocalDate.now().getYear());
+        return invoiceStatisticsService.getTotals();
+    }
 
-            logger.info("Počet faktur: {}", invoicesCount);
-            logger.info("Celkový součet cen: {}", allTimeSum);
-            logger.info("Součet cen za aktuální rok: {}", currentYearSum);
+    @Override
+    public List<InvoicePeriodStatisticsDTO> getPeriodStatistics(YearMonth from, YearMonth to,
+                                                                StatisticsGranularity granularity, boolean yearOverYear) {
+        return invoiceStatisticsService.getPeriodStatistics(from, to, granularity, yearOverYear);
+    }
 
-            return new InvoiceStatisticsDTO(
-                    currentYearSum != null ? currentYearSum : 0L,
-                    allTimeSum != null ? allTimeSum : 0L,
-                    invoicesCount != null ? invoicesCount : 0L
-            );
-        } catch (Exception e) {
-            logger.error("Chyba při načítání statistik faktur", e);
-            throw e;
-        }
+    @Override
+    public int rebuildStatistics() {
+        int rows = invoiceStatisticsService.rebuild();
+        dataVersions.bump(DataAggregate.INVOICES);
+        return rows;
+    }
+
+    @Override
+    public int archiveInvoices() {
+        return invoiceArchiveService.archive();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Long findLastInvoiceId() {
         return invoiceRepository.findLastId();
     }
 
     @Override
     public String getNextInvoiceNumber() {
-        try {
-            LocalDate today = LocalDate.now();
-            String year = String.valueOf(today.getYear());
-            String month = String.format("%02d", today.getMonthValue());
-
-            String prefix = year + month;
-
-            // Získání posledního pořadového čísla pro daný rok a měsíc
-            Integer lastSequenceNumber = invoiceRepository.findLastInvoiceNumberInMonth(prefix + "%")
-                    .orElse(0);
-
-            // Zvýšení pořadového čísla o 1
-            int nextSequenceNumber = lastSequenceNumber + 1;
-
-            // Dynamické formátování bez fixního počtu nul
-            String formattedSequenceNumber = String.valueOf(nextSequenceNumber);
-
-            String newInvoiceNumber = prefix + formattedSequenceNumber;
+        return invoiceNumberService.previewNextNumber();
+    }
 
-            logger.info("GENERATED INVOICE NUMBER: {}", newInvoiceNumber);
-            return newInvoiceNumber;
-        } catch (Exception e) {
-            logger.error("Chyba při generování čísla faktury", e);
-            return "CHYBA";
-        }
+    @Override
+    public InvoiceNumberGapsDTO getInvoiceNumberGaps(YearMonth month) {
+        return invoiceNumberService.findGaps(month);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<String> getProducts() {
-        return invoiceRepository.findAll().stream()
-                .map(InvoiceEntity::getProduct)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return productCatalogService.getProductNames();
+    }
+
+    @Override
+    public List<ProductDTO> searchProducts(String prefix, int page, int size) {
+        return productCatalogService.searchProducts(prefix, page, size);
+    }
+
+    @Override
+    public int rebuildProducts() {
+        int rows = productCatalogService.rebuild();
+        dataVersions.bump(DataAggregate.INVOICES);
+        return rows;
     }
 }
\ No newline at end of file
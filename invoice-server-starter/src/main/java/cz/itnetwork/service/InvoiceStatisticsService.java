@@ -0,0 +1,51 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.StatisticsGranularity;
+import cz.itnetwork.dto.InvoicePeriodStatisticsDTO;
+import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+public interface InvoiceStatisticsService {
+
+    /**
+     * Započítá fakturu do měsíčního součtu podle data vystavení.
+     */
+    void recordInvoice(InvoiceEntity invoice);
+
+    /**
+     * Odečte fakturu z měsíčního součtu podle data vystavení.
+     */
+    void revertInvoice(InvoiceEntity invoice);
+
+    /**
+     * Přesune fakturu z původního do nového měsíčního součtu (úprava faktury), měsíce se zapisují v pevném pořadí.
+     */
+    void replaceInvoice(InvoiceEntity previous, InvoiceEntity updated);
+
+    /**
+     * Započítá najednou více faktur (hromadný import), jeden zápis na měsíc.
+     */
+    void recordInvoices(Collection<InvoiceEntity> invoices);
+
+    /**
+     * Vrátí celkové statistiky a součet za aktuální rok.
+     */
+    InvoiceStatisticsDTO getTotals();
+
+    /**
+     * Vrátí součty za období od-do (včetně) seskupené po měsících, čtvrtletích nebo letech.
+     */
+    List<InvoicePeriodStatisticsDTO> getPeriodStatistics(YearMonth from, YearMonth to,
+                                                         StatisticsGranularity granularity, boolean yearOverYear);
+
+    /**
+     * Přepočítá měsíční součty od nuly z tabulky faktur.
+     *
+     * @return Počet období.
+     */
+    int rebuild();
+}
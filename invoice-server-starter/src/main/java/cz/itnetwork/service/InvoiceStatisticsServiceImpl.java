@@ -0,0 +1,204 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.StatisticsGranularity;
+import cz.itnetwork.dto.InvoicePeriodStatisticsDTO;
+import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.InvoiceStatisticsBucketEntity;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.InvoiceStatisticsBucketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class InvoiceStatisticsServiceImpl implements InvoiceStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceStatisticsServiceImpl.class);
+
+    @Autowired
+    private InvoiceStatisticsBucketRepository bucketRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    // Zápisy se vždy připojí k transakci volající služby faktur
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInvoice(InvoiceEntity invoice) {
+        Map<Integer, long[]> deltas = new TreeMap<>();
+        addInvoice(deltas, invoice, 1);
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertInvoice(InvoiceEntity invoice) {
+        Map<Integer, long[]> deltas = new TreeMap<>();
+        addInvoice(deltas, invoice, -1);
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void replaceInvoice(InvoiceEntity previous, InvoiceEntity updated) {
+        Map<Integer, long[]> deltas = new TreeMap<>();
+        addInvoice(deltas, previous, -1);
+        addInvoice(deltas, updated, 1);
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInvoices(Collection<InvoiceEntity> invoices) {
+        // Rozdíly se nejdřív sečtou po měsících, takže na každý měsíc jde jediný příkaz
+        Map<Integer, long[]> deltas = new TreeMap<>();
+        for (InvoiceEntity invoice : invoices) {
+            addInvoice(deltas, invoice, 1);
+        }
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceStatisticsDTO getTotals() {
+        int year = LocalDate.now().getYear();
+        long currentYearSum = bucketRepository.sumPriceBetween(toPeriod(YearMonth.of(year, 1)), toPeriod(YearMonth.of(year, 12)));
+        return new InvoiceStatisticsDTO(currentYearSum, bucketRepository.sumPrice(), bucketRepository.sumInvoicesCount());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<InvoicePeriodStatisticsDTO> getPeriodStatistics(YearMonth from, YearMonth to,
+                                                                StatisticsGranularity granularity, boolean yearOverYear) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Začátek období musí být před jeho koncem.");
+        }
+
+        // Jediný dotaz na měsíční součty celého rozsahu, včetně předchozího roku pro meziroční srovnání
+        YearMonth loadFrom = yearOverYear ? from.minusYears(1) : from;
+        Map<Integer, InvoiceStatisticsBucketEntity> buckets = new HashMap<>();
+        for (InvoiceStatisticsBucketEntity bucket : bucketRepository.findByPeriodBetweenOrderByPeriod(toPeriod(loadFrom), toPeriod(to))) {
+            buckets.put(bucket.getPeriod(), bucket);
+        }
+
+        List<InvoicePeriodStatisticsDTO> result = new ArrayList<>();
+        YearMonth groupFrom = from;
+        while (!groupFrom.isAfter(to)) {
+            YearMonth groupEnd = groupEnd(groupFrom, granularity);
+            YearMonth groupTo = groupEnd.isAfter(to) ? to : groupEnd;
+
+            long[] current = sumMonths(buckets, groupFrom, groupTo);
+            InvoicePeriodStatisticsDTO statistics = new InvoicePeriodStatisticsDTO(
+                    label(groupFrom, granularity), groupFrom, groupTo,
+                    current[0], current[1], current[2], null, null, null);
+            if (yearOverYear) {
+                long[] previous = sumMonths(buckets, groupFrom.minusYears(1), groupTo.minusYears(1));
+                statistics.setPreviousYearInvoicesCount(previous[0]);
+                statistics.setPreviousYearPriceSum(previous[1]);
+                statistics.setPreviousYearVatSum(previous[2]);
+            }
+            result.add(statistics);
+
+            groupFrom = groupTo.plusMonths(1);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        bucketRepository.deleteAllRows();
+        bucketRepository.insertRecomputedRows();
+        // Archivované faktury v tabulce nejsou, přičtou se po blocích (mohou založit i nová období)
+        invoiceArchiveService.forEachBlock(this::recordInvoices);
+        int rows = (int) bucketRepository.count();
+        logger.info("Statistiky faktur přepočítány, počet období: {}", rows);
+        return rows;
+    }
+
+    /**
+     * Při prvním startu nad existující databází součty ještě neexistují, proto se dopočítají.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (bucketRepository.count() == 0 && (invoiceRepository.count() > 0 || invoiceArchiveService.getHorizon() != null)) {
+            rebuild();
+        }
+    }
+
+    private static void addInvoice(Map<Integer, long[]> deltas, InvoiceEntity invoice, int sign) {
+        long price = invoice.getPrice() != null ? invoice.getPrice() : 0L;
+        long[] delta = deltas.computeIfAbsent(periodOf(invoice), period -> new long[3]);
+        delta[0] += sign;
+        delta[1] += sign * price;
+        delta[2] += sign * (price * invoice.getVat() / 100);
+    }
+
+    // Měsíce se zapisují vzestupně, souběžné transakce zamykají řádky ve stejném pořadí
+    private void applyDeltas(Map<Integer, long[]> deltas) {
+        deltas.forEach((period, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0 || delta[2] != 0) {
+                bucketRepository.applyDelta(period, delta[0], delta[1], delta[2]);
+            }
+        });
+    }
+
+    private static int periodOf(InvoiceEntity invoice) {
+        return invoice.getIssued() != null
+                ? toPeriod(YearMonth.from(invoice.getIssued()))
+                : InvoiceStatisticsBucketEntity.UNKNOWN_PERIOD;
+    }
+
+    // Sečte počet, ceny a DPH měsíců v rozsahu od-do (včetně)
+    private long[] sumMonths(Map<Integer, InvoiceStatisticsBucketEntity> buckets, YearMonth from, YearMonth to) {
+        long[] sums = new long[3];
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            InvoiceStatisticsBucketEntity bucket = buckets.get(toPeriod(month));
+            if (bucket != null) {
+                sums[0] += bucket.getInvoicesCount();
+                sums[1] += bucket.getPriceSum();
+                sums[2] += bucket.getVatSum();
+            }
+        }
+        return sums;
+    }
+
+    private static YearMonth groupEnd(YearMonth month, StatisticsGranularity granularity) {
+        return switch (granularity) {
+            case MONTH -> month;
+            case QUARTER -> YearMonth.of(month.getYear(), ((month.getMonthValue() - 1) / 3 + 1) * 3);
+            case YEAR -> YearMonth.of(month.getYear(), 12);
+        };
+    }
+
+    private static String label(YearMonth month, StatisticsGranularity granularity) {
+        return switch (granularity) {
+            case MONTH -> month.toString();
+            case QUARTER -> month.getYear() + "-Q" + ((month.getMonthValue() - 1) / 3 + 1);
+            case YEAR -> String.valueOf(month.getYear());
+        };
+    }
+
+    private static int toPeriod(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+}
@@ -0,0 +1,145 @@
+package cz.itnetwork.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import cz.itnetwork.dto.PersonCacheStatisticsDTO;
+import cz.itnetwork.dto.mapper.PersonMapper;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.webjars.NotFoundException;
+
+import java.time.Duration;
+
+/**
+ * Omezená read-through cache osob podle ID a podle IČO.
+ * <p>
+ * Ukládají se odpojené kopie entit bez kolekcí faktur, takže je lze bezpečně sdílet mezi požadavky
+ * a použít jako odkaz na prodávajícího/kupujícího při ukládání faktury. Kopie se nikdy nemění,
+ * změny osob jdou přes repository a záznam se pak zneplatní.
+ */
+@Component
+public class PersonCache {
+
+    private final Cache<Long, PersonEntity> personsById;
+    private final Cache<String, Long> idsByIdentificationNumber;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PersonMapper personMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public PersonCache(@Value("${invoice.person-cache.maximum-size:1000}") long maximumSize,
+                       @Value("${invoice.person-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.personsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.idsByIdentificationNumber = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    // Zásahy, výpadky a vyřazení obou cache jako metriky cache.* s tagem cache
+    @PostConstruct
+    void bindMetrics() {
+        CaffeineCacheMetrics.monitor(meterRegistry, personsById, "persons.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByIdentificationNumber, "persons.byIdentificationNumber");
+    }
+
+    /**
+     * Vrátí osobu podle ID, při chybějícím záznamu ji načte z databáze.
+     *
+     * @throws NotFoundException pokud osoba neexistuje
+     */
+    public PersonEntity getById(Long id) {
+        PersonEntity person = personsById.get(id, key -> personRepository.findById(key)
+                .map(this::detachedCopy)
+                .orElse(null));
+        if (person == null) {
+            throw new NotFoundException("Person with id " + id + " wasn't found in the database.");
+        }
+        return person;
+    }
+
+    /**
+     * Vrátí osobu podle IČO, při chybějícím záznamu ji načte z databáze.
+     *
+     * @throws NotFoundException pokud osoba neexistuje
+     */
+    public PersonEntity getByIdentificationNumber(String identificationNumber) {
+        Long id = idsByIdentificationNumber.get(identificationNumber, key -> personRepository.findFirstByIdentificationNumberOrderByHiddenAscIdDesc(key)
+                .map(person -> {
+                    personsById.put(person.getId(), detachedCopy(person));
+                    return person.getId();
+                })
+                .orElse(null));
+        if (id == null) {
+            throw new NotFoundException("Osoba s IČ " + identificationNumber + " nebyla nalezena.");
+        }
+        return getById(id);
+    }
+
+    /**
+     * Zneplatní záznamy osoby podle ID i IČO (např. po úpravě nebo skrytí).
+     * <p>
+     * V transakci se záznamy zneplatní znovu po jejím dokončení. Souběžné čtení před commitem by jinak
+     * do cache vrátilo starou verzi osoby až do vypršení záznamu, po rollbacku zase nesmí zůstat
+     * necommitovaná data načtená v rámci transakce.
+     */
+    public void evict(Long id, String... identificationNumbers) {
+        invalidate(id, identificationNumbers);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(id, identificationNumbers);
+                }
+            });
+        }
+    }
+
+    private void invalidate(Long id, String... identificationNumbers) {
+        personsById.invalidate(id);
+        for (String identificationNumber : identificationNumbers) {
+            if (identificationNumber != null) {
+                idsByIdentificationNumber.invalidate(identificationNumber);
+            }
+        }
+    }
+
+    public PersonCacheStatisticsDTO getStatistics() {
+        CacheStats byId = personsById.stats();
+        CacheStats byIdentificationNumber = idsByIdentificationNumber.stats();
+        return new PersonCacheStatisticsDTO(
+                personsById.estimatedSize(),
+                byId.hitCount(),
+                byId.missCount(),
+                byId.evictionCount() + byIdentificationNumber.evictionCount(),
+                byId.hitRate(),
+                byIdentificationNumber.hitCount(),
+                byIdentificationNumber.missCount());
+    }
+
+    // Kopie bez kolekcí sales/purchases, nezávislá na persistence contextu
+    private PersonEntity detachedCopy(PersonEntity person) {
+        PersonEntity copy = personMapper.toEntity(personMapper.toDTO(person));
+        copy.setHidden(person.isHidden());
+        return copy;
+    }
+}
@@ -0,0 +1,45 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.entity.InvoiceEntity;
+
+import java.util.Collection;
+
+public interface PersonLedgerService {
+
+    /**
+     * Započítá fakturu do knihy prodávajícího a kupujícího.
+     */
+    void recordInvoice(InvoiceEntity invoice);
+
+    /**
+     * Odečte fakturu z knihy prodávajícího a kupujícího.
+     */
+    void revertInvoice(InvoiceEntity invoice);
+
+    /**
+     * Přesune fakturu v knize z původních na nové hodnoty (úprava faktury), osoby se zapisují v pevném pořadí.
+     */
+    void replaceInvoice(InvoiceEntity previous, InvoiceEntity updated);
+
+    /**
+     * Započítá najednou více faktur (hromadný import), jeden zápis na osobu.
+     */
+    void recordInvoices(Collection<InvoiceEntity> invoices);
+
+    /**
+     * Založí prázdný řádek knihy pro novou osobu.
+     */
+    void openLedger(Long personId);
+
+    /**
+     * Založí prázdné řádky knihy pro více nových osob jedním příkazem (hromadný zápis osob).
+     */
+    void openLedgers(Collection<Long> personIds);
+
+    /**
+     * Přepočítá celou knihu od nuly z tabulky faktur.
+     *
+     * @return Počet přepočítaných osob.
+     */
+    int rebuild();
+}
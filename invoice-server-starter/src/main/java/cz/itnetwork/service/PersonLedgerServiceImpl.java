@@ -0,0 +1,131 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.repository.PersonLedgerRepository;
+import cz.itnetwork.entity.repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class PersonLedgerServiceImpl implements PersonLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonLedgerServiceImpl.class);
+
+    @Autowired
+    private PersonLedgerRepository personLedgerRepository;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    // Zápisy se vždy připojí k transakci volající služby faktur
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInvoice(InvoiceEntity invoice) {
+        Map<Long, long[]> deltas = new TreeMap<>();
+        addInvoice(deltas, invoice, 1);
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertInvoice(InvoiceEntity invoice) {
+        Map<Long, long[]> deltas = new TreeMap<>();
+        addInvoice(deltas, invoice, -1);
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void replaceInvoice(InvoiceEntity previous, InvoiceEntity updated) {
+        Map<Long, long[]> deltas = new TreeMap<>();
+        addInvoice(deltas, previous, -1);
+        addInvoice(deltas, updated, 1);
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInvoices(Collection<InvoiceEntity> invoices) {
+        // Rozdíly se nejdřív sečtou po osobách, takže na každou osobu jde jediný příkaz
+        Map<Long, long[]> deltas = new TreeMap<>();
+        for (InvoiceEntity invoice : invoices) {
+            addInvoice(deltas, invoice, 1);
+        }
+        applyDeltas(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void openLedger(Long personId) {
+        personLedgerRepository.applyDelta(personId, 0, 0, 0, 0);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void openLedgers(Collection<Long> personIds) {
+        if (!personIds.isEmpty()) {
+            personLedgerRepository.insertEmptyRows(personIds);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        personLedgerRepository.deleteAllRows();
+        int rows = personLedgerRepository.insertRecomputedRows();
+        // Archivované faktury v tabulce nejsou, přičtou se po blocích
+        invoiceArchiveService.forEachBlock(this::recordInvoices);
+        logger.info("Kniha osob přepočítána, počet řádků: {}", rows);
+        return rows;
+    }
+
+    /**
+     * Při prvním startu nad existující databází kniha ještě neexistuje, proto se dopočítá.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (personLedgerRepository.count() == 0 && personRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    private static void addInvoice(Map<Long, long[]> deltas, InvoiceEntity invoice, int sign) {
+        long price = invoice.getPrice() != null ? invoice.getPrice() : 0L;
+        if (invoice.getSeller() != null) {
+            long[] delta = deltas.computeIfAbsent(invoice.getSeller().getId(), id -> new long[4]);
+            delta[0] += sign * price;
+            delta[2] += sign;
+        }
+        if (invoice.getBuyer() != null) {
+            long[] delta = deltas.computeIfAbsent(invoice.getBuyer().getId(), id -> new long[4]);
+            delta[1] += sign * price;
+            delta[3] += sign;
+        }
+    }
+
+    /**
+     * Zapíše rozdíly vzestupně podle ID osoby. Souběžné transakce tak zamykají řádky knihy
+     * ve stejném pořadí a nemůžou se navzájem zablokovat (deadlock).
+     */
+    private void applyDeltas(Map<Long, long[]> deltas) {
+        deltas.forEach((personId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0 || delta[2] != 0 || delta[3] != 0) {
+                personLedgerRepository.applyDelta(personId, delta[0], delta[1], delta[2], delta[3]);
+            }
+        });
+    }
+}
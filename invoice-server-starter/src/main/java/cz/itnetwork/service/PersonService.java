@@ -1,9 +1,12 @@
 package cz.itnetwork.service;
 
-import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonCacheStatisticsDTO;
 import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonInvoicesDTO;
 import cz.itnetwork.dto.PersonStatisticsDTO;
 import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 
@@ -19,12 +22,20 @@ public interface PersonService {
 
     PersonDTO updatePerson(long personId, PersonDTO personDTO);
 
-    // Upravená signatura metody s parametry pro řazení
-    List<PersonStatisticsDTO> getPersonStatistics(String sortColumn, String sortDirection);
+    // Upravená signatura metody s parametry pro řazení a volitelné stránkování
+    List<PersonStatisticsDTO> getPersonStatistics(String sortColumn, String sortDirection, Integer page, Integer size);
 
-    List<InvoiceDTO> getSalesByPerson(String identificationNumber);
+    // Přepočítá knihu tržeb a nákladů od nuly, vrací počet osob
+    int rebuildPersonStatistics();
 
-    List<InvoiceDTO> getPurchasesByPerson(String identificationNumber);
+    // Vystavené faktury osoby po stránkách, s filtry a volitelně se součty
+    PersonInvoicesDTO getSalesByPerson(String identificationNumber, InvoiceFilter filter, Pageable pageable, boolean withTotals);
+
+    // Přijaté faktury osoby po stránkách, s filtry a volitelně se součty
+    PersonInvoicesDTO getPurchasesByPerson(String identificationNumber, InvoiceFilter filter, Pageable pageable, boolean withTotals);
 
     PersonEntity fetchPersonById(Long id);
+
+    // Statistiky cache osob (počet záznamů, zásahy, minutí, vyřazení)
+    PersonCacheStatisticsDTO getPersonCacheStatistics();
 }
\ No newline at end of file
@@ -1,22 +1,26 @@
 package cz.itnetwork.service;
 
-import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.constant.PersonRole;
+import cz.itnetwork.dto.PersonCacheStatisticsDTO;
 import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonInvoicesDTO;
 import cz.itnetwork.dto.PersonStatisticsDTO;
-import cz.itnetwork.dto.mapper.InvoiceMapper;
 import cz.itnetwork.dto.mapper.PersonMapper;
-import cz.itnetwork.entity.InvoiceEntity;
 import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import cz.itnetwork.entity.repository.PersonLedgerRepository;
 import cz.itnetwork.entity.repository.PersonRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.webjars.NotFoundException;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -32,27 +36,50 @@ public class PersonServiceImpl implements PersonService {
     private PersonRepository personRepository;
 
     @Autowired
-    private InvoiceMapper invoiceMapper;
+    private PersonLedgerRepository personLedgerRepository;
+
+    @Autowired
+    private PersonLedgerService personLedgerService;
+
+    @Autowired
+    private PersonCache personCache;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private InvoiceService invoiceService;
 
     @Override
+    @Transactional
     public PersonDTO addPerson(PersonDTO personDTO) {
+        if (personRepository.existsByIdentificationNumberAndHiddenFalse(personDTO.getIdentificationNumber())) {
+            throw new IllegalArgumentException("Osoba s IČ " + personDTO.getIdentificationNumber() + " již existuje.");
+        }
         PersonEntity entity = this.personMapper.toEntity(personDTO);
         entity = this.personRepository.save(entity);
+        personLedgerService.openLedger(entity.getId());
+        personCache.evict(entity.getId(), entity.getIdentificationNumber());
+        dataVersions.bump(DataAggregate.PERSONS);
         return this.personMapper.toDTO(entity);
     }
 
     @Override
+    @Transactional
     public void removePerson(long personId) {
         try {
-            PersonEntity person = this.fetchPersonById(personId);
+            PersonEntity person = this.loadPerson(personId);
             person.setHidden(true);
             this.personRepository.save(person);
+            personCache.evict(person.getId(), person.getIdentificationNumber());
+            dataVersions.bump(DataAggregate.PERSONS);
         } catch (NotFoundException e) {
             // Ignorujeme, pokud osoba neexistuje
         }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PersonDTO> getAll() {
         return this.personRepository.findByHidden(false).stream()
                 .map(this.personMapper::toDTO)
@@ -66,80 +93,82 @@ public class PersonServiceImpl implements PersonService {
     }
 
     @Override
+    @Transactional
     public PersonDTO updatePerson(long personId, PersonDTO personDTO) {
-        PersonEntity existingPerson = fetchPersonById(personId);
+        PersonEntity existingPerson = loadPerson(personId);
+        if (!existingPerson.isHidden() && personRepository.existsByIdentificationNumberAndHiddenFalseAndIdNot(
+                personDTO.getIdentificationNumber(), personId)) {
+            throw new IllegalArgumentException("Osoba s IČ " + personDTO.getIdentificationNumber() + " již existuje.");
+        }
+        String previousIdentificationNumber = existingPerson.getIdentificationNumber();
         personMapper.updatePersonEntity(personDTO, existingPerson);
-        return personMapper.toDTO(personRepository.save(existingPerson));
+        PersonEntity savedPerson = personRepository.save(existingPerson);
+        personCache.evict(savedPerson.getId(), previousIdentificationNumber, savedPerson.getIdentificationNumber());
+        dataVersions.bump(DataAggregate.PERSONS);
+        return personMapper.toDTO(savedPerson);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<PersonStatisticsDTO> getPersonStatistics(String sortColumn, String sortDirection) {
-        List<PersonEntity> people = personRepository.findByHidden(false);
-
-        List<PersonStatisticsDTO> statistics = people.stream()
-                .map(person -> {
-                    long revenue = person.getSales().stream()
-                            .mapToLong(InvoiceEntity::getPrice)
-                            .sum();
-
-                    long expenses = person.getPurchases().stream()
-                            .mapToLong(InvoiceEntity::getPrice)
-                            .sum();
-
-                    return new PersonStatisticsDTO(person.getId(), person.getName(), revenue, expenses);
-                })
+    public List<PersonStatisticsDTO> getPersonStatistics(String sortColumn, String sortDirection, Integer page, Integer size) {
+        String property = switch (sortColumn) {
+            case "name" -> "person.name";
+            case "revenue" -> "revenue";
+            case "expenses" -> "expenses";
+            default -> "personId"; // Výchozí řazení podle ID
+        };
+        Sort.Direction direction = "desc".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        // ID jako druhý klíč drží stabilní pořadí napříč stránkami
+        Sort sort = Sort.by(direction, property).and(Sort.by(Sort.Direction.ASC, "personId"));
+
+        Pageable pageable = (page != null && size != null)
+                ? PageRequest.of(page, size, sort)
+                : Pageable.unpaged(sort);
+
+        return personLedgerRepository.findByPersonHidden(false, pageable).stream()
+                .map(ledger -> new PersonStatisticsDTO(
+                        ledger.getPersonId(),
+                        ledger.getPerson().getName(),
+                        ledger.getRevenue(),
+                        ledger.getExpenses()))
                 .collect(Collectors.toList());
+    }
 
-        Comparator<PersonStatisticsDTO> comparator;
-        switch (sortColumn) {
-            case "name":
-                // Zde je oprava - používáme metodu getName() z DTO
-                comparator = Comparator.comparing(PersonStatisticsDTO::getName, String.CASE_INSENSITIVE_ORDER);
-                break;
-            case "revenue":
-                comparator = Comparator.comparingLong(PersonStatisticsDTO::getRevenue);
-                break;
-            case "expenses":
-                comparator = Comparator.comparingLong(PersonStatisticsDTO::getExpenses);
-                break;
-            default: // Výchozí řazení podle ID
-                comparator = Comparator.comparingLong(PersonStatisticsDTO::getPersonId);
-                break;
-        }
-
-        if ("desc".equalsIgnoreCase(sortDirection)) {
-            comparator = comparator.reversed();
-        }
-
-        statistics.sort(comparator);
-        return statistics;
+    @Override
+    public int rebuildPersonStatistics() {
+        int rows = personLedgerService.rebuild();
+        dataVersions.bump(DataAggregate.INVOICES);
+        return rows;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<InvoiceDTO> getSalesByPerson(String identificationNumber) {
-        PersonEntity person = personRepository.findByIdentificationNumber(identificationNumber)
-                .orElseThrow(() -> new NotFoundException("Osoba s IČ " + identificationNumber + " nebyla nalezena."));
-
-        return person.getSales().stream()
-                .map(invoiceMapper::toDTO)
-                .collect(Collectors.toList());
+    public PersonInvoicesDTO getSalesByPerson(String identificationNumber, InvoiceFilter filter, Pageable pageable,
+                                              boolean withTotals) {
+        PersonEntity person = personCache.getByIdentificationNumber(identificationNumber);
+        return invoiceService.getPersonInvoices(person, PersonRole.SELLER, filter, pageable, withTotals);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<InvoiceDTO> getPurchasesByPerson(String identificationNumber) {
-        PersonEntity person = personRepository.findByIdentificationNumber(identificationNumber)
-                .orElseThrow(() -> new NotFoundException("Osoba s IČ " + identificationNumber + " nebyla nalezena."));
-
-        return person.getPurchases().stream()
-                .map(invoiceMapper::toDTO)
-                .collect(Collectors.toList());
+    public PersonInvoicesDTO getPurchasesByPerson(String identificationNumber, InvoiceFilter filter, Pageable pageable,
+                                                  boolean withTotals) {
+        PersonEntity person = personCache.getByIdentificationNumber(identificationNumber);
+        return invoiceService.getPersonInvoices(person, PersonRole.BUYER, filter, pageable, withTotals);
     }
 
     @Override
     public PersonEntity fetchPersonById(Long id) {
+        return personCache.getById(id);
+    }
+
+    @Override
+    public PersonCacheStatisticsDTO getPersonCacheStatistics() {
+        return personCache.getStatistics();
+    }
+
+    // Spravovaná entita pro zápis, obchází cache (ta drží jen neměnné kopie)
+    private PersonEntity loadPerson(long id) {
         return this.personRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Person with id " + id + " wasn't found in the database."));
     }
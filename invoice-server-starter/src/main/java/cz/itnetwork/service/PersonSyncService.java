@@ -0,0 +1,17 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.PersonSyncResultDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface PersonSyncService {
+
+    /**
+     * Hromadně založí nebo upraví osoby z proudu NDJSON (jeden PersonDTO na řádek), klíčem je IČO aktivní osoby.
+     *
+     * @param hideMissing Skrýt aktivní osoby, jejichž IČO ve vstupu nebylo (jako removePerson).
+     * @throws IllegalStateException pokud chybí unikátní index nad IČO aktivních osob (v tabulce jsou duplicity)
+     */
+    PersonSyncResultDTO syncNdjson(InputStream input, boolean hideMissing) throws IOException;
+}
@@ -0,0 +1,307 @@
+package cz.itnetwork.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.configuration.PersonIdentificationNumberIndexInitializer;
+import cz.itnetwork.constant.DataAggregate;
+import cz.itnetwork.dto.InvoiceImportResultDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonSyncResultDTO;
+import cz.itnetwork.dto.mapper.PersonMapper;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hromadný zápis osob klíčovaný IČO.
+ * <p>
+ * Vstup se čte po řádcích, v paměti je jedna dávka a množina viděných IČO. Každá dávka se porovná
+ * s existujícími aktivními osobami jedním dotazem, nové osoby se vloží a změněné upraví dávkovým JDBC zápisem,
+ * beze změny se nezapisuje nic. Skryté osoby se nikdy neupravují ani neobnovují - IČO skryté osoby
+ * založí novou aktivní osobu, stejně jako addPerson.
+ */
+@Service
+public class PersonSyncServiceImpl implements PersonSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonSyncServiceImpl.class);
+
+    // Maximální počet vypsaných chyb řádků v odpovědi
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    // Prvních 12 parametrů obou příkazů plní setPersonColumns
+    private static final String INSERT_SQL = "INSERT INTO person " +
+            "(name, tax_number, account_number, bank_code, iban, telephone, mail, street, zip, city, country, note, " +
+            "identification_number, hidden) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)";
+
+    private static final String UPDATE_SQL = "UPDATE person SET name = ?, tax_number = ?, account_number = ?, " +
+            "bank_code = ?, iban = ?, telephone = ?, mail = ?, street = ?, zip = ?, city = ?, country = ?, note = ? " +
+            "WHERE id = ? AND hidden = false";
+
+    private static final String HIDE_SQL = "UPDATE person SET hidden = true WHERE id = ? AND hidden = false";
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PersonMapper personMapper;
+
+    @Autowired
+    private PersonLedgerService personLedgerService;
+
+    @Autowired
+    private PersonCache personCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private PersonIdentificationNumberIndexInitializer personIdentificationNumberIndexInitializer;
+
+    @Value("${invoice.person-sync.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public PersonSyncResultDTO syncNdjson(InputStream input, boolean hideMissing) throws IOException {
+        // Nové osoby se dohledávají podle IČO, bez unikátního indexu by mohly dostat ID jiné osoby
+        personIdentificationNumberIndexInitializer.requireIndex();
+        SyncRun run = new SyncRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long rowNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    run.add(rowNumber, objectMapper.readValue(line, PersonDTO.class));
+                } catch (JsonProcessingException e) {
+                    run.unreadable = true;
+                    run.fail(rowNumber, "Neplatný JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return run.finish(hideMissing);
+    }
+
+    /**
+     * Vrátí chybějící povinné údaje osoby (sloupce NOT NULL), prázdný seznam pro úplnou osobu.
+     */
+    private static List<String> missingFields(PersonDTO person) {
+        List<String> missing = new ArrayList<>();
+        if (!StringUtils.hasText(person.getName())) missing.add("name");
+        if (!StringUtils.hasText(person.getIdentificationNumber())) missing.add("identificationNumber");
+        if (!StringUtils.hasText(person.getAccountNumber())) missing.add("accountNumber");
+        if (!StringUtils.hasText(person.getBankCode())) missing.add("bankCode");
+        if (!StringUtils.hasText(person.getTelephone())) missing.add("telephone");
+        if (!StringUtils.hasText(person.getMail())) missing.add("mail");
+        if (!StringUtils.hasText(person.getStreet())) missing.add("street");
+        if (!StringUtils.hasText(person.getZip())) missing.add("zip");
+        if (!StringUtils.hasText(person.getCity())) missing.add("city");
+        if (person.getCountry() == null) missing.add("country");
+        return missing;
+    }
+
+    private static void setPersonColumns(PreparedStatement statement, PersonDTO person) throws SQLException {
+        statement.setString(1, person.getName());
+        statement.setString(2, person.getTaxNumber());
+        statement.setString(3, person.getAccountNumber());
+        statement.setString(4, person.getBankCode());
+        statement.setString(5, person.getIban());
+        statement.setString(6, person.getTelephone());
+        statement.setString(7, person.getMail());
+        statement.setString(8, person.getStreet());
+        statement.setString(9, person.getZip());
+        statement.setString(10, person.getCity());
+        statement.setString(11, person.getCountry().name());
+        statement.setString(12, person.getNote());
+    }
+
+    /**
+     * Stav jednoho zápisu - rozpracovaná dávka, viděná IČO a výsledek.
+     */
+    private class SyncRun {
+
+        // Dávka podle IČO, opakované IČO nejdřív zapíše předchozí dávku, takže platí pořadí řádků
+        private final Map<String, PersonDTO> batch = new LinkedHashMap<>();
+        private final Map<String, Long> batchRows = new HashMap<>();
+        private final Set<String> seenIdentificationNumbers = new HashSet<>();
+        private final PersonSyncResultDTO result = new PersonSyncResultDTO();
+        // Řádek, u kterého nelze určit IČO - skrývání chybějících osob by mohlo skrýt i tuto osobu
+        private boolean unreadable;
+
+        private void add(long rowNumber, PersonDTO person) {
+            if (StringUtils.hasText(person.getIdentificationNumber())) {
+                seenIdentificationNumbers.add(person.getIdentificationNumber());
+            } else {
+                unreadable = true;
+            }
+            List<String> missing = missingFields(person);
+            if (!missing.isEmpty()) {
+                fail(rowNumber, "Chybí povinné údaje: " + String.join(", ", missing));
+                return;
+            }
+
+            if (batch.containsKey(person.getIdentificationNumber())) {
+                flush();
+            }
+            batch.put(person.getIdentificationNumber(), person);
+            batchRows.put(person.getIdentificationNumber(), rowNumber);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void fail(long rowNumber, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new InvoiceImportResultDTO.RowError(rowNumber, message));
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                long[] counts = transactionTemplate.execute(status -> writeBatch());
+                result.setInserted(result.getInserted() + counts[0]);
+                result.setUpdated(result.getUpdated() + counts[1]);
+                result.setUnchanged(result.getUnchanged() + counts[2]);
+            } catch (DataAccessException e) {
+                logger.warn("Dávka zápisu osob selhala", e);
+                String message = "Zápis dávky selhal: " + e.getMostSpecificCause().getMessage();
+                batchRows.values().stream().sorted().forEach(rowNumber -> fail(rowNumber, message));
+            }
+            batch.clear();
+            batchRows.clear();
+        }
+
+        /**
+         * Zapíše dávku, vrátí počty [vloženo, upraveno, beze změny].
+         */
+        private long[] writeBatch() {
+            Map<String, PersonEntity> existing = new HashMap<>();
+            for (PersonEntity person : personRepository.findActiveByIdentificationNumbers(batch.keySet())) {
+                existing.put(person.getIdentificationNumber(), person);
+            }
+
+            List<PersonDTO> inserts = new ArrayList<>();
+            List<PersonDTO> updates = new ArrayList<>();
+            for (PersonDTO person : batch.values()) {
+                PersonEntity current = existing.get(person.getIdentificationNumber());
+                if (current == null) {
+                    inserts.add(person);
+                    continue;
+                }
+                person.setId(current.getId());
+                if (!person.equals(personMapper.toDTO(current))) {
+                    updates.add(person);
+                }
+            }
+
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (statement, person) -> {
+                    setPersonColumns(statement, person);
+                    statement.setString(13, person.getIdentificationNumber());
+                });
+                // JDBC batch nevrací ID, aktivní IČO je ale unikátní, takže nové osoby jdou dohledat jedním dotazem
+                List<Long> insertedIds = new ArrayList<>();
+                for (Object[] row : personRepository.findActiveIdsByIdentificationNumbers(
+                        inserts.stream().map(PersonDTO::getIdentificationNumber).toList())) {
+                    insertedIds.add((Long) row[0]);
+                    personCache.evict((Long) row[0], (String) row[1]);
+                }
+                personLedgerService.openLedgers(insertedIds);
+            }
+
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (statement, person) -> {
+                    setPersonColumns(statement, person);
+                    statement.setLong(13, person.getId());
+                });
+                updates.forEach(person -> personCache.evict(person.getId(), person.getIdentificationNumber()));
+            }
+
+            if (!inserts.isEmpty() || !updates.isEmpty()) {
+                dataVersions.bump(DataAggregate.PERSONS);
+            }
+            return new long[]{inserts.size(), updates.size(), batch.size() - inserts.size() - updates.size()};
+        }
+
+        /**
+         * Skryje aktivní osoby, jejichž IČO ve vstupu nebylo - stejně jako removePerson, faktury zůstávají.
+         */
+        private void hideMissing() {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            List<Object[]> missing = transactionTemplate.execute(status -> personRepository.findActiveIdsAndIdentificationNumbers()).stream()
+                    .filter(row -> !seenIdentificationNumbers.contains((String) row[1]))
+                    .toList();
+            for (int from = 0; from < missing.size(); from += batchSize) {
+                List<Object[]> chunk = missing.subList(from, Math.min(from + batchSize, missing.size()));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.batchUpdate(HIDE_SQL, chunk, chunk.size(),
+                                (statement, row) -> statement.setLong(1, (Long) row[0]));
+                        chunk.forEach(row -> personCache.evict((Long) row[0], (String) row[1]));
+                        dataVersions.bump(DataAggregate.PERSONS);
+                    });
+                    result.setHidden(result.getHidden() + chunk.size());
+                } catch (DataAccessException e) {
+                    logger.warn("Skrytí chybějících osob selhalo", e);
+                    fail(0, "Skrytí chybějících osob selhalo: " + e.getMostSpecificCause().getMessage());
+                    return;
+                }
+            }
+        }
+
+        private PersonSyncResultDTO finish(boolean hideMissing) {
+            flush();
+            if (hideMissing && unreadable) {
+                // Chybová položka bez řádku, počet "failed" se nemění
+                result.getErrors().add(new InvoiceImportResultDTO.RowError(0,
+                        "Vstup obsahuje řádky bez IČO, chybějící osoby se neskryly."));
+            } else if (hideMissing) {
+                hideMissing();
+            }
+            logger.info("Zápis osob dokončen: {} vloženo, {} upraveno, {} beze změny, {} skryto, {} chybných řádků",
+                    result.getInserted(), result.getUpdated(), result.getUnchanged(), result.getHidden(), result.getFailed());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.ProductDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductCatalogService {
+
+    /**
+     * Zvýší počet použití produktu, případně ho přidá do katalogu.
+     */
+    void recordProduct(String name);
+
+    /**
+     * Sníží počet použití produktu.
+     */
+    void releaseProduct(String name);
+
+    /**
+     * Přesune jedno použití z původního produktu na nový (úprava faktury).
+     */
+    void replaceProduct(String previous, String updated);
+
+    /**
+     * Zvýší počty použití více produktů najednou (hromadný import), jeden zápis na produkt.
+     */
+    void recordProducts(Collection<String> names);
+
+    /**
+     * Vrátí názvy všech používaných produktů seřazené podle abecedy.
+     */
+    List<String> getProductNames();
+
+    /**
+     * Vrátí stránku produktů začínajících zadaným prefixem (našeptávač).
+     */
+    List<ProductDTO> searchProducts(String prefix, int page, int size);
+
+    /**
+     * Přepočítá katalog od nuly z tabulky faktur.
+     *
+     * @return Počet produktů v katalogu.
+     */
+    int rebuild();
+}
@@ -0,0 +1,119 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.ProductDTO;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ProductCatalogServiceImpl implements ProductCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogServiceImpl.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    // Zápisy se vždy připojí k transakci volající služby faktur
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordProduct(String name) {
+        if (name != null) {
+            productRepository.applyDelta(name, 1);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseProduct(String name) {
+        if (name != null) {
+            productRepository.applyDelta(name, -1);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void replaceProduct(String previous, String updated) {
+        if (Objects.equals(previous, updated)) {
+            return;
+        }
+        // Dva řádky katalogu se zamykají podle názvu, aby se protisměrné přejmenování nezablokovalo
+        if (previous != null && (updated == null || previous.compareTo(updated) < 0)) {
+            releaseProduct(previous);
+            recordProduct(updated);
+        } else {
+            recordProduct(updated);
+            releaseProduct(previous);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordProducts(Collection<String> names) {
+        Map<String, Long> counts = names.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+        counts.forEach(productRepository::applyDelta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getProductNames() {
+        return productRepository.findUsedNames();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductDTO> searchProducts(String prefix, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("name"));
+        return productRepository.findByNameStartingWithAndUsageCountGreaterThan(prefix, 0, pageRequest).stream()
+                .map(product -> new ProductDTO(product.getName(), product.getUsageCount()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        productRepository.deleteAllRows();
+        productRepository.insertRecomputedRows();
+        // Produkty archivovaných faktur se přičtou po blocích
+        invoiceArchiveService.forEachBlock(invoices -> recordProducts(invoices.stream().map(InvoiceEntity::getProduct).toList()));
+        int rows = (int) productRepository.count();
+        logger.info("Katalog produktů přepočítán, počet produktů: {}", rows);
+        return rows;
+    }
+
+    /**
+     * Při prvním startu nad existující databází katalog ještě neexistuje, proto se naplní.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (productRepository.count() == 0 && (invoiceRepository.count() > 0 || invoiceArchiveService.getHorizon() != null)) {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package cz.itnetwork.service.analytics;
+
+import cz.itnetwork.constant.AnalyticsDimension;
+import cz.itnetwork.constant.AnalyticsMetric;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.filter.InvoiceAnalyticsFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Faktury v paměti po sloupcích primitivních polí pro analytické dotazy.
+ * <p>
+ * Řádek i tvoří ids[i], prices[i], issued[i] (dny od 1970-01-01), sellers[i], buyers[i], products[i] a vats[i].
+ * Osoby, produkty a sazby DPH jsou zakódované slovníkem do malých čísel. Dotaz prochází pole po úsecích
+ * paralelně ve fork/join poolu a ve smyčce přes řádky nic nealokuje, každý úsek sčítá do vlastního pole.
+ * Zápisy drží zámek pro zápis, dotazy zámek pro čtení. Smazaný řádek nahradí poslední, pole tak nemají díry.
+ */
+public class InvoiceColumnStore {
+
+    // Faktura bez data vystavení, mimo každý rozsah dat
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    // Prodávající, kupující nebo produkt chybí
+    private static final int NONE = -1;
+    // Filtr nepožaduje konkrétní hodnotu
+    private static final int ANY = -2;
+    // Filtr požaduje hodnotu, která ve slovníku není, nevyhoví žádný řádek
+    private static final int MISSING = -3;
+
+    // Nejmenší úsek řádků, který se ještě dělí mezi vlákna
+    private static final int SPLIT_THRESHOLD = 1 << 15;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ForkJoinPool pool;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private int[] issued = new int[INITIAL_CAPACITY];
+    private int[] sellers = new int[INITIAL_CAPACITY];
+    private int[] buyers = new int[INITIAL_CAPACITY];
+    private int[] products = new int[INITIAL_CAPACITY];
+    private byte[] vats = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    private final Map<Long, Integer> rowsById = new HashMap<>();
+
+    private final Map<Long, Integer> personCodes = new HashMap<>();
+    private long[] personIds = new long[64];
+    private int personCount;
+
+    private final Map<String, Integer> productCodes = new HashMap<>();
+    private final List<String> productNames = new ArrayList<>();
+
+    // Sazba DPH se ukládá jako kód do bajtu, skutečnou sazbu drží tato tabulka
+    private final Map<Integer, Integer> vatCodes = new HashMap<>();
+    private final int[] vatRates = new int[256];
+
+    public InvoiceColumnStore(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Vloží faktury, nebo přepíše jejich řádky. S replace = false už známé faktury přeskočí
+     * (dočítání z databáze nesmí přepsat novější změnu zapsanou přímo).
+     */
+    public void putAll(Collection<InvoiceEntity> invoices, boolean replace) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            for (InvoiceEntity invoice : invoices) {
+                Integer row = rowsById.get(invoice.getId());
+                if (row == null) {
+                    ensureCapacity(size + 1);
+                    row = size++;
+                    rowsById.put(invoice.getId(), row);
+                } else if (!replace) {
+                    continue;
+                }
+                ids[row] = invoice.getId();
+                prices[row] = invoice.getPrice() != null ? invoice.getPrice() : 0L;
+                issued[row] = invoice.getIssued() != null ? (int) invoice.getIssued().toEpochDay() : NO_DATE;
+                sellers[row] = invoice.getSeller() != null ? personCode(invoice.getSeller().getId()) : NONE;
+                buyers[row] = invoice.getBuyer() != null ? personCode(invoice.getBuyer().getId()) : NONE;
+                products[row] = invoice.getProduct() != null ? productCode(invoice.getProduct()) : NONE;
+                vats[row] = vatCode(invoice.getVat());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(long id) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Integer row = rowsById.remove(id);
+            if (row == null) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                prices[row] = prices[last];
+                issued[row] = issued[last];
+                sellers[row] = sellers[last];
+                buyers[row] = buyers[last];
+                products[row] = products[last];
+                vats[row] = vats[last];
+                rowsById.put(ids[row], row);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return read(() -> size);
+    }
+
+    public int personsCount() {
+        return read(() -> personCount);
+    }
+
+    public int productsCount() {
+        return read(productNames::size);
+    }
+
+    /**
+     * Počet, součet cen a součet DPH faktur vyhovujících filtru.
+     */
+    public Group summarize(InvoiceAnalyticsFilter filter) {
+        return read(() -> {
+            Criteria criteria = resolve(filter);
+            long[] sums = scan(criteria, null, 0, 1);
+            return new Group(0, null, 0, sums[0], sums[1], sums[2]);
+        });
+    }
+
+    /**
+     * Součty po osobách, produktech nebo měsících, jen neprázdné skupiny seřazené podle klíče.
+     * Měsíc je yyyyMM, faktury bez data vystavení mají měsíc 0.
+     */
+    public List<Group> group(AnalyticsDimension dimension, InvoiceAnalyticsFilter filter) {
+        return read(() -> {
+            Criteria criteria = resolve(filter);
+            int base = 0;
+            int groups = switch (dimension) {
+                case SELLER, BUYER -> personCount;
+                case PRODUCT -> productNames.size();
+                case MONTH -> 0;
+            };
+            if (dimension == AnalyticsDimension.MONTH) {
+                int[] range = pool.invoke(new MonthRangeTask(criteria, 0, size));
+                if (range[0] > range[1]) {
+                    // Jen faktury bez data vystavení, stačí skupina 0
+                    range[0] = range[1] = 0;
+                }
+                base = range[0];
+                groups = range[1] - range[0] + 2;
+            }
+
+            long[] sums = scan(criteria, dimension, base, groups);
+            List<Group> result = new ArrayList<>();
+            for (int key = 0; key < groups; key++) {
+                if (sums[key * 3] != 0) {
+                    result.add(toGroup(dimension, base, key, sums));
+                }
+            }
+            result.sort(keyOrder(dimension));
+            return result;
+        });
+    }
+
+    /**
+     * Nejvýše limit skupin s nejvyšší hodnotou metriky, sestupně, při shodě podle klíče.
+     */
+    public List<Group> top(AnalyticsDimension dimension, AnalyticsMetric metric, int limit, InvoiceAnalyticsFilter filter) {
+        Comparator<Group> order = Comparator.comparingLong((Group group) -> group.value(metric)).reversed()
+                .thenComparing(keyOrder(dimension));
+        // Halda drží nejhorší z dosud nejlepších na vrcholu
+        PriorityQueue<Group> best = new PriorityQueue<>(limit + 1, order.reversed());
+        for (Group group : group(dimension, filter)) {
+            best.add(group);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Group> result = new ArrayList<>(best);
+        result.sort(order);
+        return result;
+    }
+
+    private static Comparator<Group> keyOrder(AnalyticsDimension dimension) {
+        return switch (dimension) {
+            case SELLER, BUYER -> Comparator.comparingLong(Group::personId);
+            case PRODUCT -> Comparator.comparing(Group::product);
+            case MONTH -> Comparator.comparingInt(Group::period);
+        };
+    }
+
+    private Group toGroup(AnalyticsDimension dimension, int base, int key, long[] sums) {
+        long count = sums[key * 3];
+        long price = sums[key * 3 + 1];
+        long vat = sums[key * 3 + 2];
+        return switch (dimension) {
+            case SELLER, BUYER -> new Group(personIds[key], null, 0, count, price, vat);
+            case PRODUCT -> new Group(0, productNames.get(key), 0, count, price, vat);
+            case MONTH -> {
+                int month = key == 0 ? 0 : base + key - 1;
+                yield new Group(0, null, key == 0 ? 0 : (month / 12) * 100 + month % 12 + 1, count, price, vat);
+            }
+        };
+    }
+
+    private long[] scan(Criteria criteria, AnalyticsDimension dimension, int base, int groups) {
+        if (size == 0) {
+            return new long[groups * 3];
+        }
+        // Úsek musí být výrazně větší než pole součtů, jinak by sčítání polí stálo víc než průchod řádky
+        int threshold = Math.max(SPLIT_THRESHOLD, groups * 4);
+        return pool.invoke(new ScanTask(criteria, dimension, base, groups, threshold, 0, size));
+    }
+
+    private Criteria resolve(InvoiceAnalyticsFilter filter) {
+        Criteria criteria = new Criteria();
+        if (filter == null) {
+            return criteria;
+        }
+        if (filter.getDateFrom() != null) {
+            criteria.issuedFrom = (int) filter.getDateFrom().toEpochDay();
+        } else if (filter.getDateTo() != null) {
+            criteria.issuedFrom = NO_DATE + 1;
+        }
+        if (filter.getDateTo() != null) {
+            criteria.issuedTo = (int) filter.getDateTo().toEpochDay();
+        }
+        if (filter.getMinPrice() != null) {
+            criteria.minPrice = filter.getMinPrice();
+        }
+        if (filter.getMaxPrice() != null) {
+            criteria.maxPrice = filter.getMaxPrice();
+        }
+        if (filter.getSellerId() != null) {
+            criteria.seller = personCodes.getOrDefault(filter.getSellerId(), MISSING);
+        }
+        if (filter.getBuyerId() != null) {
+            criteria.buyer = personCodes.getOrDefault(filter.getBuyerId(), MISSING);
+        }
+        if (filter.getProduct() != null) {
+            criteria.product = productCodes.getOrDefault(filter.getProduct(), MISSING);
+        }
+        return criteria;
+    }
+
+    private boolean matches(Criteria criteria, int row) {
+        int day = issued[row];
+        long price = prices[row];
+        return day >= criteria.issuedFrom && day <= criteria.issuedTo
+                && price >= criteria.minPrice && price <= criteria.maxPrice
+                && (criteria.seller == ANY || sellers[row] == criteria.seller)
+                && (criteria.buyer == ANY || buyers[row] == criteria.buyer)
+                && (criteria.product == ANY || products[row] == criteria.product);
+    }
+
+    private int personCode(long personId) {
+        Integer code = personCodes.get(personId);
+        if (code == null) {
+            code = personCount++;
+            if (code == personIds.length) {
+                personIds = Arrays.copyOf(personIds, code * 2);
+            }
+            personIds[code] = personId;
+            personCodes.put(personId, code);
+        }
+        return code;
+    }
+
+    private int productCode(String product) {
+        return productCodes.computeIfAbsent(product, name -> {
+            productNames.add(name);
+            return productNames.size() - 1;
+        });
+    }
+
+    private byte vatCode(int vat) {
+        Integer code = vatCodes.get(vat);
+        if (code == null) {
+            if (vatCodes.size() == vatRates.length) {
+                throw new IllegalStateException("Snapshot faktur pojme nejvýše " + vatRates.length + " různých sazeb DPH");
+            }
+            code = vatCodes.size();
+            vatRates[code] = vat;
+            vatCodes.put(vat, code);
+        }
+        return (byte) (int) code;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int grown = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, grown);
+        prices = Arrays.copyOf(prices, grown);
+        issued = Arrays.copyOf(issued, grown);
+        sellers = Arrays.copyOf(sellers, grown);
+        buyers = Arrays.copyOf(buyers, grown);
+        products = Arrays.copyOf(products, grown);
+        vats = Arrays.copyOf(vats, grown);
+    }
+
+    private <T> T read(Supplier<T> query) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return query.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Pořadové číslo měsíce (rok * 12 + měsíc - 1) ze dne od 1970-01-01 čistě celočíselně, bez LocalDate.
+     */
+    static int monthIndex(int epochDay) {
+        int shifted = epochDay + 719468;
+        int era = (shifted >= 0 ? shifted : shifted - 146096) / 146097;
+        int dayOfEra = shifted - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Výsledek dotazu: klíč skupiny (osoba, produkt nebo měsíc yyyyMM) a součty.
+     */
+    public record Group(long personId, String product, int period, long invoicesCount, long priceSum, long vatSum) {
+
+        long value(AnalyticsMetric metric) {
+            return switch (metric) {
+                case COUNT -> invoicesCount;
+                case PRICE -> priceSum;
+                case VAT -> vatSum;
+            };
+        }
+    }
+
+    // Filtr převedený na kódy slovníků a dny, výchozí hodnoty nepropustí nic navíc ani neodfiltrují
+    private static final class Criteria {
+        int issuedFrom = NO_DATE;
+        int issuedTo = Integer.MAX_VALUE;
+        long minPrice = Long.MIN_VALUE;
+        long maxPrice = Long.MAX_VALUE;
+        int seller = ANY;
+        int buyer = ANY;
+        int product = ANY;
+    }
+
+    /**
+     * Součty úseku řádků do pole [počet, cena, DPH] pro každou skupinu, úseky nad prahem se dělí na poloviny.
+     */
+    private final class ScanTask extends RecursiveTask<long[]> {
+
+        private final Criteria criteria;
+        private final AnalyticsDimension dimension;
+        private final int base;
+        private final int groups;
+        private final int threshold;
+        private final int from;
+        private final int to;
+
+        private ScanTask(Criteria criteria, AnalyticsDimension dimension, int base, int groups, int threshold, int from, int to) {
+            this.criteria = criteria;
+            this.dimension = dimension;
+            this.base = base;
+            this.groups = groups;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= threshold) {
+                return scanRange();
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(criteria, dimension, base, groups, threshold, from, middle);
+            left.fork();
+            long[] right = new ScanTask(criteria, dimension, base, groups, threshold, middle, to).compute();
+            long[] sums = left.join();
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += right[i];
+            }
+            return sums;
+        }
+
+        private long[] scanRange() {
+            long[] sums = new long[groups * 3];
+            for (int row = from; row < to; row++) {
+                if (!matches(criteria, row)) {
+                    continue;
+                }
+                int key = key(row);
+                if (key < 0) {
+                    continue;
+                }
+                long price = prices[row];
+                sums[key * 3]++;
+                sums[key * 3 + 1] += price;
+                sums[key * 3 + 2] += price * vatRates[vats[row] & 0xFF] / 100;
+            }
+            return sums;
+        }
+
+        private int key(int row) {
+            if (dimension == null) {
+                return 0;
+            }
+            return switch (dimension) {
+                case SELLER -> sellers[row];
+                case BUYER -> buyers[row];
+                case PRODUCT -> products[row];
+                // Skupina 0 patří fakturám bez data vystavení, měsíce začínají od 1
+                case MONTH -> issued[row] == NO_DATE ? 0 : monthIndex(issued[row]) - base + 1;
+            };
+        }
+    }
+
+    /**
+     * Nejmenší a největší pořadové číslo měsíce mezi vyhovujícími fakturami s datem vystavení.
+     */
+    private final class MonthRangeTask extends RecursiveTask<int[]> {
+
+        private final Criteria criteria;
+        private final int from;
+        private final int to;
+
+        private MonthRangeTask(Criteria criteria, int from, int to) {
+            this.criteria = criteria;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int row = from; row < to; row++) {
+                    if (issued[row] != NO_DATE && matches(criteria, row)) {
+                        min = Math.min(min, issued[row]);
+                        max = Math.max(max, issued[row]);
+                    }
+                }
+                return min > max ? new int[]{min, max} : new int[]{monthIndex(min), monthIndex(max)};
+            }
+            int middle = (from + to) >>> 1;
+            MonthRangeTask left = new MonthRangeTask(criteria, from, middle);
+            left.fork();
+            int[] right = new MonthRangeTask(criteria, middle, to).compute();
+            int[] range = left.join();
+            range[0] = Math.min(range[0], right[0]);
+            range[1] = Math.max(range[1], right[1]);
+            return range;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package cz.itnetwork.service.archive;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Záznam indexu v patičce archivního souboru - kde blok leží a co obsahuje.
+ * Pole ID jsou seřazená, aby šlo rychle zjistit, jestli blok danou fakturu nebo osobu obsahuje.
+ */
+@Data
+@NoArgsConstructor
+public class ArchiveBlock {
+
+    private long offset;
+    private int length;
+    private int count;
+    private LocalDate minIssued;
+    private LocalDate maxIssued;
+    private long[] ids;
+    private long[] sellerIds;
+    private long[] buyerIds;
+    // Měsíce číselných řad (yyyyMM) čísel faktur v bloku
+    private String[] numberPeriods;
+
+    public boolean containsId(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    public boolean containsSeller(long personId) {
+        return Arrays.binarySearch(sellerIds, personId) >= 0;
+    }
+
+    public boolean containsBuyer(long personId) {
+        return Arrays.binarySearch(buyerIds, personId) >= 0;
+    }
+
+    public boolean containsNumberPeriod(String period) {
+        return Arrays.asList(numberPeriods).contains(period);
+    }
+
+    /**
+     * Může blok obsahovat faktury vystavené v daném rozsahu (null = neomezeno)?
+     */
+    public boolean overlaps(LocalDate from, LocalDate to) {
+        return (from == null || !maxIssued.isBefore(from)) && (to == null || !minIssued.isAfter(to));
+    }
+}
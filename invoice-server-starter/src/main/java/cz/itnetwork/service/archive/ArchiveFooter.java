@@ -0,0 +1,21 @@
+package cz.itnetwork.service.archive;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Patička archivního souboru - index všech bloků jednoho roku vystavení.
+ */
+@Data
+@NoArgsConstructor
+public class ArchiveFooter {
+
+    private int year;
+    // Archivace přesunula faktury vystavené před tímto dnem
+    private LocalDate archivedBefore;
+    private List<ArchiveBlock> blocks = new ArrayList<>();
+}
@@ -0,0 +1,171 @@
+package cz.itnetwork.service.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.dto.ArchivedInvoiceDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jeden neměnný soubor archivu faktur z jednoho roku vystavení.
+ * <p>
+ * Formát: [blok 0][blok 1]...[patička][délka patičky: int][MAGIC]. Blok je gzip se Smile polem
+ * {@link ArchivedInvoiceDTO}, patička je Smile {@link ArchiveFooter}. Patička se drží v paměti,
+ * dotaz podle ní vybere bloky a z disku čte a rozbaluje jen ty.
+ */
+public class ArchiveSegment {
+
+    private static final byte[] MAGIC = "INVARC01".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_LENGTH = Integer.BYTES + MAGIC.length;
+
+    private final Path path;
+    private final ArchiveFooter footer;
+    private final ObjectMapper smileMapper;
+
+    private ArchiveSegment(Path path, ArchiveFooter footer, ObjectMapper smileMapper) {
+        this.path = path;
+        this.footer = footer;
+        this.smileMapper = smileMapper;
+    }
+
+    /**
+     * Zapíše faktury jednoho roku do nového souboru. Soubor vznikne pod dočasným názvem
+     * a na cílové místo se přesune až celý zapsaný, rozepsaný soubor tak nikdy není vidět.
+     */
+    public static ArchiveSegment write(Path target, int year, LocalDate archivedBefore, List<ArchivedInvoiceDTO> invoices,
+                                       int blockSize, ObjectMapper smileMapper) throws IOException {
+        List<ArchivedInvoiceDTO> sorted = invoices.stream()
+                .sorted(Comparator.comparing(ArchivedInvoiceDTO::getId))
+                .toList();
+
+        ArchiveFooter footer = new ArchiveFooter();
+        footer.setYear(year);
+        footer.setArchivedBefore(archivedBefore);
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (int from = 0; from < sorted.size(); from += blockSize) {
+                List<ArchivedInvoiceDTO> blockInvoices = sorted.subList(from, Math.min(from + blockSize, sorted.size()));
+                byte[] bytes = compress(blockInvoices, smileMapper);
+                writeFully(channel, ByteBuffer.wrap(bytes));
+
+                ArchiveBlock block = describe(blockInvoices);
+                block.setOffset(offset);
+                block.setLength(bytes.length);
+                footer.getBlocks().add(block);
+                offset += bytes.length;
+            }
+
+            byte[] footerBytes = smileMapper.writeValueAsBytes(footer);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH).putInt(footerBytes.length).put(MAGIC).flip();
+            writeFully(channel, ByteBuffer.wrap(footerBytes));
+            writeFully(channel, trailer);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return new ArchiveSegment(target, footer, smileMapper);
+    }
+
+    /**
+     * Otevře existující soubor a načte jeho patičku.
+     */
+    public static ArchiveSegment open(Path path, ObjectMapper smileMapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_LENGTH) {
+                throw new IOException("Poškozený archivní soubor " + path);
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_LENGTH, TRAILER_LENGTH);
+            int footerLength = trailer.getInt();
+            byte[] magic = new byte[MAGIC.length];
+            trailer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || footerLength <= 0 || footerLength > size - TRAILER_LENGTH) {
+                throw new IOException("Poškozený archivní soubor " + path);
+            }
+
+            ByteBuffer footerBytes = read(channel, size - TRAILER_LENGTH - footerLength, footerLength);
+            ArchiveFooter footer = smileMapper.readValue(footerBytes.array(), ArchiveFooter.class);
+            return new ArchiveSegment(path, footer, smileMapper);
+        }
+    }
+
+    /**
+     * Načte a rozbalí faktury jednoho bloku.
+     */
+    public List<ArchivedInvoiceDTO> readBlock(ArchiveBlock block) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            bytes = read(channel, block.getOffset(), block.getLength());
+        }
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes.array()))) {
+            return Arrays.asList(smileMapper.readValue(input, ArchivedInvoiceDTO[].class));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public ArchiveFooter getFooter() {
+        return footer;
+    }
+
+    private static byte[] compress(List<ArchivedInvoiceDTO> invoices, ObjectMapper smileMapper) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream output = new GZIPOutputStream(bytes)) {
+            smileMapper.writeValue(output, invoices);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ArchiveBlock describe(List<ArchivedInvoiceDTO> invoices) {
+        ArchiveBlock block = new ArchiveBlock();
+        block.setCount(invoices.size());
+        block.setIds(invoices.stream().mapToLong(ArchivedInvoiceDTO::getId).sorted().toArray());
+        block.setSellerIds(invoices.stream().map(ArchivedInvoiceDTO::getSellerId).filter(Objects::nonNull)
+                .mapToLong(Long::longValue).sorted().distinct().toArray());
+        block.setBuyerIds(invoices.stream().map(ArchivedInvoiceDTO::getBuyerId).filter(Objects::nonNull)
+                .mapToLong(Long::longValue).sorted().distinct().toArray());
+        block.setMinIssued(invoices.stream().map(ArchivedInvoiceDTO::getIssued).min(Comparator.naturalOrder()).orElseThrow());
+        block.setMaxIssued(invoices.stream().map(ArchivedInvoiceDTO::getIssued).max(Comparator.naturalOrder()).orElseThrow());
+        block.setNumberPeriods(invoices.stream().map(ArchivedInvoiceDTO::getInvoiceNumber)
+                .filter(number -> number != null && number.length() >= 6)
+                .map(number -> number.substring(0, 6))
+                .distinct().sorted().toArray(String[]::new));
+        return block;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Neočekávaný konec archivního souboru");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,183 @@
+package cz.itnetwork.configuration;
+
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.specification.InvoiceSpecification;
+import cz.itnetwork.service.PersonService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+/**
+ * EXPLAIN dotazů omezených datem vystavení nad tabulkou rozdělenou na měsíční oddíly (MySQL 8 v kontejneru).
+ * <p>
+ * SQL se zachytí tak, jak ho vygeneroval Hibernate (přes QueryCountMonitor), a ověří se, že MySQL čte jen
+ * oddíly odpovídající rozsahu dat a u úzkého rozsahu použije index idx_invoice_issued.
+ */
+@Tag("mysql")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "invoice.search.fulltext=false",
+        "invoice.partitioning.enabled=true",
+        "invoice.partitioning.granularity=MONTHS",
+        "invoice.partitioning.cron=-"
+})
+class InvoicePartitionExplainTest {
+
+    // Dva roky faktur, v každém měsíci dost řádků na to, aby optimalizátor u úzkého rozsahu volil index
+    private static final LocalDate FIRST_ISSUED = LocalDate.of(2024, 1, 1);
+    private static final int INVOICES_PER_DAY = 60;
+    private static final int DAYS = 731;
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withUrlParam("rewriteBatchedStatements", "true");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoicePartitionMaintenance partitionMaintenance;
+
+    @SpyBean
+    private QueryCountMonitor queryCountMonitor;
+
+    @BeforeAll
+    void partitionInvoices() {
+        long sellerId = addPerson("10000001");
+        long buyerId = addPerson("10000002");
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int day = 0; day < DAYS; day++) {
+            Date issued = Date.valueOf(FIRST_ISSUED.plusDays(day));
+            for (int i = 0; i < INVOICES_PER_DAY; i++) {
+                rows.add(new Object[]{"T" + day + "-" + i, sellerId, buyerId, issued, "Produkt " + i % 20, 100 + i});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO invoice_entity (invoice_number, seller_id, buyer_id, issued, product, "
+                + "price, vat, deleted) VALUES (?, ?, ?, ?, ?, ?, 21, false)", rows);
+
+        // Cizí klíče, které založilo ddl-auto, odstraní převod sám
+        partitionMaintenance.maintainPartitions();
+        jdbcTemplate.execute("ANALYZE TABLE invoice_entity");
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.referential_constraints "
+                + "WHERE constraint_schema = DATABASE() "
+                + "AND (table_name = 'invoice_entity' OR referenced_table_name = 'invoice_entity')", Integer.class))
+                .isZero();
+        assertThat(jdbcTemplate.queryForList("SELECT partition_name FROM information_schema.partitions "
+                + "WHERE table_schema = DATABASE() AND table_name = 'invoice_entity'", String.class))
+                .contains("p202401", "p202512", "p_max");
+    }
+
+    @BeforeEach
+    void clearCapturedStatements() {
+        clearInvocations(queryCountMonitor);
+    }
+
+    @Test
+    void yearSumReadsOnlyPartitionsOfTheYear() {
+        invoiceRepository.calculateSumIssuedBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 1));
+
+        Map<String, Object> plan = explainInvoiceTable(lastStatement("sum("),
+                LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 1));
+
+        assertThat(partitions(plan)).containsExactly("p202401", "p202402", "p202403", "p202404", "p202405",
+                "p202406", "p202407", "p202408", "p202409", "p202410", "p202411", "p202412");
+    }
+
+    @Test
+    void dateFilterReadsOneMonthThroughIssuedIndex() {
+        InvoiceFilter filter = new InvoiceFilter();
+        filter.setDateFrom(LocalDate.of(2024, 3, 4));
+        filter.setDateTo(LocalDate.of(2024, 3, 4));
+        invoiceRepository.findAll(new InvoiceSpecification(filter, null));
+
+        Map<String, Object> plan = explainInvoiceTable(lastStatement("issued>="),
+                filter.getDateFrom(), filter.getDateTo());
+
+        assertThat(partitions(plan)).containsExactly("p202403");
+        assertThat(plan.get("key")).isEqualTo("idx_invoice_issued");
+    }
+
+    @Test
+    void archiveCandidatesSkipNewerPartitions() {
+        LocalDate cutoff = LocalDate.of(2024, 7, 1);
+        invoiceRepository.findArchiveCandidates(cutoff, 0L, PageRequest.of(0, 100));
+
+        Map<String, Object> plan = explainInvoiceTable(lastStatement("issued<"), cutoff, 0L, 100);
+
+        assertThat(partitions(plan)).containsExactly("p202401", "p202402", "p202403", "p202404", "p202405",
+                "p202406");
+    }
+
+    private long addPerson(String identificationNumber) {
+        return personService.addPerson(new PersonDTO(null, "Firma " + identificationNumber, identificationNumber,
+                null, "123456789", "0100", null, "+420 777 123 456", "firma@example.cz", "Hlavní 1", "11000",
+                "Praha", Countries.CZECHIA, null)).getId();
+    }
+
+    /**
+     * Poslední SQL příkaz Hibernate obsahující daný úsek (bez mezer a bez ohledu na velikost písmen).
+     */
+    private String lastStatement(String fragment) {
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(queryCountMonitor, atLeastOnce()).inspect(statements.capture());
+        List<String> captured = statements.getAllValues();
+        for (int i = captured.size() - 1; i >= 0; i--) {
+            if (captured.get(i).replaceAll("\\s+", "").toLowerCase().contains(fragment)) {
+                return captured.get(i);
+            }
+        }
+        throw new AssertionError("Příkaz s '" + fragment + "' nebyl zachycen: " + captured);
+    }
+
+    /**
+     * Řádek plánu pro tabulku faktur (jediný s vyplněnými oddíly). Parametry doplní Connector/J na straně klienta.
+     */
+    private Map<String, Object> explainInvoiceTable(String sql, Object... parameters) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+        return plan.stream()
+                .filter(row -> row.get("partitions") != null)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Plán bez oddílů: " + plan));
+    }
+
+    private static List<String> partitions(Map<String, Object> plan) {
+        return List.of(String.valueOf(plan.get("partitions")).split(","));
+    }
+}
@@ -0,0 +1,57 @@
+package cz.itnetwork.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chybějící index kvůli aktivním duplicitám zastaví hromadný zápis, databáze jiná než MySQL se přeskočí.
+ */
+class PersonIdentificationNumberIndexInitializerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final PersonIdentificationNumberIndexInitializer initializer = new PersonIdentificationNumberIndexInitializer();
+
+    PersonIdentificationNumberIndexInitializerTest() {
+        ReflectionTestUtils.setField(initializer, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void duplicatesOnMySqlFailBulkWrite() {
+        database("MySQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(0);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("12345678"));
+
+        assertThatThrownBy(initializer::requireIndex)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("12345678");
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void otherDatabaseIsSkipped() {
+        database("H2");
+
+        assertThatCode(initializer::requireIndex).doesNotThrowAnyException();
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void database(String productName) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(productName);
+    }
+}
@@ -0,0 +1,199 @@
+package cz.itnetwork.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.service.PersonService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Směrování mezi dvěma samostatnými databázemi H2: replika dostane kopii primární databáze
+ * a pak zaostane o jednu osobu, takže z vrácených dat je vidět, odkud se četlo.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingDataSourceTest.PRIMARY_URL,
+        "invoice.datasource.replicas.enabled=true",
+        "invoice.datasource.replicas.check-lag=false",
+        "invoice.datasource.replicas.check-interval=3600000",
+        "invoice.datasource.replicas.pools[0].pool-name=replica-1",
+        "invoice.datasource.replicas.pools[0].jdbc-url=" + ReplicaRoutingDataSourceTest.REPLICA_URL,
+        "invoice.datasource.replicas.pools[0].username=sa"
+})
+class ReplicaRoutingDataSourceTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1;MODE=MySQL;"
+            + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,YEAR,MONTH";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1;MODE=MySQL;"
+            + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,YEAR,MONTH";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private JdbcTemplate replica;
+
+    @BeforeAll
+    void replicateThenFallBehind() {
+        addPerson("Firma na obou", "10000001");
+
+        // JdbcTemplate mimo transakci jde na primární databázi, její výpis se přehraje do repliky
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        for (String statement : jdbcTemplate.queryForList("SCRIPT", String.class)) {
+            if (!statement.startsWith("--")) {
+                replica.execute(statement);
+            }
+        }
+        replicaRoutingDataSource.checkReplicas();
+
+        addPerson("Firma jen na primární", "10000002");
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM person", Integer.class)).isEqualTo(2);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM person", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyTransactionReadsReplica() {
+        assertThat(personService.getAll())
+                .extracting(PersonDTO::getName)
+                .containsExactly("Firma na obou");
+    }
+
+    @Test
+    void conditionalGetReadsVersionFromReplica() throws Exception {
+        long replicaVersion = replica.queryForObject(
+                "SELECT version FROM data_version WHERE aggregate = 'PERSONS'", Long.class);
+        String etag = "W/\"" + replicaVersion + "\"";
+
+        // Verze na primární databázi je novější, ETag ale patří k datům z repliky
+        mockMvc.perform(get("/api/persons"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(jsonPath("$[*].name").value(contains("Firma na obou")));
+
+        mockMvc.perform(get("/api/persons").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // Připnutí k databázi nepřežije požadavek
+        assertThat(DataSourceRouting.pinnedTarget()).isNull();
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("replica-lagging");
+        pool.setJdbcUrl(REPLICA_URL);
+        pool.setUsername("sa");
+        LaggingReplicaRoutingDataSource routing = new LaggingReplicaRoutingDataSource(
+                new DriverManagerDataSource(PRIMARY_URL, "sa", ""), pool);
+        JdbcTemplate routed = new JdbcTemplate(routing);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            routing.lag(5.0);
+            assertThat(persons(routed)).isEqualTo(1);
+
+            routing.lag(60.0);
+            assertThat(persons(routed)).isEqualTo(2);
+
+            // Zastavená replikace (Seconds_Behind_Source je NULL)
+            routing.lag(null);
+            assertThat(persons(routed)).isEqualTo(2);
+
+            routing.lag(0.0);
+            assertThat(persons(routed)).isEqualTo(1);
+
+            // Připnutý požadavek po vyřazení své repliky přejde na primární databázi, ne na jinou repliku
+            DataSourceRouting.pinTarget();
+            assertThat(persons(routed)).isEqualTo(1);
+            routing.lag(60.0);
+            assertThat(persons(routed)).isEqualTo(2);
+            routing.lag(0.0);
+            assertThat(persons(routed)).isEqualTo(2);
+        } finally {
+            DataSourceRouting.releaseTarget();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            routing.destroy();
+        }
+    }
+
+    @Test
+    void destroyClosesReplicaPools() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("replica-closed");
+        pool.setJdbcUrl(REPLICA_URL);
+        pool.setUsername("sa");
+        pool.getConnection().close();
+
+        new ReplicaRoutingDataSource(jdbcTemplate.getDataSource(), List.of(pool), Duration.ofSeconds(30), false,
+                new SimpleMeterRegistry()).destroy();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    private static int persons(JdbcTemplate routed) {
+        return routed.queryForObject("SELECT COUNT(*) FROM person", Integer.class);
+    }
+
+    private void addPerson(String name, String identificationNumber) {
+        personService.addPerson(new PersonDTO(null, name, identificationNumber, null, "123456789", "0100", null,
+                "+420 777 123 456", "firma@example.cz", "Hlavní 1", "11000", "Praha", Countries.CZECHIA, null));
+    }
+
+    /**
+     * Směrování, které místo SHOW REPLICA STATUS hlásí zpoždění nastavené testem.
+     */
+    private static class LaggingReplicaRoutingDataSource extends ReplicaRoutingDataSource {
+
+        private Double lag;
+
+        private LaggingReplicaRoutingDataSource(DataSource primary, HikariDataSource replica) {
+            super(primary, List.of(replica), Duration.ofSeconds(30), true, new SimpleMeterRegistry());
+        }
+
+        private void lag(Double lag) {
+            this.lag = lag;
+            checkReplicas();
+        }
+
+        @Override
+        protected Double readLagSeconds(Connection connection) {
+            return lag;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package cz.itnetwork.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Stránkování kurzorem podle klíče, který některé faktury nemají vyplněný (datum splatnosti).
+ * Průchod vpřed i zpět musí vrátit každou fakturu právě jednou, prázdné hodnoty jako nejmenší.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest
+class InvoiceCursorPaginationTest {
+
+    private static final String SELLER = "30000001";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // ID faktur v pořadí podle data splatnosti vzestupně (prázdné napřed), shoda podle ID
+    private final List<Long> ascending = new ArrayList<>();
+
+    @BeforeAll
+    void seed() throws Exception {
+        long sellerId = addPerson("Prodávající", SELLER);
+        long buyerId = addPerson("Kupující", "30000002");
+        String[] dueDates = {null, "2025-01-10", null, "2025-03-01", "2025-01-10", null, "2025-02-01"};
+        long[] ids = new long[dueDates.length];
+        for (int i = 0; i < dueDates.length; i++) {
+            ids[i] = addInvoice(sellerId, buyerId, dueDates[i]);
+        }
+        for (int i : new int[]{0, 2, 5, 1, 4, 6, 3}) {
+            ascending.add(ids[i]);
+        }
+    }
+
+    @Test
+    void forwardAscendingStartsWithEmptyKeys() throws Exception {
+        assertThat(walkForward("dueDate,asc")).containsExactlyElementsOf(ascending);
+    }
+
+    @Test
+    void forwardDescendingEndsWithEmptyKeys() throws Exception {
+        List<Long> descending = walkForward("dueDate,desc");
+        // Sestupně se obrátí jen datum, shoda se řadí podle ID dál vzestupně
+        assertThat(descending).hasSize(ascending.size()).containsExactlyInAnyOrderElementsOf(ascending);
+        assertThat(descending.subList(descending.size() - 3, descending.size()))
+                .containsExactlyElementsOf(ascending.subList(0, 3));
+    }
+
+    @Test
+    void backwardReturnsPreviousPages() throws Exception {
+        List<List<Long>> pages = new ArrayList<>();
+        String cursor = "";
+        String prev = null;
+        while (cursor != null) {
+            String body = page("dueDate,asc", cursor);
+            pages.add(ids(body));
+            prev = JsonPath.read(body, "$.prev");
+            cursor = JsonPath.read(body, "$.next");
+        }
+
+        List<List<Long>> backward = new ArrayList<>();
+        cursor = prev;
+        while (cursor != null) {
+            String body = page("dueDate,asc", cursor);
+            backward.add(0, ids(body));
+            cursor = JsonPath.read(body, "$.prev");
+        }
+
+        assertThat(backward).isEqualTo(pages.subList(0, pages.size() - 1));
+    }
+
+    private List<Long> walkForward(String sort) throws Exception {
+        List<Long> seen = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            String body = page(sort, cursor);
+            seen.addAll(ids(body));
+            cursor = JsonPath.read(body, "$.next");
+        }
+        return seen;
+    }
+
+    private String page(String sort, String cursor) throws Exception {
+        return mockMvc.perform(get("/api/invoices")
+                        .param("cursor", cursor)
+                        .param("size", "2")
+                        .param("sort", sort)
+                        .param("sellerIdentificationNumber", SELLER))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private static List<Long> ids(String body) {
+        List<Number> ids = JsonPath.read(body, "$.content[*].id");
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    private long addPerson(String name, String identificationNumber) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/persons").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"identificationNumber\":\"" + identificationNumber + "\","
+                                + "\"accountNumber\":\"123456789\",\"bankCode\":\"0100\",\"telephone\":\"1\","
+                                + "\"mail\":\"a@b.cz\",\"street\":\"s\",\"zip\":\"1\",\"city\":\"c\","
+                                + "\"country\":\"CZECHIA\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return JsonPath.<Number>read(result.getResponse().getContentAsString(), "$.id").longValue();
+    }
+
+    private long addInvoice(long sellerId, long buyerId, String dueDate) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/invoices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"seller\":{\"id\":" + sellerId + "},\"buyer\":{\"id\":" + buyerId + "},"
+                                + "\"issued\":\"2025-01-01\",\"dueDate\":" + (dueDate == null ? "null" : "\"" + dueDate + "\"")
+                                + ",\"product\":\"Produkt\",\"price\":100,\"vat\":21}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return JsonPath.<Number>read(result.getResponse().getContentAsString(), "$.id").longValue();
+    }
+}
@@ -0,0 +1,149 @@
+package cz.itnetwork.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Endpointy faktur, osob a úvodní stránky s invoice.monitoring.strict-transactions (profil test).
+ * <p>
+ * Každý SQL příkaz mimo transakci služby skončí výjimkou, takže líně načtená asociace při mapování
+ * v controlleru nebo návrat k open-in-view shodí test, místo aby jen přibyl dotaz v logu.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest
+class StrictTransactionsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private long sellerId;
+    private long invoiceId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        sellerId = addPerson("Firma A", "20000001");
+        long buyerId = addPerson("Firma B", "20000002");
+        for (int i = 1; i <= 3; i++) {
+            invoiceId = addInvoice(sellerId, buyerId, "2025-0" + i + "-15", "Produkt " + i, 1000L * i);
+        }
+    }
+
+    @Test
+    void invoiceEndpoints() throws Exception {
+        for (String uri : List.of(
+                "/api/invoices?size=2",
+                "/api/invoices?cursor=&size=2&sort=issued,desc",
+                "/api/invoices?product=produkt&minPrice=1000",
+                "/api/invoices/" + invoiceId,
+                "/api/invoices/statistics",
+                "/api/invoices/export",
+                "/api/invoices/export?format=csv",
+                "/api/invoices/products",
+                "/api/invoices/rollups/sellers?from=2025-01&to=2025-12",
+                "/api/invoices/rollups/buyers?from=2025-01&to=2025-12",
+                "/api/invoices/rollups/products?from=2025-01&to=2025-12",
+                "/api/invoices/next-number")) {
+            expectStatus(get(uri), 200, uri);
+        }
+    }
+
+    @Test
+    void unknownExportFormat() throws Exception {
+        MvcResult result = expectStatus(get("/api/invoices/export?format=xml"), 400, "export ve formátu xml");
+
+        assertThat(result.getResponse().getHeader("Content-Disposition")).isNull();
+    }
+
+    @Test
+    void personEndpoints() throws Exception {
+        for (String uri : List.of(
+                "/api/persons",
+                "/api/persons/" + sellerId,
+                "/api/persons/statistics",
+                "/api/persons/20000001/sales?totals=true",
+                "/api/persons/20000002/purchases?size=2")) {
+            expectStatus(get(uri), 200, uri);
+        }
+    }
+
+    @Test
+    void dashboard() throws Exception {
+        MvcResult result = expectStatus(get("/api/dashboard"), 200, "/api/dashboard");
+
+        // Chyba sekce se neprojeví stavem odpovědi, jen v errors
+        String body = result.getResponse().getContentAsString();
+        assertThat(JsonPath.<Map<String, Object>>read(body, "$.errors")).isEmpty();
+        assertThat(JsonPath.<List<Object>>read(body, "$.persons")).hasSizeGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void writeEndpoints() throws Exception {
+        long personId = addPerson("Firma C", "20000003");
+        long ownInvoiceId = addInvoice(personId, sellerId, "2025-04-01", "Zápis", 500L);
+
+        expectStatus(put("/api/persons/" + personId).contentType(MediaType.APPLICATION_JSON)
+                .content(personJson("Firma C2", "20000003")), 200, "PUT osoby");
+        expectStatus(put("/api/invoices/" + ownInvoiceId).contentType(MediaType.APPLICATION_JSON)
+                .content(invoiceJson(personId, sellerId, "2025-04-02", "Zápis 2", 600L)), 200, "PUT faktury");
+        expectStatus(post("/api/invoices/import").contentType("application/x-ndjson")
+                .content("{\"sellerIdentificationNumber\":\"20000003\",\"buyerIdentificationNumber\":\"20000001\","
+                        + "\"issued\":\"2025-05-05\",\"product\":\"Import\",\"price\":10,\"vat\":21}\n"),
+                200, "import faktur");
+        expectStatus(delete("/api/invoices/" + ownInvoiceId), 204, "DELETE faktury");
+        expectStatus(delete("/api/persons/" + personId), 200, "DELETE osoby");
+    }
+
+    private long addPerson(String name, String identificationNumber) throws Exception {
+        MvcResult result = expectStatus(post("/api/persons").contentType(MediaType.APPLICATION_JSON)
+                .content(personJson(name, identificationNumber)), 200, "POST osoby");
+        return JsonPath.<Number>read(result.getResponse().getContentAsString(), "$.id").longValue();
+    }
+
+    private long addInvoice(long sellerId, long buyerId, String issued, String product, long price) throws Exception {
+        MvcResult result = expectStatus(post("/api/invoices").contentType(MediaType.APPLICATION_JSON)
+                .content(invoiceJson(sellerId, buyerId, issued, product, price)), 200, "POST faktury");
+        return JsonPath.<Number>read(result.getResponse().getContentAsString(), "$.id").longValue();
+    }
+
+    private MvcResult expectStatus(RequestBuilder request, int status, String description) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        assertThat(result.getResponse().getStatus())
+                .as(description + ": " + result.getResponse().getContentAsString())
+                .isEqualTo(status);
+        return result;
+    }
+
+    private static String personJson(String name, String identificationNumber) {
+        return "{\"name\":\"" + name + "\",\"identificationNumber\":\"" + identificationNumber + "\","
+                + "\"accountNumber\":\"123456789\",\"bankCode\":\"0100\",\"telephone\":\"+420 777 123 456\","
+                + "\"mail\":\"firma@example.cz\",\"street\":\"Hlavní 1\",\"zip\":\"11000\",\"city\":\"Praha\","
+                + "\"country\":\"CZECHIA\"}";
+    }
+
+    private static String invoiceJson(long sellerId, long buyerId, String issued, String product, long price) {
+        return "{\"seller\":{\"id\":" + sellerId + "},\"buyer\":{\"id\":" + buyerId + "},\"issued\":\"" + issued
+                + "\",\"dueDate\":\"2025-12-31\",\"product\":\"" + product + "\",\"price\":" + price
+                + ",\"vat\":21,\"note\":\"poznámka\"}";
+    }
+}
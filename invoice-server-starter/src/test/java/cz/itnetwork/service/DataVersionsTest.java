@@ -0,0 +1,67 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.DataAggregate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verze dat jsou v databázi: zvýší se jen commitnutým zápisem a vidí je i jiná instance aplikace.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class DataVersionsTest {
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void committedWriteIsVisibleToOtherInstance() {
+        DataVersions otherNode = new DataVersions(Duration.ZERO);
+        ReflectionTestUtils.setField(otherNode, "jdbcTemplate", jdbcTemplate);
+        String before = otherNode.etag(DataAggregate.INVOICES, DataAggregate.PERSONS);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Více zápisů v jedné transakci zvýší verzi jednou
+            dataVersions.bump(DataAggregate.INVOICES);
+            dataVersions.bump(DataAggregate.INVOICES, DataAggregate.PERSONS);
+            assertThat(otherNode.etag(DataAggregate.INVOICES, DataAggregate.PERSONS)).isEqualTo(before);
+        });
+
+        String after = otherNode.etag(DataAggregate.INVOICES, DataAggregate.PERSONS);
+        assertThat(after).isNotEqualTo(before).isEqualTo(dataVersions.etag(DataAggregate.INVOICES, DataAggregate.PERSONS));
+        assertThat(version(after, 0)).isEqualTo(version(before, 0) + 1);
+        assertThat(version(after, 1)).isEqualTo(version(before, 1) + 1);
+    }
+
+    @Test
+    void rolledBackWriteKeepsVersion() {
+        String before = dataVersions.etag(DataAggregate.PERSONS);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            dataVersions.bump(DataAggregate.PERSONS);
+            status.setRollbackOnly();
+        });
+
+        assertThat(dataVersions.etag(DataAggregate.PERSONS)).isEqualTo(before);
+    }
+
+    private static long version(String etag, int index) {
+        return Long.parseLong(etag.replace("\"", "").split("-")[index]);
+    }
+}
@@ -0,0 +1,99 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceSummaryDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.entity.filter.InvoiceFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Archivace nad vlastní databází: souběžná úprava faktury se do archivu dostane a archivované faktury
+ * vrátí i seznam filtrovaný jen datem do.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archive-test;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "NON_KEYWORDS=VALUE,YEAR,MONTH",
+        "invoice.archive.directory=target/archive-test/${random.uuid}"
+})
+class InvoiceArchiveServiceImplTest {
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentUpdateIsArchivedAndDateToFilterFindsIt() throws Exception {
+        PersonDTO seller = personService.addPerson(person("70000001"));
+        PersonDTO buyer = personService.addPerson(person("70000002"));
+        long updatedId = addInvoice(seller, buyer, LocalDate.of(2020, 3, 1));
+        addInvoice(seller, buyer, LocalDate.of(2020, 4, 1));
+
+        CompletableFuture<Integer> archive = new TransactionTemplate(transactionManager).execute(status -> {
+            // Úprava drží zámek řádku, archivace musí počkat na její commit
+            jdbcTemplate.update("UPDATE invoice_entity SET product = 'Upravený' WHERE id = ?", updatedId);
+            CompletableFuture<Integer> waiting = CompletableFuture.supplyAsync(invoiceArchiveService::archive);
+            try {
+                TimeUnit.MILLISECONDS.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertThat(waiting).isNotDone();
+            return waiting;
+        });
+        assertThat(archive.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+
+        InvoiceFilter dateTo = new InvoiceFilter();
+        dateTo.setDateTo(LocalDate.of(2020, 12, 31));
+        assertThat(invoiceService.getInvoices(dateTo, PageRequest.of(0, 10)).getContent())
+                .extracting(InvoiceSummaryDTO::getId, InvoiceSummaryDTO::getProduct)
+                .contains(tuple(updatedId, "Upravený"))
+                .hasSize(2);
+
+        InvoiceFilter afterHorizon = new InvoiceFilter();
+        afterHorizon.setDateFrom(LocalDate.now());
+        assertThat(invoiceService.getInvoices(afterHorizon, PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    private long addInvoice(PersonDTO seller, PersonDTO buyer, LocalDate issued) {
+        InvoiceDTO invoice = new InvoiceDTO();
+        invoice.setSeller(seller);
+        invoice.setBuyer(buyer);
+        invoice.setIssued(issued);
+        invoice.setProduct("Původní");
+        invoice.setPrice(100L);
+        invoice.setVat(21);
+        return invoiceService.addInvoice(invoice).getId();
+    }
+
+    private static PersonDTO person(String identificationNumber) {
+        return new PersonDTO(null, "Firma " + identificationNumber, identificationNumber, null, "123456789", "0100",
+                null, "+420 777 123 456", "firma@example.cz", "Hlavní 1", "11000", "Praha", Countries.CZECHIA, null);
+    }
+}
@@ -0,0 +1,63 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.InvoiceImportResultDTO;
+import cz.itnetwork.dto.PersonDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Chyba jedné dávky importu (i jiná než chyba databáze) vyřadí jen řádky té dávky, import pokračuje dál.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = "invoice.import.batch-size=1")
+class InvoiceImportServiceImplTest {
+
+    @Autowired
+    private InvoiceImportService invoiceImportService;
+
+    @Autowired
+    private PersonService personService;
+
+    @SpyBean
+    private InvoiceNumberService invoiceNumberService;
+
+    @Test
+    void failedBatchMarksItsRowsAndImportContinues() throws Exception {
+        addPerson("40000001");
+        addPerson("40000002");
+        // První dávka nedostane žádné číslo faktury a skončí NoSuchElementException (spy je za transakční proxy)
+        InvoiceNumberService spy = AopTestUtils.getTargetObject(invoiceNumberService);
+        doReturn(List.of()).doCallRealMethod().when(spy).allocateNumbers(anyInt());
+
+        String rows = """
+                {"sellerIdentificationNumber":"40000001","buyerIdentificationNumber":"40000002","issued":"2025-01-01","product":"A","price":100,"vat":21}
+                {"sellerIdentificationNumber":"40000001","buyerIdentificationNumber":"40000002","issued":"2025-01-02","product":"B","price":200,"vat":21}
+                """;
+        InvoiceImportResultDTO result = invoiceImportService.importNdjson(
+                new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getRow()).isEqualTo(1));
+    }
+
+    private void addPerson(String identificationNumber) {
+        personService.addPerson(new PersonDTO(null, "Firma " + identificationNumber, identificationNumber, null,
+                "123456789", "0100", null, "+420 777 123 456", "firma@example.cz", "Hlavní 1", "11000", "Praha",
+                Countries.CZECHIA, null));
+    }
+}
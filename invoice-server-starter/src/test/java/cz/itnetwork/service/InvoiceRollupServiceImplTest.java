@@ -0,0 +1,93 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.entity.InvoiceRollupWatermarkEntity;
+import cz.itnetwork.entity.repository.InvoiceChangeRepository;
+import cz.itnetwork.entity.repository.InvoiceRollupWatermarkRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Zpracování logu změn čeká na zámek watermarku, který drží jiný uzel, a změny, které ten mezitím
+ * zpracoval, nepromítne podruhé.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class InvoiceRollupServiceImplTest {
+
+    @Autowired
+    private InvoiceRollupService invoiceRollupService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceRollupWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private InvoiceChangeRepository changeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void refreshWaitsForWatermarkLock() throws Exception {
+        PersonDTO seller = personService.addPerson(person("60000001"));
+        PersonDTO buyer = personService.addPerson(person("60000002"));
+        addInvoice(seller, buyer);
+        invoiceRollupService.refresh();
+        addInvoice(seller, buyer);
+
+        CompletableFuture<Integer> refresh = new TransactionTemplate(transactionManager).execute(status -> {
+            // "Jiný uzel" drží zámek a zpracovává čekající změnu, dokud transakce běží
+            watermarkRepository.findForUpdate(InvoiceRollupWatermarkEntity.ROLLUPS).orElseThrow();
+            changeRepository.deleteAllRows();
+            CompletableFuture<Integer> waiting = CompletableFuture.supplyAsync(invoiceRollupService::refresh);
+            try {
+                TimeUnit.MILLISECONDS.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertThat(waiting).isNotDone();
+            return waiting;
+        });
+
+        // Po uvolnění zámku už změna v logu není, podruhé se nepřičte
+        assertThat(refresh.get(5, TimeUnit.SECONDS)).isZero();
+        assertThat(invoiceRollupService.getSellerRollups(YearMonth.of(2025, 6), YearMonth.of(2025, 6), seller.getId(), false))
+                .singleElement()
+                .satisfies(rollup -> assertThat(rollup.getInvoicesCount()).isEqualTo(1));
+    }
+
+    private void addInvoice(PersonDTO seller, PersonDTO buyer) {
+        InvoiceDTO invoice = new InvoiceDTO();
+        invoice.setSeller(seller);
+        invoice.setBuyer(buyer);
+        invoice.setIssued(LocalDate.of(2025, 6, 1));
+        invoice.setProduct("Zámek");
+        invoice.setPrice(100L);
+        invoice.setVat(21);
+        invoiceService.addInvoice(invoice);
+    }
+
+    private static PersonDTO person(String identificationNumber) {
+        return new PersonDTO(null, "Firma " + identificationNumber, identificationNumber, null, "123456789", "0100",
+                null, "+420 777 123 456", "firma@example.cz", "Hlavní 1", "11000", "Praha", Countries.CZECHIA, null);
+    }
+}
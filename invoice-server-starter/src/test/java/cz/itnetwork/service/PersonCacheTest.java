@@ -0,0 +1,52 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.entity.PersonEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Čtení souběžné s úpravou osoby vrátí do cache starou verzi, po commitu úpravy z cache zmizí.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class PersonCacheTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonCache personCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentReadBeforeCommitDoesNotKeepStaleCopy() {
+        long id = personService.addPerson(person("Původní název")).getId();
+        personCache.getById(id);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            personService.updatePerson(id, person("Nový název"));
+            // Jiné vlákno ještě vidí commitnutá data a uloží je do cache
+            PersonEntity concurrent = CompletableFuture.supplyAsync(() -> personCache.getById(id)).join();
+            assertThat(concurrent.getName()).isEqualTo("Původní název");
+        });
+
+        assertThat(personCache.getById(id).getName()).isEqualTo("Nový název");
+    }
+
+    private static PersonDTO person(String name) {
+        return new PersonDTO(null, name, "50000001", null, "123456789", "0100", null, "+420 777 123 456",
+                "firma@example.cz", "Hlavní 1", "11000", "Praha", Countries.CZECHIA, null);
+    }
+}